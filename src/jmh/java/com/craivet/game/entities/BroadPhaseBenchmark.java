@@ -0,0 +1,106 @@
+package com.craivet.game.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara la fase amplia de {@link BroadPhase} (spatial hash y sweep and prune) con comparar todos los pares.
+ * <p>
+ * Las entidades son cajas de 8 a 24 pixeles repartidas en un area que crece con la cantidad, asi la densidad (y la cantidad de
+ * pares por entidad) es la misma en todos los tamanios y se ve como crece el costo. En cada operacion las entidades se mueven un
+ * paso, como en un cuadro, y rebotan en los bordes del area para que la densidad no baje a lo largo de las iteraciones.
+ * <p>
+ * Ejecutar con {@code gradle jmh}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BroadPhaseBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    public int size;
+
+    private List<Box> boxes;
+    // Lado del area en la que se mueven las entidades
+    private double side;
+    private BroadPhase broadPhase;
+    // Cuenta los pares para que no se eliminen las llamadas
+    private long pairs;
+    private final BroadPhase.PairHandler counter = (a, b) -> pairs++;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // 1 entidad cada 40x40 pixeles en promedio
+        side = Math.sqrt(size) * 40;
+        boxes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double w = 8 + random.nextInt(17), h = 8 + random.nextInt(17);
+            Box box = new Box(random.nextDouble() * side, random.nextDouble() * side, w, h);
+            box.setDX(random.nextDouble() - 0.5);
+            box.setDY(random.nextDouble() - 0.5);
+            boxes.add(box);
+        }
+        broadPhase = new BroadPhase(BroadPhase.Mode.SPATIAL_HASH, 32);
+    }
+
+    private void step() {
+        for (int i = 0; i < boxes.size(); i++) {
+            Box box = boxes.get(i);
+            box.update(1);
+            box.bounce(side);
+        }
+    }
+
+    @Benchmark
+    public long spatialHash() {
+        step();
+        broadPhase.setMode(BroadPhase.Mode.SPATIAL_HASH);
+        return broadPhase.findPairs(boxes, counter) + pairs;
+    }
+
+    @Benchmark
+    public long sweepAndPrune() {
+        step();
+        broadPhase.setMode(BroadPhase.Mode.SWEEP_AND_PRUNE);
+        return broadPhase.findPairs(boxes, counter) + pairs;
+    }
+
+    @Benchmark
+    public long bruteForce() {
+        step();
+        return broadPhase.bruteForce(boxes, counter) + pairs;
+    }
+
+    private static class Box extends AbstractMovableEntity {
+
+        Box(double x, double y, double width, double height) {
+            super(x, y, width, height);
+        }
+
+        @Override
+        public void draw() {
+        }
+
+        /**
+         * Invierte la velocidad en el eje en que la posicion salio de [0, side) y la devuelve al area.
+         */
+        void bounce(double side) {
+            if (x < 0 || x >= side) {
+                x = Math.min(Math.max(x, 0), Math.nextDown(side));
+                setDX(-getDX());
+            }
+            if (y < 0 || y >= side) {
+                y = Math.min(Math.max(y, 0), Math.nextDown(side));
+                setDY(-getDY());
+            }
+        }
+
+    }
+
+}
\ No newline at end of file
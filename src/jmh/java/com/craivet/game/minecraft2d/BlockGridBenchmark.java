@@ -0,0 +1,104 @@
+package com.craivet.game.minecraft2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara la grilla de chunks con ordinales ({@link BlockGrid}) con el almacenamiento anterior de un objeto por celda
+ * ({@code Block[][]} con coordenadas y textura propias).
+ * <p>
+ * Ejecutar con {@code gradle jmh}. La memoria asignada por operacion al pintar celdas aparece en {@code gc.alloc.rate.norm}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockGridBenchmark {
+
+    private static final BlockType[] TYPES = BlockType.values();
+    // Cantidad de celdas editadas por operacion, como al arrastrar el mouse pintando
+    private static final int EDITS = 1024;
+
+    @Param({"64", "1024"})
+    public int size;
+
+    private BlockGrid grid;
+    private LegacyBlock[][] legacy;
+    private int[] editX, editY;
+    private BlockType[] editTypes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        grid = new BlockGrid();
+        legacy = new LegacyBlock[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                BlockType type = TYPES[random.nextInt(TYPES.length)];
+                grid.setAt(type, x, y);
+                legacy[x][y] = new LegacyBlock(type, x * World.BLOCK_SIZE, y * World.BLOCK_SIZE);
+            }
+        }
+        editX = new int[EDITS];
+        editY = new int[EDITS];
+        editTypes = new BlockType[EDITS];
+        for (int i = 0; i < EDITS; i++) {
+            editX[i] = random.nextInt(size);
+            editY[i] = random.nextInt(size);
+            editTypes[i] = TYPES[random.nextInt(TYPES.length)];
+        }
+    }
+
+    @Benchmark
+    public long iterateFlat() {
+        long sum = 0;
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                sum += grid.getTypeAt(x, y).ordinal() + x * World.BLOCK_SIZE + y * World.BLOCK_SIZE;
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateLegacy() {
+        long sum = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                LegacyBlock block = legacy[x][y];
+                sum += block.type.ordinal() + (long) block.x + (long) block.y;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BlockGrid paintFlat() {
+        for (int i = 0; i < EDITS; i++)
+            grid.setAt(editTypes[i], editX[i], editY[i]);
+        return grid;
+    }
+
+    @Benchmark
+    public LegacyBlock[][] paintLegacy() {
+        for (int i = 0; i < EDITS; i++)
+            legacy[editX[i]][editY[i]] = new LegacyBlock(editTypes[i], editX[i] * World.BLOCK_SIZE, editY[i] * World.BLOCK_SIZE);
+        return legacy;
+    }
+
+    /**
+     * Misma forma que el bloque anterior, sin cargar la textura (que necesita un contexto GL).
+     */
+    static class LegacyBlock {
+        final BlockType type;
+        final float x, y;
+        Object texture;
+
+        LegacyBlock(BlockType type, float x, float y) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara el formato binario ({@link WorldFile}) con el formato xml al guardar y cargar un mundo de size x size bloques.
+ * <p>
+ * El mundo imita un terreno: aire arriba, una capa de pasto, tierra y piedra abajo con algunas vetas de ladrillo. El formato xml
+ * solo se mide hasta 1024x1024 porque JDOM arma el documento completo en memoria (un elemento por celda) y con 4096x4096 se queda
+ * sin heap; el binario se mide tambien con 4096x4096. Al terminar cada medicion se imprime el tamanio de los archivos.
+ * <p>
+ * Ejecutar con {@code gradle jmh}.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorldFileBenchmark {
+
+    @State(Scope.Thread)
+    public static class Binary {
+
+        @Param({"256", "1024", "4096"})
+        public int size;
+
+        BlockGrid grid;
+        File file;
+
+        @Setup
+        public void setUp() throws IOException {
+            grid = terrain(size);
+            file = File.createTempFile("world", ".dat");
+            grid.save(file);
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.out.println("\nsave.dat " + size + "x" + size + ": " + file.length() + " bytes");
+            file.delete();
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Xml {
+
+        @Param({"256", "1024"})
+        public int size;
+
+        BlockGrid grid;
+        File file;
+
+        @Setup
+        public void setUp() throws IOException {
+            grid = terrain(size);
+            file = File.createTempFile("world", ".xml");
+            grid.exportXml(file);
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.out.println("\nsave.xml " + size + "x" + size + ": " + file.length() + " bytes");
+            file.delete();
+        }
+
+    }
+
+    @Benchmark
+    public void saveBinary(Binary state) {
+        state.grid.save(state.file);
+    }
+
+    @Benchmark
+    public int loadBinary(Binary state) {
+        state.grid.load(state.file);
+        return state.grid.getChunkCount();
+    }
+
+    @Benchmark
+    public void saveXml(Xml state) {
+        state.grid.exportXml(state.file);
+    }
+
+    @Benchmark
+    public int loadXml(Xml state) {
+        state.grid.importXml(state.file);
+        return state.grid.getChunkCount();
+    }
+
+    private static BlockGrid terrain(int size) {
+        Random random = new Random(42);
+        BlockGrid grid = new BlockGrid();
+        int surface = size / 4;
+        for (int x = 0; x < size; x++) {
+            // La superficie sube o baja de a un bloque como maximo
+            surface = Math.max(1, Math.min(size / 2, surface + random.nextInt(3) - 1));
+            for (int y = surface; y < size; y++) {
+                BlockType type;
+                if (y == surface) type = BlockType.GRASS;
+                else if (y < surface + 4) type = BlockType.DIRT;
+                else type = random.nextInt(64) == 0 ? BlockType.BRICK : BlockType.STONE;
+                grid.setAt(type, x, y);
+            }
+        }
+        return grid;
+    }
+
+}
\ No newline at end of file
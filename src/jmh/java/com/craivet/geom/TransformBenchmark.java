@@ -0,0 +1,98 @@
+package com.craivet.geom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide cuantos puntos por segundo transforman los metodos de {@link TransformingPointsVectors} comparados con llamar a
+ * {@link Matrix44#transformPoint} por cada {@link Vec3f}.
+ * <p>
+ * Con {@code projection = false} la matriz es afin (rotacion, escala y traslacion) y se usa el bucle sin w'; con {@code true} es
+ * una perspectiva por la vista, que divide cada punto por w'. Los tiempos son por operacion (todos los puntos), para obtener
+ * puntos por segundo dividir size por el tiempo.
+ * <p>
+ * Ejecutar con {@code gradle jmh}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransformBenchmark {
+
+    @Param({"1000", "100000", "3000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean projection;
+
+    private Matrix44 matrix;
+    private Vec3f[] points, transformed;
+    private float[] src, dst;
+    private FloatBuffer srcBuffer, dstBuffer;
+    private final TransformingPointsVectors transformer = new TransformingPointsVectors();
+
+    @Setup
+    public void setUp() {
+        matrix = new Matrix44().rotate(30, 0, 1, 0).scale(2, 2, 2).translate(0, 0, -50);
+        if (projection) matrix.mul(new Matrix44().perspective(60, 4 / 3f, 0.1f, 1000));
+        Random random = new Random(42);
+        points = new Vec3f[size];
+        transformed = new Vec3f[size];
+        src = new float[size * 3];
+        dst = new float[size * 3];
+        for (int i = 0; i < size; i++) {
+            float x = random.nextFloat() * 100 - 50, y = random.nextFloat() * 100 - 50, z = random.nextFloat() * 100 - 50;
+            points[i] = new Vec3f(x, y, z);
+            transformed[i] = new Vec3f();
+            src[i * 3] = x;
+            src[i * 3 + 1] = y;
+            src[i * 3 + 2] = z;
+        }
+        srcBuffer = ByteBuffer.allocateDirect(size * 3 * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        srcBuffer.put(src).flip();
+        dstBuffer = ByteBuffer.allocateDirect(size * 3 * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    @Benchmark
+    public Vec3f[] pointsVec3f() {
+        for (int i = 0; i < size; i++)
+            matrix.transformPoint(points[i], transformed[i]);
+        return transformed;
+    }
+
+    @Benchmark
+    public float[] pointsArray() {
+        TransformingPointsVectors.transformPoints(matrix, src, 0, dst, 0, size);
+        return dst;
+    }
+
+    @Benchmark
+    public FloatBuffer pointsBuffer() {
+        TransformingPointsVectors.transformPoints(matrix, srcBuffer, 0, dstBuffer, 0, size);
+        return dstBuffer;
+    }
+
+    @Benchmark
+    public float[] pointsArrayParallel() {
+        transformer.transformPointsParallel(matrix, src, 0, dst, 0, size);
+        return dst;
+    }
+
+    @Benchmark
+    public FloatBuffer pointsBufferParallel() {
+        transformer.transformPointsParallel(matrix, srcBuffer, 0, dstBuffer, 0, size);
+        return dstBuffer;
+    }
+
+    @Benchmark
+    public float[] directionsArray() {
+        TransformingPointsVectors.transformDirections(matrix, src, 0, dst, 0, size);
+        return dst;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.craivet.geom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara {@link Vec3} (double, un objeto nuevo por operacion) con {@link Vec3f} (float, operaciones en el lugar o con destino)
+ * en los bucles tipicos por entidad y por vertice: integrar posiciones, calcular normales de triangulos y escribir los vertices
+ * en el buffer que se envia a OpenGL.
+ * <p>
+ * Ejecutar con {@code gradle jmh}. La memoria asignada por operacion (0 en los benchmarks de Vec3f) aparece en
+ * {@code gc.alloc.rate.norm}, el perfilador gc esta activado en la configuracion jmh de build.gradle.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Vec3Benchmark {
+
+    private static final float DT = 1 / 60f;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Vec3[] positions, velocities;
+    private Vec3f[] positionsf, velocitiesf;
+    private FloatBuffer vertices;
+    // Temporales de Vec3f, se crean una sola vez
+    private final Vec3f edge1 = new Vec3f(), edge2 = new Vec3f(), normal = new Vec3f();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        positions = new Vec3[size];
+        velocities = new Vec3[size];
+        positionsf = new Vec3f[size];
+        velocitiesf = new Vec3f[size];
+        for (int i = 0; i < size; i++) {
+            float x = random.nextFloat() * 100, y = random.nextFloat() * 100, z = random.nextFloat() * 100;
+            float vx = random.nextFloat() - 0.5f, vy = random.nextFloat() - 0.5f, vz = random.nextFloat() - 0.5f;
+            positions[i] = new Vec3(x, y, z);
+            velocities[i] = new Vec3(vx, vy, vz);
+            positionsf[i] = new Vec3f(x, y, z);
+            velocitiesf[i] = new Vec3f(vx, vy, vz);
+        }
+        vertices = ByteBuffer.allocateDirect(size * 3 * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    @Benchmark
+    public Vec3[] integrateVec3() {
+        for (int i = 0; i < size; i++)
+            positions[i] = positions[i].add(velocities[i].multiply(DT));
+        return positions;
+    }
+
+    @Benchmark
+    public Vec3f[] integrateVec3f() {
+        for (int i = 0; i < size; i++)
+            positionsf[i].fma(DT, velocitiesf[i]);
+        return positionsf;
+    }
+
+    /**
+     * Normal de cada triangulo formado por tres posiciones consecutivas.
+     */
+    @Benchmark
+    public double normalsVec3() {
+        double sum = 0;
+        for (int i = 0; i + 2 < size; i += 3) {
+            Vec3 a = positions[i];
+            Vec3 n = positions[i + 1].subtract(a).cross(positions[i + 2].subtract(a)).normalize();
+            sum += n.x + n.y + n.z;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float normalsVec3f() {
+        float sum = 0;
+        for (int i = 0; i + 2 < size; i += 3) {
+            Vec3f a = positionsf[i];
+            positionsf[i + 1].sub(a, edge1);
+            positionsf[i + 2].sub(a, edge2);
+            edge1.cross(edge2, normal).normalize();
+            sum += normal.x + normal.y + normal.z;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public FloatBuffer storeVec3() {
+        for (int i = 0; i < size; i++) {
+            Vec3 p = positions[i];
+            vertices.put(i * 3, (float) p.x).put(i * 3 + 1, (float) p.y).put(i * 3 + 2, (float) p.z);
+        }
+        return vertices;
+    }
+
+    @Benchmark
+    public FloatBuffer storeVec3f() {
+        for (int i = 0; i < size; i++)
+            positionsf[i].store(vertices, i * 3);
+        return vertices;
+    }
+
+}
\ No newline at end of file
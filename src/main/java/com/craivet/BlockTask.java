@@ -0,0 +1,39 @@
+package com.craivet;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Tarea de fork/join que divide un rango de bloques de trabajo a la mitad hasta llegar a un solo bloque, y entrega el indice de
+ * cada bloque a un {@link IntConsumer}. Quien la usa decide que elementos corresponden a cada bloque; como el reparto depende
+ * solo de la cantidad de bloques y no de la de hilos, el resultado es el mismo con cualquier pool.
+ */
+
+public class BlockTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IntConsumer block;
+    private final int from, to;
+
+    /**
+     * @param block recibe el indice de cada bloque, se llama desde cualquier hilo del pool.
+     * @param from  primer bloque.
+     * @param to    bloque siguiente al ultimo (exclusive).
+     */
+    public BlockTask(IntConsumer block, int from, int to) {
+        this.block = block;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from == 1) block.accept(from);
+        else if (to > from) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new BlockTask(block, from, middle), new BlockTask(block, middle, to));
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.craivet;
+
+/**
+ * Camara para escenas 2D con proyeccion ortografica y origen en la esquina superior izquierda.
+ * <p>
+ * Guarda la posicion en pixeles de la esquina superior izquierda de la vista dentro del mundo y el tamanio de la vista. Con eso
+ * calcula el rango de celdas visibles de una grilla, de forma que solo se recorra (y se dibuje) lo que entra en la pantalla
+ * sin importar el tamanio del mundo.
+ */
+
+public class Camera2D {
+
+    private int x, y;
+    private int width, height;
+
+    public Camera2D(int width, int height) {
+        setViewport(width, height);
+    }
+
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void translate(int dx, int dy) {
+        x += dx;
+        y += dy;
+    }
+
+    public void setViewport(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Devuelve la primera columna visible de una grilla con celdas de cellSize pixeles.
+     */
+    public int firstColumn(int cellSize) {
+        return Math.floorDiv(x, cellSize);
+    }
+
+    /**
+     * Devuelve la ultima columna visible (inclusive) de una grilla con celdas de cellSize pixeles.
+     */
+    public int lastColumn(int cellSize) {
+        return Math.floorDiv(x + width - 1, cellSize);
+    }
+
+    public int firstRow(int cellSize) {
+        return Math.floorDiv(y, cellSize);
+    }
+
+    public int lastRow(int cellSize) {
+        return Math.floorDiv(y + height - 1, cellSize);
+    }
+
+    /**
+     * Devuelve true si el rectangulo (en pixeles del mundo) se superpone con la vista.
+     */
+    public boolean isVisible(float x, float y, float width, float height) {
+        return x < this.x + this.width && x + width > this.x && y < this.y + this.height && y + height > this.y;
+    }
+
+    /**
+     * Convierte una posicion x de la pantalla en una posicion x del mundo.
+     */
+    public int toWorldX(int screenX) {
+        return screenX + x;
+    }
+
+    /**
+     * Convierte una posicion y de la pantalla (medida desde arriba) en una posicion y del mundo.
+     */
+    public int toWorldY(int screenY) {
+        return screenY + y;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+}
\ No newline at end of file
@@ -47,8 +47,9 @@ public class Delta {
         long currentTime = getTime();
         // Diferencia entre el tiempo actual y el ultimo fotograma
         double delta = currentTime - lastFrame;
-        // TODO No tendria que establecer el tiempo de currentTime para no calcular la hora del sistema actual de nuevo?
-        lastFrame = getTime() /* currentTime */; // Estable el tiempo actual despues de calcular el delta
+        /* Establece el tiempo actual despues de calcular el delta. Se usa currentTime en lugar de volver a llamar a getTime(): el
+         * tiempo que pasa entre las dos llamadas no se contaria en ningun delta y se perderia en cada cuadro. */
+        lastFrame = currentTime;
         return delta;
     }
 
@@ -66,7 +67,7 @@ public class Delta {
 
             int delta = (int) getDelta();
 
-            System.out.println("Delta value: " + delta);
+            // Imprimir el delta en cada cuadro tambien consume tiempo del cuadro, para ver los tiempos usar FrameProfiler
 
             /* ¿Se puede actualizar el movimiento del frame sin el Delta?
              * Si se puede, pero cuando haya una caida o subida de FPS, el movimiento no sera el mismo, es decir si disminuyen los
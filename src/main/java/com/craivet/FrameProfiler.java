@@ -0,0 +1,389 @@
+package com.craivet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Mide en que se va el tiempo de cada cuadro sin cambiarlo.
+ * <p>
+ * Cada {@link Metric} guarda sus ultimos valores en un buffer circular que se crea al construir el perfilador, asi un cuadro no
+ * crea objetos ni escribe en la consola: solo lee el reloj y guarda numeros. Las fases (entrada, actualizacion, renderizado e
+ * intercambio de buffers) se miden con {@link #begin(Metric)} y {@link #end(Metric)} o con {@link #scope(Metric)} en un
+ * try-with-resources; si una fase se ejecuta varias veces en el mismo cuadro (varios pasos de {@link GameLoop}) se suman. Las
+ * llamadas a OpenGL se agregan con {@link #addCalls(long, long)}.
+ * <p>
+ * Los bytes asignados por cuadro se leen del {@link com.sun.management.ThreadMXBean} del hilo, que crea un arreglo en cada
+ * lectura; por eso se muestrean cada {@code allocationSampling} cuadros y se descuenta lo que asigna la propia lectura.
+ * <p>
+ * Los percentiles se calculan recien cuando se piden con {@link #summarize(Metric)}, ordenando una copia del buffer en un arreglo
+ * que tambien se reutiliza. Cada {@code reportInterval} nanosegundos se llama a los {@link Report} agregados, por ejemplo
+ * {@link #LOG} o un {@link CsvReport}.
+ */
+
+public class FrameProfiler {
+
+    public enum Metric {
+
+        /** Tiempo entre el comienzo y el final del cuadro, en nanosegundos. */
+        FRAME(false),
+        INPUT(true),
+        UPDATE(true),
+        RENDER(true),
+        /** Display.update y Display.sync, incluye la espera del vsync. */
+        SWAP(true),
+        GL_CALLS(false),
+        DRAW_CALLS(false),
+        /** Bytes asignados por el hilo durante el cuadro, solo en los cuadros muestreados. */
+        ALLOCATED_BYTES(false);
+
+        /** Indica si la metrica es una fase que se mide con begin y end. */
+        public final boolean phase;
+
+        Metric(boolean phase) {
+            this.phase = phase;
+        }
+
+    }
+
+    /**
+     * Se llama periodicamente con el perfilador, despues de terminar un cuadro.
+     */
+    public interface Report {
+
+        void report(FrameProfiler profiler);
+
+    }
+
+    /**
+     * Fuente de la cantidad de bytes que asigno el hilo desde que empezo.
+     */
+    public interface AllocationCounter {
+
+        long allocatedBytes();
+
+    }
+
+    /**
+     * Estadisticas de una metrica sobre los valores del buffer. Se reutiliza en cada {@link #summarize(Metric)}.
+     */
+    public static class Summary {
+
+        public final Metric metric;
+        public int samples;
+        public double mean;
+        public long p50, p95, p99, max;
+
+        Summary(Metric metric) {
+            this.metric = metric;
+        }
+
+    }
+
+    /**
+     * Imprime los percentiles del tiempo de cuadro y de cada fase en la consola.
+     */
+    public static final Report LOG = profiler -> System.out.println(profiler);
+
+    private static final Metric[] METRICS = Metric.values();
+
+    private final GameLoop.Clock clock;
+    private final AllocationCounter allocations;
+    // Bytes que asigna una lectura de allocations, se descuentan de cada muestra
+    private final long allocationOverhead;
+
+    private final long[][] values;
+    private final int[] head, size;
+    private final long[] current, started;
+    private final long[] sorted;
+    private final Summary[] summaries;
+    private final Scope[] scopes;
+
+    private final List<Report> reports = new ArrayList<>(2);
+    private long reportInterval = 1_000_000_000L;
+    private int allocationSampling = 60;
+
+    private long frameStart, allocationStart, lastReport;
+    private boolean inFrame, sampling;
+    private long frames, reportCount;
+
+    /**
+     * @param capacity cantidad de cuadros que guarda cada metrica.
+     */
+    public FrameProfiler(int capacity) {
+        this(capacity, System::nanoTime, threadAllocationCounter());
+    }
+
+    /**
+     * @param capacity    cantidad de cuadros que guarda cada metrica.
+     * @param clock       reloj en nanosegundos.
+     * @param allocations bytes asignados por el hilo que dibuja, o null para no medirlos.
+     */
+    public FrameProfiler(int capacity, GameLoop.Clock clock, AllocationCounter allocations) {
+        if (capacity <= 0) throw new IllegalArgumentException("La capacidad debe ser mayor a 0: " + capacity);
+        this.clock = clock;
+        this.allocations = allocations;
+        values = new long[METRICS.length][capacity];
+        head = new int[METRICS.length];
+        size = new int[METRICS.length];
+        current = new long[METRICS.length];
+        started = new long[METRICS.length];
+        sorted = new long[capacity];
+        summaries = new Summary[METRICS.length];
+        scopes = new Scope[METRICS.length];
+        for (Metric metric : METRICS) {
+            summaries[metric.ordinal()] = new Summary(metric);
+            if (metric.phase) scopes[metric.ordinal()] = new Scope(metric);
+        }
+        if (allocations != null) {
+            long first = allocations.allocatedBytes();
+            allocationOverhead = allocations.allocatedBytes() - first;
+        } else allocationOverhead = 0;
+    }
+
+    /**
+     * Devuelve los bytes asignados por el hilo actual con el ThreadMXBean de HotSpot, o null si la JVM no los mide.
+     */
+    public static AllocationCounter threadAllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        return () -> threads.getThreadAllocatedBytes(thread);
+    }
+
+    /**
+     * @param nanos cada cuanto se llama a los reportes.
+     */
+    public void setReportInterval(long nanos) {
+        if (nanos <= 0) throw new IllegalArgumentException("El intervalo debe ser mayor a 0: " + nanos);
+        reportInterval = nanos;
+    }
+
+    /**
+     * @param frames cada cuantos cuadros se miden los bytes asignados.
+     */
+    public void setAllocationSampling(int frames) {
+        if (frames <= 0) throw new IllegalArgumentException("El muestreo debe ser mayor a 0: " + frames);
+        allocationSampling = frames;
+    }
+
+    public void addReport(Report report) {
+        reports.add(report);
+    }
+
+    public void beginFrame() {
+        if (inFrame) throw new IllegalStateException("El cuadro anterior no termino");
+        inFrame = true;
+        Arrays.fill(current, 0);
+        sampling = allocations != null && frames % allocationSampling == 0;
+        if (sampling) allocationStart = allocations.allocatedBytes();
+        frameStart = clock.nanoTime();
+        if (frames == 0) lastReport = frameStart;
+    }
+
+    public void endFrame() {
+        if (!inFrame) throw new IllegalStateException("No hay un cuadro empezado");
+        long now = clock.nanoTime();
+        current[Metric.FRAME.ordinal()] = now - frameStart;
+        for (Metric metric : METRICS)
+            if (metric != Metric.ALLOCATED_BYTES) record(metric, current[metric.ordinal()]);
+        if (sampling)
+            record(Metric.ALLOCATED_BYTES, Math.max(0, allocations.allocatedBytes() - allocationStart - allocationOverhead));
+        inFrame = false;
+        frames++;
+
+        if (now - lastReport >= reportInterval) {
+            lastReport = now;
+            reportCount++;
+            for (int i = 0; i < reports.size(); i++)
+                reports.get(i).report(this);
+        }
+    }
+
+    public void begin(Metric phase) {
+        if (!phase.phase) throw new IllegalArgumentException(phase.name() + " no es una fase");
+        started[phase.ordinal()] = clock.nanoTime();
+    }
+
+    public void end(Metric phase) {
+        if (!phase.phase) throw new IllegalArgumentException(phase.name() + " no es una fase");
+        current[phase.ordinal()] += clock.nanoTime() - started[phase.ordinal()];
+    }
+
+    /**
+     * Empieza a medir la fase y devuelve un objeto que la termina al cerrarse. Siempre es el mismo objeto para la misma fase.
+     */
+    public Scope scope(Metric phase) {
+        begin(phase);
+        return scopes[phase.ordinal()];
+    }
+
+    /**
+     * Suma llamadas a OpenGL al cuadro actual.
+     */
+    public void addCalls(long calls, long drawCalls) {
+        current[Metric.GL_CALLS.ordinal()] += calls;
+        current[Metric.DRAW_CALLS.ordinal()] += drawCalls;
+    }
+
+    private void record(Metric metric, long value) {
+        int m = metric.ordinal();
+        values[m][head[m]] = value;
+        head[m] = (head[m] + 1) % sorted.length;
+        if (size[m] < sorted.length) size[m]++;
+    }
+
+    /**
+     * Devuelve el ultimo valor registrado de la metrica, o 0 si todavia no hay.
+     */
+    public long getLast(Metric metric) {
+        int m = metric.ordinal();
+        if (size[m] == 0) return 0;
+        return values[m][(head[m] - 1 + sorted.length) % sorted.length];
+    }
+
+    /**
+     * Copia los valores de la metrica a {@code dst} del mas viejo al mas nuevo y devuelve cuantos copio.
+     */
+    public int copyValues(Metric metric, long[] dst) {
+        int m = metric.ordinal(), n = Math.min(size[m], dst.length);
+        int start = (head[m] - n + sorted.length) % sorted.length;
+        for (int i = 0; i < n; i++)
+            dst[i] = values[m][(start + i) % sorted.length];
+        return n;
+    }
+
+    /**
+     * Calcula las estadisticas de los valores que hay en el buffer de la metrica.
+     */
+    public Summary summarize(Metric metric) {
+        Summary summary = summaries[metric.ordinal()];
+        int n = copyValues(metric, sorted);
+        summary.samples = n;
+        if (n == 0) {
+            summary.mean = summary.p50 = summary.p95 = summary.p99 = summary.max = 0;
+            return summary;
+        }
+        Arrays.sort(sorted, 0, n);
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+            sum += sorted[i];
+        summary.mean = sum / n;
+        summary.p50 = percentile(sorted, n, 50);
+        summary.p95 = percentile(sorted, n, 95);
+        summary.p99 = percentile(sorted, n, 99);
+        summary.max = sorted[n - 1];
+        return summary;
+    }
+
+    /**
+     * Devuelve el percentil p (0-100) de los primeros n valores ordenados, con el metodo del rango mas cercano.
+     */
+    public static long percentile(long[] sorted, int n, double p) {
+        int rank = (int) Math.ceil(p / 100 * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Devuelve cuantas veces se llamo a los reportes, sirve para saber si hay estadisticas nuevas.
+     */
+    public long getReportCount() {
+        return reportCount;
+    }
+
+    public int getCapacity() {
+        return sorted.length;
+    }
+
+    /**
+     * Devuelve un resumen de una linea por metrica. Crea cadenas, no se debe llamar en cada cuadro.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Metric metric : METRICS) {
+            Summary s = summarize(metric);
+            if (metric == Metric.FRAME || metric.phase)
+                builder.append(String.format(Locale.ROOT, "%-15s p50 %7.3f ms  p95 %7.3f ms  p99 %7.3f ms  max %7.3f ms%n",
+                        metric.name(), s.p50 / 1e6, s.p95 / 1e6, s.p99 / 1e6, s.max / 1e6));
+            else builder.append(String.format(Locale.ROOT, "%-15s p50 %,10d     p95 %,10d     p99 %,10d     max %,10d%n",
+                    metric.name(), s.p50, s.p95, s.p99, s.max));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Agrega una fila por reporte a un archivo csv con el tiempo transcurrido, los cuadros y los percentiles de cada metrica.
+     */
+    public static class CsvReport implements Report, Closeable {
+
+        private final PrintWriter writer;
+        private long start = -1;
+
+        public CsvReport(File file) throws IOException {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) throw new IOException("No se pudo crear la carpeta " + parent);
+            writer = new PrintWriter(file, "UTF-8");
+            writer.print("time_s,frames");
+            for (Metric metric : METRICS) {
+                String name = metric.name().toLowerCase(Locale.ROOT);
+                // Los tiempos se escriben en milisegundos
+                String unit = metric == Metric.FRAME || metric.phase ? "_ms" : "";
+                writer.print("," + name + "_mean" + unit + "," + name + "_p50" + unit + "," + name + "_p95" + unit + "," + name + "_p99" + unit + "," + name + "_max" + unit);
+            }
+            writer.println();
+        }
+
+        @Override
+        public void report(FrameProfiler profiler) {
+            long now = profiler.clock.nanoTime();
+            if (start < 0) start = now;
+            writer.print(String.format(Locale.ROOT, "%.3f,%d", (now - start) / 1e9, profiler.getFrames()));
+            for (Metric metric : METRICS) {
+                Summary s = profiler.summarize(metric);
+                double scale = metric == Metric.FRAME || metric.phase ? 1e6 : 1;
+                writer.print(String.format(Locale.ROOT, ",%.4f,%.4f,%.4f,%.4f,%.4f", s.mean / scale, s.p50 / scale, s.p95 / scale, s.p99 / scale, s.max / scale));
+            }
+            writer.println();
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+
+    }
+
+    /**
+     * Termina la medicion de una fase al cerrarse, para usar con try-with-resources.
+     */
+    public class Scope implements AutoCloseable {
+
+        private final Metric phase;
+
+        private Scope(Metric phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            end(phase);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.craivet;
+
+/**
+ * Volumen visible (viewing frustum) de una camara con la misma proyeccion que {@code gluPerspective}, mirando hacia -z y sin
+ * rotacion, como la camara de {@link ThreeDeeDemo}.
+ * <p>
+ * El frustum se guarda como seis planos (izquierdo, derecho, inferior, superior, cercano y lejano) de la forma
+ * {@code a*x + b*y + c*z + d >= 0}, con las normales apuntando hacia adentro. Un punto es visible si esta del lado positivo de
+ * los seis planos; una caja alineada a los ejes se descarta si queda entera del lado negativo de alguno.
+ */
+
+public class Frustum {
+
+    private static final int PLANES = 6;
+
+    // Planos relativos a la camara y planos en coordenadas del mundo, 4 coeficientes por plano
+    private final float[] eye = new float[PLANES * 4];
+    private final float[] planes = new float[PLANES * 4];
+    private float x, y, z;
+
+    /**
+     * @param fovy   campo de vision vertical en grados.
+     * @param aspect relacion de aspecto (ancho / alto).
+     * @param near   distancia al plano cercano.
+     * @param far    distancia al plano lejano.
+     */
+    public Frustum setPerspective(float fovy, float aspect, float near, float far) {
+        float ty = (float) Math.tan(Math.toRadians(fovy) / 2);
+        float tx = ty * aspect;
+        // A una distancia -z de la camara se ve desde -z*tx hasta z*tx en x (z es negativo delante de la camara)
+        plane(eye, 0, 1, 0, -tx, 0); // Izquierdo:  x >= z * tx
+        plane(eye, 1, -1, 0, -tx, 0); // Derecho:  -x >= z * tx
+        plane(eye, 2, 0, 1, -ty, 0); // Inferior
+        plane(eye, 3, 0, -1, -ty, 0); // Superior
+        plane(eye, 4, 0, 0, -1, -near); // Cercano: -z >= near
+        plane(eye, 5, 0, 0, 1, far); // Lejano:    -z <= far
+        update();
+        return this;
+    }
+
+    /**
+     * Ubica la camara en el mundo. Equivale a {@code glTranslatef(-x, -y, -z)} en la matriz de modelo-vista.
+     */
+    public Frustum setPosition(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        update();
+        return this;
+    }
+
+    /**
+     * Devuelve true si el punto (en coordenadas del mundo) esta dentro del frustum.
+     */
+    public boolean contains(float x, float y, float z) {
+        for (int i = 0; i < planes.length; i += 4)
+            if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z + planes[i + 3] < 0) return false;
+        return true;
+    }
+
+    /**
+     * Devuelve false si la caja queda completamente fuera del frustum. Puede devolver true para algunas cajas que estan afuera
+     * cerca de las esquinas, lo que solo significa dibujar de mas.
+     */
+    public boolean intersects(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        for (int i = 0; i < planes.length; i += 4) {
+            float a = planes[i], b = planes[i + 1], c = planes[i + 2];
+            // Vertice de la caja mas adentro segun la normal del plano, si ese queda afuera toda la caja queda afuera
+            float px = a >= 0 ? maxX : minX, py = b >= 0 ? maxY : minY, pz = c >= 0 ? maxZ : minZ;
+            if (a * px + b * py + c * pz + planes[i + 3] < 0) return false;
+        }
+        return true;
+    }
+
+    private void update() {
+        // Trasladar la camara a (x, y, z) desplaza cada plano: n.(p - camara) + d = n.p + (d - n.camara)
+        for (int i = 0; i < planes.length; i += 4) {
+            planes[i] = eye[i];
+            planes[i + 1] = eye[i + 1];
+            planes[i + 2] = eye[i + 2];
+            planes[i + 3] = eye[i + 3] - (eye[i] * x + eye[i + 1] * y + eye[i + 2] * z);
+        }
+    }
+
+    private static void plane(float[] planes, int index, float a, float b, float c, float d) {
+        planes[index * 4] = a;
+        planes[index * 4 + 1] = b;
+        planes[index * 4 + 2] = c;
+        planes[index * 4 + 3] = d;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.craivet;
+
+/**
+ * Bucle de juego con paso de tiempo fijo (fixed timestep).
+ * <p>
+ * El tiempo real transcurrido se mide en nanosegundos y se acumula; la simulacion avanza siempre en pasos del mismo tamanio
+ * mientras el acumulador alcance para un paso, asi el resultado de la fisica no depende de los FPS. Lo que sobra en el acumulador
+ * (menos de un paso) se entrega al dibujar como alpha, la fraccion entre el estado anterior y el actual, para interpolar las
+ * posiciones y que el movimiento se vea continuo aunque los cuadros y los pasos no coincidan.
+ * <p>
+ * Si un cuadro tarda mucho (una pausa del recolector, la ventana arrastrada) se ejecutan como maximo {@code maxUpdates} pasos y
+ * el resto del tiempo se descarta, en lugar de intentar alcanzar al reloj y tardar cada vez mas (espiral de la muerte).
+ * <p>
+ * Un cuadro no crea objetos. El reloj se puede reemplazar por uno controlado a mano con {@link Clock}, de esta forma el bucle se
+ * puede ejecutar sin pantalla cuadro por cuadro con {@link #frame()}.
+ * <p>
+ * Con un {@link FrameProfiler} el bucle marca el comienzo y el final de cada cuadro y mide las fases {@code INPUT} y
+ * {@code UPDATE} por separado; las demas fases las mide el juego.
+ * <br><br>
+ * Recursos: <a href="https://gafferongames.com/post/fix_your_timestep/">Fix Your Timestep!</a>
+ */
+
+public class GameLoop {
+
+    private final Game game;
+    private final Clock clock;
+    // Tamanio del paso en nanosegundos
+    private final long step;
+    private final int maxUpdates;
+
+    private long lastTime;
+    private long accumulator;
+    private boolean started;
+
+    private long frames, updates, skipped;
+
+    private FrameProfiler profiler;
+
+    /**
+     * @param updatesPerSecond cantidad de pasos de simulacion por segundo.
+     */
+    public GameLoop(Game game, int updatesPerSecond) {
+        this(game, updatesPerSecond, 5, System::nanoTime);
+    }
+
+    /**
+     * @param updatesPerSecond cantidad de pasos de simulacion por segundo.
+     * @param maxUpdates       cantidad maxima de pasos por cuadro, el tiempo que no alcanza a simularse se descarta.
+     * @param clock            reloj en nanosegundos.
+     */
+    public GameLoop(Game game, int updatesPerSecond, int maxUpdates, Clock clock) {
+        if (updatesPerSecond <= 0) throw new IllegalArgumentException("La cantidad de pasos por segundo debe ser mayor a 0: " + updatesPerSecond);
+        if (maxUpdates <= 0) throw new IllegalArgumentException("La cantidad maxima de pasos por cuadro debe ser mayor a 0: " + maxUpdates);
+        this.game = game;
+        this.clock = clock;
+        this.step = 1_000_000_000L / updatesPerSecond;
+        this.maxUpdates = maxUpdates;
+    }
+
+    /**
+     * Ejecuta cuadros mientras el juego siga corriendo.
+     */
+    public void run() {
+        while (game.isRunning())
+            frame();
+    }
+
+    /**
+     * Ejecuta un cuadro: la lectura de la entrada, los pasos de simulacion que correspondan al tiempo transcurrido y un dibujo.
+     * El primer cuadro solo lee la entrada y dibuja, ya que todavia no paso tiempo.
+     */
+    public void frame() {
+        if (profiler != null) profiler.beginFrame();
+        long now = clock.nanoTime();
+        if (!started) {
+            lastTime = now;
+            started = true;
+        }
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        // La entrada se mide fuera de UPDATE para no contarla dos veces
+        if (profiler != null) profiler.begin(FrameProfiler.Metric.INPUT);
+        game.input();
+        if (profiler != null) profiler.end(FrameProfiler.Metric.INPUT);
+
+        int count = 0;
+        if (profiler != null) profiler.begin(FrameProfiler.Metric.UPDATE);
+        while (accumulator >= step && count < maxUpdates) {
+            game.update(getStepMillis());
+            accumulator -= step;
+            count++;
+        }
+        if (profiler != null) profiler.end(FrameProfiler.Metric.UPDATE);
+        // Si se alcanzo el maximo se descartan los pasos que faltan y se conserva solo la fraccion de paso
+        if (accumulator >= step) {
+            skipped += accumulator / step;
+            accumulator %= step;
+        }
+        updates += count;
+
+        game.render((float) accumulator / step);
+        frames++;
+        if (profiler != null) profiler.endFrame();
+    }
+
+    /**
+     * @param profiler perfilador de los cuadros, o null para no medirlos.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Devuelve el tamanio del paso en milisegundos, la misma unidad que recibe {@link Game#update(double)}.
+     */
+    public double getStepMillis() {
+        return step / 1_000_000.0;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Devuelve la cantidad de pasos que se descartaron por superar el maximo por cuadro.
+     */
+    public long getSkippedUpdates() {
+        return skipped;
+    }
+
+    /**
+     * Juego que ejecuta el bucle.
+     */
+    public interface Game {
+
+        boolean isRunning();
+
+        /**
+         * Lee la entrada una vez por cuadro, antes de los pasos de simulacion.
+         */
+        default void input() {
+        }
+
+        /**
+         * Avanza la simulacion un paso.
+         *
+         * @param delta tamanio del paso en milisegundos, siempre el mismo.
+         */
+        void update(double delta);
+
+        /**
+         * Dibuja el estado actual.
+         *
+         * @param alpha fraccion de paso (entre 0 y 1) transcurrida desde el ultimo update, para interpolar entre el estado
+         *              anterior y el actual.
+         */
+        void render(float alpha);
+
+    }
+
+    /**
+     * Fuente de tiempo en nanosegundos.
+     */
+    public interface Clock {
+
+        long nanoTime();
+
+    }
+
+}
\ No newline at end of file
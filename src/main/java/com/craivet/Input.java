@@ -12,6 +12,8 @@ import org.lwjgl.opengl.DisplayMode;
 
 import javax.swing.*;
 
+import com.craivet.rendered.InstancedQuads;
+
 import static com.craivet.Global.*;
 import static org.lwjgl.opengl.GL11.*;
 
@@ -32,6 +34,9 @@ public class Input {
     private static final int BOX_HEIGHT = 50;
     private static final int BOX_WIDHT = 50;
 
+    // Dibuja todas las cajas con una sola llamada
+    private InstancedQuads quads;
+
     public void start() {
 
         setUpDisplay();
@@ -40,6 +45,7 @@ public class Input {
         shapes.add(new Box(10, 10));
 
         setUpOpenGL();
+        quads = new InstancedQuads();
 
         while (!Display.isCloseRequested()) {
             render();
@@ -47,6 +53,7 @@ public class Input {
             Display.sync(60);
         }
 
+        quads.dispose();
         Display.destroy();
 
     }
@@ -74,8 +81,6 @@ public class Input {
 
         glClear(GL_COLOR_BUFFER_BIT);
 
-        System.out.println("x = " + Mouse.getX() + ", y = " + Mouse.getY());
-
         // Mientras se haya leido un evento del teclado
         while (Keyboard.next()) { // Keyboard.next() obtiene el proximo evento del teclado, capturando una sola pulsacion de tecla
             if (Keyboard.isKeyDown(Keyboard.KEY_C))
@@ -94,6 +99,7 @@ public class Input {
         }
 
         // Itera las cajas
+        quads.begin();
         for (final Box box : shapes) {
             // Si se selecciono la caja y si el cursor esta dentro de los limites de esta
             if (Mouse.isButtonDown(0) && box.isInBounds(Mouse.getX(), Mouse.getY())) box.selected = true;
@@ -101,9 +107,10 @@ public class Input {
             if (Mouse.isButtonDown(1)) box.selected = false;
             // Si la caja esta seleccionada
             if (box.selected) box.update(Mouse.getDX(), Mouse.getDY());
-            // Dibuja la caja
-            box.draw();
+            // Agrega la caja al lote
+            box.draw(quads);
         }
+        quads.end();
 
     }
 
@@ -136,19 +143,11 @@ public class Input {
             y += dy;
         }
 
-        void draw() {
-
-            glColor3f(colorRed, colorGreen, colorBlue);
-
-            // La mayoria de los dosificadores de sprites usan dos triangulos adyacentes para representar un sprite rectangular
-            glBegin(GL_QUADS);
-            // Conjuntos de vertices (puntos) que juntos forman una primitiva (triangulos), dando un cuadrado como resultado
-            glVertex2i(x, y); // Posicion del primer vertice x=0;y=0
-            glVertex2i(x + BOX_WIDHT, y); // Posicion del segundo vertice x=x+50;y=0
-            glVertex2i(x + BOX_WIDHT, y + BOX_HEIGHT); // Posicion del tercer vertice x=x+50;y=y+50
-            glVertex2i(x, y + BOX_HEIGHT); // Posicion del cuarto vertice x=0;y=y+50
-            glEnd();
-
+        void draw(InstancedQuads quads) {
+            /* Cada caja es una instancia del mismo quad con su posicion, tamanio y color, asi todas las cajas se dibujan con una
+             * sola llamada en lugar de un glBegin/glEnd por caja. */
+            quads.setColor(colorRed, colorGreen, colorBlue, 1);
+            quads.draw(x, y, BOX_WIDHT, BOX_HEIGHT);
         }
 
     }
@@ -0,0 +1,139 @@
+package com.craivet;
+
+import java.awt.Font;
+import java.util.Locale;
+
+import org.lwjgl.opengl.Display;
+import org.newdawn.slick.Color;
+import org.newdawn.slick.TrueTypeFont;
+import org.newdawn.slick.opengl.TextureImpl;
+
+import com.craivet.FrameProfiler.Metric;
+import com.craivet.FrameProfiler.Summary;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Dibuja encima de la escena el grafico de los ultimos tiempos de cuadro de un {@link FrameProfiler} y sus percentiles.
+ * <p>
+ * Las barras se dibujan en cada cuadro desde el buffer del perfilador copiado a un arreglo propio. El texto solo se vuelve a armar
+ * cuando el perfilador hace un reporte nuevo (una vez por segundo por defecto), asi dibujar el overlay no crea cadenas en cada
+ * cuadro. Guarda y restaura las matrices y el estado de OpenGL que cambia, de esta forma funciona sobre una escena 2D o 3D.
+ */
+
+public class ProfilerOverlay {
+
+    private static final int MARGIN = 8;
+    private static final int GRAPH_HEIGHT = 80;
+    // Milisegundos que ocupan todo el alto del grafico
+    private static final float GRAPH_MILLIS = 50;
+    // Lineas de referencia de 60 y 30 fps
+    private static final float[] REFERENCES = {1000f / 60, 1000f / 30};
+
+    private final FrameProfiler profiler;
+    private final TrueTypeFont font;
+    private final long[] frames;
+    private final String[] lines = new String[4];
+    private long reportCount = -1;
+    private boolean visible = true;
+
+    public ProfilerOverlay(FrameProfiler profiler) {
+        this.profiler = profiler;
+        font = new TrueTypeFont(new Font(Font.MONOSPACED, Font.PLAIN, 12), false);
+        // Una barra por pixel de ancho
+        frames = new long[Math.min(profiler.getCapacity(), 256)];
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void render() {
+        if (!visible) return;
+        if (reportCount != profiler.getReportCount()) updateText();
+
+        glPushAttrib(GL_ENABLE_BIT | GL_CURRENT_BIT | GL_COLOR_BUFFER_BIT);
+        glMatrixMode(GL_PROJECTION);
+        glPushMatrix();
+        glLoadIdentity();
+        // Origen arriba a la izquierda, como espera TrueTypeFont
+        glOrtho(0, Display.getWidth(), Display.getHeight(), 0, 1, -1);
+        glMatrixMode(GL_MODELVIEW);
+        glPushMatrix();
+        glLoadIdentity();
+
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_CULL_FACE);
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        TextureImpl.bindNone();
+
+        drawGraph();
+        drawText();
+
+        // TrueTypeFont recuerda la ultima textura que enlazo, se olvida para que la proxima vez la vuelva a enlazar
+        TextureImpl.bindNone();
+        glPopMatrix();
+        glMatrixMode(GL_PROJECTION);
+        glPopMatrix();
+        glMatrixMode(GL_MODELVIEW);
+        glPopAttrib();
+    }
+
+    private void drawGraph() {
+        int n = profiler.copyValues(Metric.FRAME, frames);
+        float bottom = MARGIN + GRAPH_HEIGHT, scale = GRAPH_HEIGHT / GRAPH_MILLIS;
+
+        glColor4f(0, 0, 0, 0.5f);
+        glRectf(MARGIN, MARGIN, MARGIN + frames.length, bottom);
+
+        glBegin(GL_LINES);
+        for (int i = 0; i < n; i++) {
+            float millis = frames[i] / 1e6f;
+            // Verde hasta 60 fps, amarillo hasta 30 fps y rojo despues
+            if (millis <= 1000f / 60) glColor4f(0.2f, 0.9f, 0.2f, 0.9f);
+            else if (millis <= 1000f / 30) glColor4f(0.9f, 0.9f, 0.2f, 0.9f);
+            else glColor4f(0.9f, 0.2f, 0.2f, 0.9f);
+            float x = MARGIN + frames.length - n + i + 0.5f;
+            glVertex2f(x, bottom);
+            glVertex2f(x, bottom - Math.min(millis, GRAPH_MILLIS) * scale);
+        }
+        glColor4f(1, 1, 1, 0.4f);
+        for (float millis : REFERENCES) {
+            glVertex2f(MARGIN, bottom - millis * scale);
+            glVertex2f(MARGIN + frames.length, bottom - millis * scale);
+        }
+        glEnd();
+    }
+
+    private void drawText() {
+        float y = MARGIN * 2 + GRAPH_HEIGHT;
+        for (String line : lines) {
+            if (line == null) continue;
+            font.drawString(MARGIN, y, line, Color.white);
+            y += font.getLineHeight();
+        }
+    }
+
+    private void updateText() {
+        reportCount = profiler.getReportCount();
+        Summary frame = profiler.summarize(Metric.FRAME);
+        lines[0] = String.format(Locale.ROOT, "cuadro p50 %.2f  p95 %.2f  p99 %.2f  max %.2f ms", frame.p50 / 1e6, frame.p95 / 1e6,
+                frame.p99 / 1e6, frame.max / 1e6);
+        lines[1] = String.format(Locale.ROOT, "entrada %.2f  update %.2f  render %.2f  swap %.2f ms (p95)",
+                p95Millis(Metric.INPUT), p95Millis(Metric.UPDATE), p95Millis(Metric.RENDER), p95Millis(Metric.SWAP));
+        lines[2] = String.format(Locale.ROOT, "llamadas GL %d  dibujos %d (p50)", profiler.summarize(Metric.GL_CALLS).p50,
+                profiler.summarize(Metric.DRAW_CALLS).p50);
+        Summary allocated = profiler.summarize(Metric.ALLOCATED_BYTES);
+        lines[3] = allocated.samples > 0 ? String.format(Locale.ROOT, "asignado por cuadro p50 %,d  max %,d bytes", allocated.p50, allocated.max) : null;
+    }
+
+    private double p95Millis(Metric phase) {
+        return profiler.summarize(phase).p95 / 1e6;
+    }
+
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.craivet;
 
+import java.nio.FloatBuffer;
+
 import javax.swing.*;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.input.Mouse;
@@ -11,14 +14,23 @@ import org.lwjgl.opengl.DisplayMode;
 import static org.lwjgl.opengl.GL11.*;
 import static com.craivet.Global.*;
 
+import com.craivet.geom.MatrixStack;
+
 /**
- * Muestra una aplicacion de desplazamiento lateral para juegos 2D usando glPushMatrix y glPopMatrix.
+ * Muestra una aplicacion de desplazamiento lateral para juegos 2D usando una pila de matrices.
+ * <p>
+ * La pila es un {@link MatrixStack} del lado de la CPU con las mismas operaciones que glPushMatrix y glPopMatrix; la matriz del
+ * tope se sube con una sola llamada a glLoadMatrix antes de dibujar.
  */
 
 public class SideScrollerDemo {
 
     private float translate_x;
 
+    private final MatrixStack stack = new MatrixStack();
+    // Matriz que se sube a OpenGL, se reutiliza en cada cuadro
+    private final FloatBuffer matrix = BufferUtils.createFloatBuffer(16);
+
     private void start() {
 
         setUpDisplay();
@@ -61,21 +73,16 @@ public class SideScrollerDemo {
         glClear(GL_COLOR_BUFFER_BIT);
 
         // Coloca otra matriz, un clon de la actual, en la pila de matrices
-        glPushMatrix();
+        stack.push();
 
         // Empuja la pantalla a la izquierda o hacia la derecha dependiendo de translate_x
-        glTranslatef(translate_x, 0, 0);
+        stack.translate(translate_x, 0, 0);
+        glLoadMatrix(stack.store(matrix));
 
         /* Si la barra espaciadora esta presionada y el mouse se encuentra dentro de los limites horizontales de la ventana,
          * entonces se aumenta/disminuye el translate_x por el movimiento dinamico X del mouse. */
         if (Keyboard.isKeyDown(Keyboard.KEY_SPACE) && Mouse.getX() >= 0 && Mouse.getX() < WIDTH) translate_x += Mouse.getDX();
 
-        // Recupera las coordenadas "verdaderas" del mouse
-        int mousex = Mouse.getX();
-        int mousey = 480 - Mouse.getY() - 1;
-
-        System.out.println("X:" + mousex + ", Y:" + mousey);
-
         // Hace un poco de representacion de OpenGL
         glBegin(GL_QUADS);
         glVertex2i(400, 400); // upper left
@@ -89,8 +96,9 @@ public class SideScrollerDemo {
         glVertex2i(200, 200);
         glEnd();
 
-        // Desecha las traducciones en la matriz
-        glPopMatrix();
+        // Desecha la traslacion de la pila y vuelve a subir el tope, OpenGL no ve el pop de la CPU
+        stack.pop();
+        glLoadMatrix(stack.store(matrix));
 
     }
 
@@ -0,0 +1,121 @@
+package com.craivet;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ejecuta una simulacion en pasos fijos en su propio hilo y publica su estado en un {@link TripleBuffer}.
+ * <p>
+ * El hilo de OpenGL queda solo para la entrada, el dibujo y el intercambio de buffers: una actualizacion larga no le hace perder
+ * un vsync y una espera larga en {@code Display.update()} no atrasa la simulacion. Los pasos se cuentan con un {@link GameLoop},
+ * con el mismo tope de pasos por vuelta; despues de publicar el hilo duerme hasta el proximo paso en lugar de girar.
+ * <p>
+ * La entrada se sigue leyendo en el hilo de OpenGL (LWJGL no permite otro) y se le pasa a la simulacion en campos volatiles.
+ */
+
+public class SimulationThread<S> {
+
+    private final Simulation<S> simulation;
+    private final TripleBuffer<S> buffer;
+    private final GameLoop loop;
+    // Tamanio del paso en nanosegundos
+    private final long step;
+
+    private volatile boolean running;
+    private Thread thread;
+    // Indica si hubo pasos desde la ultima publicacion
+    private boolean updated;
+
+    public SimulationThread(Simulation<S> simulation, TripleBuffer<S> buffer, int updatesPerSecond) {
+        this(simulation, buffer, updatesPerSecond, System::nanoTime);
+    }
+
+    public SimulationThread(Simulation<S> simulation, TripleBuffer<S> buffer, int updatesPerSecond, GameLoop.Clock clock) {
+        this.simulation = simulation;
+        this.buffer = buffer;
+        this.loop = new GameLoop(new Stepper(), updatesPerSecond, 5, clock);
+        this.step = 1_000_000_000L / updatesPerSecond;
+    }
+
+    /**
+     * Publica el estado inicial y arranca el hilo.
+     */
+    public void start() {
+        if (thread != null) throw new IllegalStateException("El hilo de simulacion ya se inicio");
+        simulation.write(buffer.getWriteBuffer());
+        buffer.publish();
+        running = true;
+        thread = new Thread(loop::run, "Simulacion");
+        // No impide que la aplicacion termine si no se llama a stop
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Detiene el hilo y espera a que termine el paso en curso.
+     */
+    public void stop() {
+        if (thread == null) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public long getStepNanos() {
+        return step;
+    }
+
+    public long getUpdates() {
+        return loop.getUpdates();
+    }
+
+    /**
+     * Simulacion que avanza en su propio hilo.
+     */
+    public interface Simulation<S> {
+
+        /**
+         * Avanza la simulacion un paso.
+         *
+         * @param delta tamanio del paso en milisegundos, siempre el mismo.
+         */
+        void update(double delta);
+
+        /**
+         * Copia el estado actual completo en la instancia que se va a publicar.
+         */
+        void write(S snapshot);
+
+    }
+
+    private class Stepper implements GameLoop.Game {
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public void update(double delta) {
+            simulation.update(delta);
+            updated = true;
+        }
+
+        @Override
+        public void render(float alpha) {
+            if (updated) {
+                simulation.write(buffer.getWriteBuffer());
+                buffer.publish();
+                updated = false;
+            }
+            // Duerme lo que falta para el proximo paso
+            LockSupport.parkNanos((long) ((1 - alpha) * step));
+        }
+
+    }
+
+}
\ No newline at end of file
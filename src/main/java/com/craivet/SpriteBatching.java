@@ -1,11 +1,16 @@
 package com.craivet;
 
+import java.io.IOException;
+import java.util.Objects;
+
 import org.lwjgl.LWJGLException;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
 import javax.swing.*;
 
+import com.craivet.rendered.SpriteBatch;
+
 import static com.craivet.Global.*;
 import static org.lwjgl.opengl.GL11.*;
 
@@ -64,7 +69,8 @@ import static org.lwjgl.opengl.GL11.*;
 
 public class SpriteBatching {
 
-    // SpriteBatch spriteBatch;
+    private SpriteBatch spriteBatch;
+    private Texture grass, brick;
 
     private void start() {
 
@@ -72,7 +78,7 @@ public class SpriteBatching {
         setUpOpenGL();
 
         while (!Display.isCloseRequested()) {
-            if (Display.wasResized()) resize(WIDTH, HEIGHT);
+            if (Display.wasResized()) resize(Display.getWidth(), Display.getHeight());
             render();
             Display.update();
             Display.sync(FPS);
@@ -96,29 +102,46 @@ public class SpriteBatching {
 
     public void setUpOpenGL() {
         // Crea un solo lote que usaremos en toda nuestra aplicacion
-        // spriteBatch = new SpriteBatch();
+        spriteBatch = new SpriteBatch();
 
-        glMatrixMode(GL_PROJECTION);
-        glLoadIdentity(); // Restablece cualquier matriz de proyeccion anterior
-        glOrtho(0, 640, 480, 0, 1, -1);
-        glMatrixMode(GL_MODELVIEW);
+        try {
+            grass = new Texture(Objects.requireNonNull(SpriteBatching.class.getClassLoader().getResource("textures/grass.png")));
+            brick = new Texture(Objects.requireNonNull(SpriteBatching.class.getClassLoader().getResource("textures/brick.png")));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Error de I/O", "Error", JOptionPane.ERROR_MESSAGE);
+            Display.destroy();
+            System.exit(1);
+        }
+
+        // Configura la proyeccion ortografica con origen en la esquina superior izquierda
+        spriteBatch.resize(WIDTH, HEIGHT);
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
     }
 
     public void render() {
-        // Preparar el lote para renderizar
-        // spriteBatch.begin();
+        glClear(GL_COLOR_BUFFER_BIT);
 
-        // Dibuja todos los sprites
-        // spriteBatch.draw(mySprite1, x, y);
-        // spriteBatch.draw(mySprite2, x, y);
+        // Preparar el lote para renderizar
+        spriteBatch.begin();
+
+        /* Dibuja todos los sprites. Se agrupan por textura para que cada una genere una sola llamada de dibujo (un atlas de
+         * texturas reduciria esto a una sola llamada). */
+        for (int x = 0; x < WIDTH; x += 32)
+            for (int y = HEIGHT / 2; y < HEIGHT; y += 32)
+                spriteBatch.draw(brick, x, y, 32, 32);
+        spriteBatch.setColor(1, 1, 1, 0.5f); // Grama con 50% de transparencia
+        for (int x = 0; x < WIDTH; x += 32)
+            spriteBatch.draw(grass, x, HEIGHT / 2f - 32, 32, 32);
+        spriteBatch.setColor(1, 1, 1, 1);
 
         // Finaliza el lote, vaciar los datos a la GPU
-        // spriteBatch.end();
+        spriteBatch.end();
     }
 
     private void resize(int width, int height) {
         // Notificar al sprite batch cada vez que se cambie el tamanio la pantalla
-        // spriteBatch.resize(width, height);
+        spriteBatch.resize(width, height);
     }
 
     public static void main(String[] args) {
@@ -61,6 +61,19 @@ public class Texture {
     public final int width;
     public final int height;
 
+    /**
+     * Envuelve una textura que ya existe en GL sin volver a subir los pixeles.
+     *
+     * @param id     identificador de la textura en GL.
+     * @param width  ancho de la textura en pixeles.
+     * @param height alto de la textura en pixeles.
+     */
+    public Texture(int id, int width, int height) {
+        this.id = id;
+        this.width = width;
+        this.height = height;
+    }
+
     public Texture(URL url) throws IOException {
         /* Para los juegos de estilo pixel-art, generalmente la constante GL_NEAREST es adecuada para este caso, ya que conduce a
          * una escala de borde duro sin desenfoque. */
@@ -97,32 +110,67 @@ public class Texture {
             // Voltea el buffer en "modo lectura" para OpenGL
             buffer.flip();
 
-            // 2) Habilita el texturizado y genera una identificacion unica para que GL sepa que textura enlazar
-            glEnable(target);
-            id = glGenTextures();
+            id = upload(buffer, width, height, filter, wrap);
 
-            // 3) Enlaza la textura
-            glBindTexture(target, id); // Enlaza la textura pasandole el texturizado y el ID de cada textura para que GL sepa que textura enlazar
+        }
+    }
 
-            /* Usa una alineacion de 1 para estar seguro. Esto le dice a OpenGL como descomprimir los bytes RGBA que
-             * especificaremos. */
-            glPixelStorei(GL_UNPACK_ALIGNMENT, 1); // Configura el modo de desempaquetar
+    /**
+     * Crea una textura a partir de pixeles RGBA ya decodificados (por ejemplo, la pagina de un atlas).
+     *
+     * @param pixels buffer directo con los bytes RGBA listo para leer.
+     * @param width  ancho en pixeles.
+     * @param height alto en pixeles.
+     * @param filter filtro de escalado (GL_NEAREST o GL_LINEAR).
+     * @param wrap   modo de ajuste (GL_CLAMP_TO_EDGE o GL_REPEAT).
+     */
+    public Texture(ByteBuffer pixels, int width, int height, int filter, int wrap) {
+        this.width = width;
+        this.height = height;
+        id = upload(pixels, width, height, filter, wrap);
+    }
 
-            // 4) Configura los parametros
-            // Configurar el filtrado, es decir, como OpenGL interpolara los pixeles al escalar hacia arriba o hacia abajo
-            glTexParameteri(target, GL_TEXTURE_MIN_FILTER, filter);
-            glTexParameteri(target, GL_TEXTURE_MAG_FILTER, filter);
-            // Configura el modo de ajuste, es decir, como OpenGL manejara los pixeles fuera del rango esperado
-            glTexParameteri(target, GL_TEXTURE_WRAP_S, wrap);
-            glTexParameteri(target, GL_TEXTURE_WRAP_T, wrap);
+    private int upload(ByteBuffer pixels, int width, int height, int filter, int wrap) {
+        // 2) Habilita el texturizado y genera una identificacion unica para que GL sepa que textura enlazar
+        glEnable(target);
+        int id = glGenTextures();
 
-            // 5) Sube los bytes RGBA a OpenGL
-            glTexImage2D(target, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
+        // 3) Enlaza la textura
+        glBindTexture(target, id); // Enlaza la textura pasandole el texturizado y el ID de cada textura para que GL sepa que textura enlazar
 
-            // Puede consultar el ancho y alto maximo de textura con lo siguiente
-            // int maxSize = glGetInteger(GL_MAX_TEXTURE_SIZE);
+        /* Usa una alineacion de 1 para estar seguro. Esto le dice a OpenGL como descomprimir los bytes RGBA que
+         * especificaremos. */
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1); // Configura el modo de desempaquetar
 
-        }
+        // 4) Configura los parametros
+        // Configurar el filtrado, es decir, como OpenGL interpolara los pixeles al escalar hacia arriba o hacia abajo
+        glTexParameteri(target, GL_TEXTURE_MIN_FILTER, filter);
+        glTexParameteri(target, GL_TEXTURE_MAG_FILTER, filter);
+        // Configura el modo de ajuste, es decir, como OpenGL manejara los pixeles fuera del rango esperado
+        glTexParameteri(target, GL_TEXTURE_WRAP_S, wrap);
+        glTexParameteri(target, GL_TEXTURE_WRAP_T, wrap);
+
+        // 5) Sube los bytes RGBA a OpenGL
+        glTexImage2D(target, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+
+        // Puede consultar el ancho y alto maximo de textura con lo siguiente
+        // int maxSize = glGetInteger(GL_MAX_TEXTURE_SIZE);
+
+        return id;
+    }
+
+    /**
+     * Enlaza la textura para que las siguientes llamadas de dibujo la usen.
+     */
+    public void bind() {
+        glBindTexture(target, id);
+    }
+
+    /**
+     * Elimina la textura de la GPU.
+     */
+    public void dispose() {
+        glDeleteTextures(id);
     }
 
 }
\ No newline at end of file
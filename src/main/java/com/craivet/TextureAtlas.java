@@ -0,0 +1,71 @@
+package com.craivet;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+
+/**
+ * Atlas de texturas (tambien conocido como hoja de sprites): una sola textura con muchas subimagenes.
+ * <p>
+ * Dibujar todos los sprites desde la misma textura permite que el {@link com.craivet.rendered.SpriteBatch} los envie en una sola
+ * llamada de dibujo, ya que nunca tiene que vaciarse para enlazar otra textura.
+ */
+
+public class TextureAtlas {
+
+    private final Texture texture;
+    private final Map<String, TextureRegion> regions = new HashMap<>();
+
+    /**
+     * Sube la pagina a la GPU y crea una region por cada imagen empaquetada.
+     */
+    public TextureAtlas(TexturePacker.Page page) {
+        this(new Texture(page.pixels, page.width, page.height, GL_NEAREST, GL_CLAMP_TO_EDGE), page);
+    }
+
+    /**
+     * Crea las regiones de una pagina que ya esta en la GPU.
+     */
+    public TextureAtlas(Texture texture, TexturePacker.Page page) {
+        this.texture = texture;
+        page.rects.forEach((name, rect) -> regions.put(name, new TextureRegion(texture, rect.x, rect.y, rect.width, rect.height)));
+    }
+
+    /**
+     * Empaqueta las imagenes PNG del classpath en un atlas. Cada region se nombra con la ubicacion del recurso.
+     *
+     * @param resources ubicaciones de las imagenes, por ejemplo "textures/grass.png".
+     */
+    public static TextureAtlas load(String... resources) throws IOException {
+        TexturePacker packer = new TexturePacker();
+        for (String resource : resources) {
+            try (InputStream input = TextureAtlas.class.getClassLoader().getResourceAsStream(resource)) {
+                if (input == null) throw new FileNotFoundException(resource);
+                packer.add(resource, input);
+            }
+        }
+        return new TextureAtlas(packer.pack());
+    }
+
+    /**
+     * Devuelve la region con el nombre especificado o null si no existe.
+     */
+    public TextureRegion findRegion(String name) {
+        return regions.get(name);
+    }
+
+    public Map<String, TextureRegion> getRegions() {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+}
\ No newline at end of file
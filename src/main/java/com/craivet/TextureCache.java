@@ -0,0 +1,190 @@
+package com.craivet;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de texturas compartidas, identificadas por la ubicacion del recurso (por ejemplo "textures/grass.png").
+ * <p>
+ * Decodificar un PNG y subirlo a la GPU es caro, asi que cada imagen se sube una sola vez y todos los que la pidan reciben la
+ * misma {@link Texture}. Cada {@link #acquire(String)} incrementa un contador de referencias que se decrementa con
+ * {@link #release(String)}. Las texturas sin referencias no se eliminan enseguida: quedan en la cache por si se vuelven a pedir
+ * y solo se eliminan, de la menos usada recientemente a la mas usada (LRU), cuando la memoria de GPU ocupada supera el limite.
+ * <p>
+ * La carga y eliminacion en la GPU se delega en un {@link Uploader}, de esta forma la cache se puede usar sin contexto GL y
+ * observar los aciertos, fallos y desalojos con {@link #getHits()}, {@link #getMisses()} y {@link #getEvictions()}.
+ */
+
+public class TextureCache {
+
+    // 64 MB de texturas RGBA alcanzan para 256 texturas de 512x512
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static TextureCache instance;
+
+    private final Uploader uploader;
+    private final long maxBytes;
+    // Orden de acceso: la primera entrada es la menos usada recientemente
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private int hits, misses, evictions;
+
+    public TextureCache() {
+        this(new GLUploader(), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param uploader encargado de crear y eliminar las texturas en la GPU.
+     * @param maxBytes bytes de GPU que pueden ocupar las texturas antes de desalojar las que no tienen referencias.
+     */
+    public TextureCache(Uploader uploader, long maxBytes) {
+        this.uploader = uploader;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Devuelve la cache compartida por toda la aplicacion.
+     */
+    public static TextureCache getInstance() {
+        if (instance == null) instance = new TextureCache();
+        return instance;
+    }
+
+    /**
+     * Obtiene la textura del recurso, subiendola a la GPU solo si no esta en la cache.
+     */
+    public Texture acquire(String path) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry != null) hits++;
+        else {
+            misses++;
+            entry = new Entry(uploader.upload(path));
+            entries.put(path, entry);
+            bytes += entry.bytes;
+        }
+        entry.references++;
+        // Puede que la nueva textura haya superado el limite, pero nunca se desaloja una textura referenciada
+        evict();
+        return entry.texture;
+    }
+
+    /**
+     * Libera una referencia a la textura del recurso. Cuando no quedan referencias, la textura pasa a ser candidata a desalojo.
+     */
+    public void release(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.references == 0)
+            throw new IllegalStateException("La textura " + path + " no tiene referencias para liberar");
+        entry.references--;
+        evict();
+    }
+
+    /**
+     * Elimina de la GPU todas las texturas sin referencias.
+     */
+    public void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) remove(iterator, entry);
+        }
+    }
+
+    /**
+     * Elimina todas las texturas de la GPU, tengan o no referencias.
+     */
+    public void dispose() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext())
+            remove(iterator, iterator.next());
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                remove(iterator, entry);
+                evictions++;
+            }
+        }
+    }
+
+    private void remove(Iterator<Entry> iterator, Entry entry) {
+        iterator.remove();
+        uploader.delete(entry.texture);
+        bytes -= entry.bytes;
+    }
+
+    public boolean contains(String path) {
+        return entries.containsKey(path);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    private static class Entry {
+        final Texture texture;
+        // Memoria aproximada en la GPU: 4 bytes por pixel (RGBA)
+        final long bytes;
+        int references;
+
+        Entry(Texture texture) {
+            this.texture = texture;
+            bytes = (long) texture.width * texture.height * 4;
+        }
+    }
+
+    /**
+     * Crea y elimina texturas en la GPU.
+     */
+    public interface Uploader {
+
+        Texture upload(String path) throws IOException;
+
+        void delete(Texture texture);
+
+    }
+
+    /**
+     * Decodifica los PNG del classpath y los sube a OpenGL.
+     */
+    public static class GLUploader implements Uploader {
+
+        @Override
+        public Texture upload(String path) throws IOException {
+            URL url = TextureCache.class.getClassLoader().getResource(path);
+            if (url == null) throw new FileNotFoundException(path);
+            return new Texture(url);
+        }
+
+        @Override
+        public void delete(Texture texture) {
+            texture.dispose();
+        }
+
+    }
+
+}
\ No newline at end of file
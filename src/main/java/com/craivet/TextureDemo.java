@@ -1,7 +1,6 @@
 package com.craivet;
 
 import java.io.*;
-import java.util.Objects;
 
 import javax.swing.JOptionPane;
 
@@ -9,9 +8,6 @@ import org.lwjgl.LWJGLException;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
-
 import static org.lwjgl.opengl.GL11.*;
 import static com.craivet.Global.*;
 
@@ -98,6 +94,7 @@ public class TextureDemo {
             Display.sync(FPS);
         }
 
+        TextureCache.getInstance().dispose();
         Display.destroy();
 
     }
@@ -150,7 +147,8 @@ public class TextureDemo {
 
     private Texture loadTexture() {
         try {
-            return TextureLoader.getTexture("PNG", Objects.requireNonNull(TextureDemo.class.getClassLoader().getResourceAsStream("textures/" + "grass" + ".png")));
+            // La cache decodifica y sube la imagen solo la primera vez que se pide
+            return TextureCache.getInstance().acquire("textures/" + "grass" + ".png");
         } catch (FileNotFoundException e) {
             JOptionPane.showMessageDialog(null, "No se pudo encontrar la imagen", "Error", JOptionPane.ERROR_MESSAGE);
         } catch (IOException e) {
@@ -0,0 +1,248 @@
+package com.craivet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.lwjgl.BufferUtils;
+
+import de.matthiasmann.twl.utils.PNGDecoder;
+
+/**
+ * Empaqueta varias imagenes RGBA en una sola pagina (atlas de texturas) usando el algoritmo de estantes (shelf packing).
+ * <p>
+ * Las imagenes se ordenan por alto y se colocan de izquierda a derecha en filas (estantes); cuando una imagen no entra en el
+ * ancho de la pagina se abre un nuevo estante debajo del mas alto de la fila anterior. Si las imagenes no entran, la pagina
+ * duplica su ancho o su alto (siempre potencias de 2) hasta alcanzar el tamanio maximo.
+ * <p>
+ * Alrededor de cada imagen se deja un relleno (padding) que se completa repitiendo los pixeles del borde. Sin este relleno, el
+ * filtrado de texturas y los errores de redondeo en las coordenadas de textura muestrean pixeles de las imagenes vecinas y
+ * aparecen lineas de otro color en los bordes de los sprites (texture bleeding).
+ * <p>
+ * Todo el proceso ocurre en la CPU; la pagina resultante se sube a la GPU con {@link TextureAtlas}.
+ */
+
+public class TexturePacker {
+
+    // Bytes por pixel (RGBA)
+    private static final int BPP = 4;
+
+    private final int padding;
+    private final int maxSize;
+    private final List<Image> images = new ArrayList<>();
+    // Nombres de las imagenes agregadas, cada uno identifica una region de la pagina
+    private final Set<String> names = new HashSet<>();
+
+    public TexturePacker() {
+        this(2, 2048);
+    }
+
+    /**
+     * @param padding pixeles de relleno alrededor de cada imagen.
+     * @param maxSize ancho y alto maximo de la pagina.
+     */
+    public TexturePacker(int padding, int maxSize) {
+        this.padding = padding;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Agrega una imagen con pixeles RGBA ya decodificados, leidos desde la posicion 0 del buffer.
+     *
+     * @throws IllegalArgumentException si ya se agrego una imagen con el mismo nombre.
+     */
+    public TexturePacker add(String name, int width, int height, ByteBuffer pixels) {
+        checkName(name);
+        if (pixels.limit() < width * height * BPP)
+            throw new IllegalArgumentException("El buffer de " + name + " no contiene " + width + "x" + height + " pixeles RGBA");
+        images.add(new Image(name, width, height, pixels));
+        names.add(name);
+        return this;
+    }
+
+    /**
+     * Decodifica una imagen PNG y la agrega al empaquetador.
+     *
+     * @throws IllegalArgumentException si ya se agrego una imagen con el mismo nombre.
+     */
+    public TexturePacker add(String name, InputStream png) throws IOException {
+        // Antes de decodificar, para no hacerlo en vano
+        checkName(name);
+        PNGDecoder decoder = new PNGDecoder(png);
+        int width = decoder.getWidth();
+        int height = decoder.getHeight();
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * BPP);
+        decoder.decode(pixels, width * BPP, PNGDecoder.Format.RGBA);
+        pixels.flip();
+        return add(name, width, height, pixels);
+    }
+
+    /**
+     * Rechaza los nombres repetidos: la segunda imagen reemplazaria a la primera en {@link Page#rects}, pero las dos seguirian
+     * ocupando lugar en la pagina.
+     */
+    private void checkName(String name) {
+        if (names.contains(name)) throw new IllegalArgumentException("Ya se agrego una imagen con el nombre " + name);
+    }
+
+    /**
+     * Empaqueta todas las imagenes agregadas en una sola pagina.
+     *
+     * @throws IllegalStateException si las imagenes no entran en una pagina de maxSize x maxSize.
+     */
+    public Page pack() {
+
+        // Las imagenes mas altas primero, asi los estantes desperdician menos espacio
+        List<Image> sorted = new ArrayList<>(images);
+        sorted.sort(Comparator.comparingInt((Image image) -> image.height).thenComparingInt(image -> image.width).reversed());
+
+        // Comienza con la menor potencia de 2 que podria contener el area total y el ancho de la imagen mas ancha
+        int area = 0, widest = 1;
+        for (Image image : sorted) {
+            area += (image.width + padding * 2) * (image.height + padding * 2);
+            widest = Math.max(widest, image.width + padding * 2);
+        }
+        int width = nextPowerOfTwo(Math.max(widest, (int) Math.ceil(Math.sqrt(area))));
+        int height = width;
+
+        Map<String, Rect> rects;
+        // La estimacion inicial tambien puede superar el maximo (una imagen mas ancha que la pagina)
+        while (width > maxSize || height > maxSize || (rects = layout(sorted, width, height)) == null) {
+            if (width > maxSize || height > maxSize)
+                throw new IllegalStateException("Las imagenes no entran en una pagina de " + maxSize + "x" + maxSize);
+            if (width <= height) width *= 2;
+            else height *= 2;
+        }
+
+        ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * BPP);
+        for (Image image : sorted)
+            blit(image, rects.get(image.name), pixels, width);
+
+        return new Page(width, height, pixels, rects);
+    }
+
+    /**
+     * Ubica las imagenes en estantes dentro de una pagina de width x height.
+     *
+     * @return la posicion de cada imagen (sin el relleno) o null si no entran.
+     */
+    private Map<String, Rect> layout(List<Image> sorted, int width, int height) {
+        Map<String, Rect> rects = new LinkedHashMap<>();
+        int x = 0, y = 0, shelfHeight = 0;
+        for (Image image : sorted) {
+            int cellWidth = image.width + padding * 2;
+            int cellHeight = image.height + padding * 2;
+            if (cellWidth > width) return null;
+            // Abre un nuevo estante si la imagen no entra en el actual
+            if (x + cellWidth > width) {
+                y += shelfHeight;
+                x = 0;
+                shelfHeight = 0;
+            }
+            if (y + cellHeight > height) return null;
+            rects.put(image.name, new Rect(x + padding, y + padding, image.width, image.height));
+            x += cellWidth;
+            shelfHeight = Math.max(shelfHeight, cellHeight);
+        }
+        return rects;
+    }
+
+    /**
+     * Copia la imagen en la pagina y extiende los pixeles del borde sobre el relleno.
+     */
+    private void blit(Image image, Rect rect, ByteBuffer page, int pageWidth) {
+        for (int py = -padding; py < image.height + padding; py++) {
+            // Los pixeles fuera de la imagen toman el color del borde mas cercano
+            int sy = Math.min(Math.max(py, 0), image.height - 1);
+            for (int px = -padding; px < image.width + padding; px++) {
+                int sx = Math.min(Math.max(px, 0), image.width - 1);
+                int src = (sy * image.width + sx) * BPP;
+                int dst = ((rect.y + py) * pageWidth + rect.x + px) * BPP;
+                for (int i = 0; i < BPP; i++)
+                    page.put(dst + i, image.pixels.get(src + i));
+            }
+        }
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int pot = 1;
+        while (pot < value) pot <<= 1;
+        return pot;
+    }
+
+    private static class Image {
+        final String name;
+        final int width, height;
+        final ByteBuffer pixels;
+
+        Image(String name, int width, int height, ByteBuffer pixels) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * Posicion y tamanio en pixeles de una imagen dentro de la pagina.
+     */
+    public static class Rect {
+        public final int x, y, width, height;
+
+        public Rect(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + x + ", " + y + ", " + width + ", " + height + ")";
+        }
+    }
+
+    /**
+     * Pagina RGBA con todas las imagenes empaquetadas.
+     */
+    public static class Page {
+        public final int width, height;
+        public final ByteBuffer pixels;
+        public final Map<String, Rect> rects;
+
+        Page(int width, int height, ByteBuffer pixels, Map<String, Rect> rects) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.rects = rects;
+        }
+    }
+
+    /**
+     * Empaqueta los PNG de un directorio (por defecto las texturas del proyecto) y muestra la ubicacion de cada uno.
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "src/main/resources/textures");
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".png"));
+        if (files == null) throw new IOException("No se pudo leer el directorio " + dir);
+        TexturePacker packer = new TexturePacker();
+        for (File file : files) {
+            try (InputStream input = new FileInputStream(file)) {
+                packer.add("textures/" + file.getName(), input);
+            }
+        }
+        Page page = packer.pack();
+        System.out.println("Pagina de " + page.width + "x" + page.height);
+        page.rects.forEach((name, rect) -> System.out.println(name + " " + rect));
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.craivet;
+
+/**
+ * Subimagen de una textura especificada en pixeles por su posicion superior izquierda (x, y) y su tamanio (ancho, alto).
+ * <p>
+ * Las coordenadas de textura normalizadas (u, v, u2, v2) se calculan una sola vez a partir de las dimensiones de la textura,
+ * asi que no hace falta preocuparse por calcularlas al dibujar:
+ * <pre>{@code
+ * region = new TextureRegion(texture, 64, 64, 64, 64);
+ * spriteBatch.draw(region, x, y);
+ * }</pre>
+ */
+
+public class TextureRegion {
+
+    public final Texture texture;
+    public final int x, y, width, height;
+    public final float u, v, u2, v2;
+
+    /**
+     * Crea una region que cubre toda la textura.
+     */
+    public TextureRegion(Texture texture) {
+        this(texture, 0, 0, texture.width, texture.height);
+    }
+
+    public TextureRegion(Texture texture, int x, int y, int width, int height) {
+        this.texture = texture;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        // Convierte los pixeles al rango 0.0 - 1.0 que espera OpenGL
+        u = (float) x / texture.width;
+        v = (float) y / texture.height;
+        u2 = (float) (x + width) / texture.width;
+        v2 = (float) (y + height) / texture.height;
+    }
+
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.craivet;
 
+import java.nio.FloatBuffer;
+
 import javax.swing.*;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
@@ -12,7 +15,10 @@ import static org.lwjgl.util.glu.GLU.gluPerspective;
 
 import static com.craivet.Global.*;
 
-import java.util.Random;
+import com.craivet.geom.MatrixStack;
+import com.craivet.rendered.ParticleSimulation;
+import com.craivet.rendered.ParticleStore;
+import com.craivet.rendered.PointClusters;
 
 /**
  * <h2>Introduccion a la programacion de graficos por computadora</h2>
@@ -89,10 +95,21 @@ import java.util.Random;
 
 public class ThreeDeeDemo {
 
-    private Point[] points;
+    private ParticleStore points;
+    private ParticleSimulation simulation;
 
     // Velocidad a la que viaja la camara
     private float speed;
+    // Distancia que avanzo la camara, la matriz de modelo-vista se arma con ella en cada cuadro
+    private float distance;
+
+    private final MatrixStack modelView = new MatrixStack();
+    private final FloatBuffer matrix = BufferUtils.createFloatBuffer(16);
+
+    // Bloques de puntos que se descartan si quedan fuera del frustum
+    private PointClusters clusters;
+    private final Frustum frustum = new Frustum();
+    private int[] first, count;
 
     private void start() {
 
@@ -139,6 +156,7 @@ public class ThreeDeeDemo {
         // +y esta en la cima
         // +z es para la camara
         gluPerspective((float) 60, (float) WIDTH / HEIGHT, 0.001f, 100);
+        frustum.setPerspective(60, (float) WIDTH / HEIGHT, 0.001f, 100);
 
         glMatrixMode(GL_MODELVIEW);
 
@@ -148,33 +166,56 @@ public class ThreeDeeDemo {
     }
 
     private void setUpEntities() {
-        // Crea un array de Point
-        points = new Point[1000];
-        Random random = new Random();
+        // Crea el almacen de 1000 puntos
+        points = new ParticleStore(1000);
+        simulation = new ParticleSimulation(points);
+        simulation.setBounds(-50, -50, -200, 50, 50, 0);
 
         // Crea un punto con:
         // x aleatoria entre -50 y +50
         // y aleatoria entre -50 y +50
         // z aleatoria entre 0 y -200
-        for (int i = 0; i < points.length; i++)
-            points[i] = new Point((random.nextFloat() - 0.5f) * 100f, (random.nextFloat() - 0.5f) * 100f, random.nextInt(200) - 200);
+        // y una velocidad aleatoria pequenia en cada eje
+        simulation.generate(System.nanoTime(), (random, p) -> {
+            p[0] = (float) (random.nextDouble() - 0.5) * 100f;
+            p[1] = (float) (random.nextDouble() - 0.5) * 100f;
+            p[2] = random.nextInt(200) - 200;
+            p[3] = (float) (random.nextDouble() - 0.5) * 0.1f;
+            p[4] = (float) (random.nextDouble() - 0.5) * 0.1f;
+            p[5] = (float) (random.nextDouble() - 0.5) * 0.1f;
+        });
+
+        clusters = new PointClusters(simulation, 16);
+        first = new int[clusters.getClusterCount()];
+        count = new int[clusters.getClusterCount()];
 
     }
 
     private void update() {
+        // Mueve los puntos un cuadro (la velocidad esta en unidades por cuadro) y ajusta las cajas de los bloques
+        simulation.update(1);
+        clusters.updateBounds();
     }
 
     private void render() {
 
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
-        // Empuja la pantalla hacia adentro a la velocidad especificada
-        glTranslatef(0, 0, speed);
+        /* Empuja la pantalla hacia adentro a la velocidad especificada. La matriz se vuelve a armar desde la identidad en lugar de
+         * acumular un glTranslatef por cuadro, que arrastra el error de redondeo de cada suma. */
+        distance += speed;
+        modelView.reset().translate(0, 0, distance);
+        glLoadMatrix(modelView.store(matrix));
+
+        // Empujar el mundo hacia +z es lo mismo que mover la camara hacia -z
+        frustum.setPosition(0, 0, -distance);
+        int ranges = clusters.cull(frustum, first, count);
 
         glBegin(GL_POINTS);
-        // Itera cada punto y lo dibuja en las coordenas aleatorias
-        for (Point point : points)
-            glVertex3f(point.x, point.y, point.z);
+        // Itera los puntos de los bloques visibles y los dibuja en las coordenas aleatorias
+        for (int r = 0; r < ranges; r++)
+            for (int i = first[r]; i < first[r] + count[r]; i++)
+                glVertex3f(points.getX(i), points.getY(i), points.getZ(i));
         glEnd();
 
     }
@@ -187,22 +228,11 @@ public class ThreeDeeDemo {
             // Restablece la velocidad a cero y restablece la posicion
             if (Keyboard.isKeyDown(Keyboard.KEY_C)) {
                 speed = 0;
-                glLoadIdentity();
+                distance = 0;
             }
         }
     }
 
-    private static class Point {
-        final float x;
-        final float y;
-        final float z;
-        public Point(float x, float y, float z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
-    }
-
     public static void main(String[] args) {
         new ThreeDeeDemo().start();
     }
@@ -0,0 +1,74 @@
+package com.craivet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pasa el estado de un cuadro de un hilo que escribe (la simulacion) a un hilo que lee (OpenGL) sin bloqueos.
+ * <p>
+ * Hay tres instancias del estado: la que escribe el productor, la que lee el consumidor y la ultima publicada. Al publicar, el
+ * productor intercambia la suya por la publicada; al leer, el consumidor intercambia la suya por la publicada si hay una nueva.
+ * Ninguno espera al otro: si la simulacion publica dos veces entre dos cuadros el cuadro ve la ultima, y si el cuadro se dibuja
+ * dos veces sin publicaciones nuevas vuelve a ver la misma. Las instancias se reutilizan, asi que el productor tiene que
+ * escribir el estado completo en cada publicacion.
+ * <p>
+ * El intercambio es un solo {@link AtomicInteger}: los dos bits bajos guardan el indice de la instancia publicada y el tercero
+ * indica si todavia no la leyo el consumidor. Solo puede haber un hilo productor y un hilo consumidor.
+ */
+
+public class TripleBuffer<T> {
+
+    // Bit que indica que la instancia publicada es nueva para el consumidor
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger published = new AtomicInteger(1);
+    // Solo los usa el productor
+    private int write;
+    // Solo los usa el consumidor
+    private int read = 2;
+
+    /**
+     * @param factory crea cada una de las tres instancias.
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++)
+            buffers[i] = factory.get();
+    }
+
+    /**
+     * Devuelve la instancia que puede escribir el productor hasta el proximo {@link #publish()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[write];
+    }
+
+    /**
+     * Publica la instancia escrita y le da al productor otra para el proximo estado.
+     */
+    public void publish() {
+        write = published.getAndSet(write | FRESH) & INDEX;
+    }
+
+    /**
+     * Toma la ultima instancia publicada si el consumidor todavia no la tiene.
+     *
+     * @return true si cambio la instancia de lectura.
+     */
+    public boolean swap() {
+        if ((published.get() & FRESH) == 0) return false;
+        read = published.getAndSet(read) & INDEX;
+        return true;
+    }
+
+    /**
+     * Devuelve la instancia que puede leer el consumidor hasta el proximo {@link #swap()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T getReadBuffer() {
+        return (T) buffers[read];
+    }
+
+}
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.craivet.game.entities;
 
 import java.awt.Rectangle;
 
+import com.craivet.rendered.InstancedQuads;
+
 /**
  * Clase puente para evitar sobreescribir todos los metodos de la interfaz Entity.
  */
@@ -21,6 +23,14 @@ public abstract class AbstractEntity implements Entity {
         this.height = height;
     }
 
+    /**
+     * Agrega la caja de la entidad como un rectangulo sin textura con el color actual de las instancias, en lugar de dibujarla
+     * con su propia llamada.
+     */
+    public void draw(InstancedQuads quads) {
+        quads.draw((float) x, (float) y, (float) width, (float) height);
+    }
+
     @Override
     public void setLocation(double x, double y) {
         this.x = x;
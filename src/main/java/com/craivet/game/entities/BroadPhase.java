@@ -0,0 +1,239 @@
+package com.craivet.game.entities;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Fase amplia de colisiones: encuentra los pares de entidades cuyas cajas se superponen sin comparar cada entidad con todas las
+ * demas.
+ * <p>
+ * Con {@link Mode#SPATIAL_HASH} cada entidad se agrega a las celdas de una grilla uniforme que toca su caja y solo se comparan
+ * las entidades de la misma celda; las celdas se guardan en una tabla hash, asi el mundo no tiene limites. Un par que comparte
+ * varias celdas se informa una sola vez, en la celda que contiene la esquina superior izquierda de la superposicion. El costo
+ * crece de forma lineal mientras el tamanio de celda sea parecido al de las entidades.
+ * <p>
+ * Con {@link Mode#SWEEP_AND_PRUNE} las entidades se ordenan por su x minima y cada una se compara solo con las siguientes que
+ * empiezan antes de que termine ella. No depende de un tamanio de celda, pero se degrada si muchas entidades se superponen en x
+ * (por ejemplo en una columna).
+ * <p>
+ * Los pares se entregan a un {@link PairHandler}, que hace la fase estrecha (por ejemplo {@link Entity#intersects(Entity)}). Los
+ * arreglos de trabajo crecen con la cantidad de entidades y se reutilizan, por lo que una llamada no crea objetos una vez que
+ * alcanzaron su tamanio.
+ */
+
+public class BroadPhase {
+
+    public enum Mode {
+        SPATIAL_HASH,
+        SWEEP_AND_PRUNE
+    }
+
+    /**
+     * Recibe cada par candidato una sola vez.
+     */
+    public interface PairHandler {
+
+        void pair(Entity a, Entity b);
+
+    }
+
+    private Mode mode;
+    private final double cellSize;
+
+    private Entity[] entities = new Entity[0];
+    private double[] minX = new double[0], minY = new double[0], maxX = new double[0], maxY = new double[0];
+
+    /* Spatial hash: las entradas (entidad, celda) ordenadas por bucket con un conteo, cellStart[b] es la primera entrada del
+     * bucket b. */
+    private int[] cellStart = new int[0];
+    private int[] entryEntity = new int[0], entryX = new int[0], entryY = new int[0];
+    private int[] entryBucket = new int[0];
+
+    // Sweep and prune: x minima en los 32 bits altos (ordenable como entero) e indice de la entidad en los bajos
+    private long[] sorted = new long[0];
+
+    /**
+     * @param cellSize lado de las celdas del spatial hash, conviene que sea parecido al tamanio de las entidades.
+     */
+    public BroadPhase(Mode mode, double cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("El tamanio de celda debe ser mayor a 0: " + cellSize);
+        this.mode = mode;
+        this.cellSize = cellSize;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Entrega al handler cada par de entidades cuyas cajas se superponen.
+     *
+     * @return cantidad de pares.
+     */
+    public int findPairs(Collection<? extends Entity> entities, PairHandler handler) {
+        int n = load(entities);
+        return mode == Mode.SPATIAL_HASH ? hash(n, handler) : sweep(n, handler);
+    }
+
+    /**
+     * Compara cada entidad con todas las demas, como referencia para medir las otras formas.
+     *
+     * @return cantidad de pares.
+     */
+    public int bruteForce(Collection<? extends Entity> entities, PairHandler handler) {
+        int n = load(entities), pairs = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (overlaps(i, j)) {
+                    handler.pair(this.entities[i], this.entities[j]);
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Copia las entidades y sus cajas a los arreglos de trabajo.
+     */
+    private int load(Collection<? extends Entity> entities) {
+        int n = entities.size();
+        if (this.entities.length < n) {
+            int capacity = Math.max(n, this.entities.length * 2);
+            this.entities = new Entity[capacity];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+        }
+        int i = 0;
+        for (Entity entity : entities) {
+            this.entities[i] = entity;
+            minX[i] = entity.getX();
+            minY[i] = entity.getY();
+            maxX[i] = entity.getX() + entity.getWidth();
+            maxY[i] = entity.getY() + entity.getHeight();
+            i++;
+        }
+        // Para no retener entidades de una llamada anterior con mas entidades
+        Arrays.fill(this.entities, n, this.entities.length, null);
+        return n;
+    }
+
+    private boolean overlaps(int i, int j) {
+        // Igual que Rectangle.intersects, las cajas que solo se tocan en un borde no se superponen
+        return minX[i] < maxX[j] && minX[j] < maxX[i] && minY[i] < maxY[j] && minY[j] < maxY[i];
+    }
+
+    private int hash(int n, PairHandler handler) {
+        // Cuenta las entradas, una por cada celda que toca cada entidad
+        int entries = 0;
+        for (int i = 0; i < n; i++)
+            entries += (cell(maxX[i]) - cell(minX[i]) + 1) * (cell(maxY[i]) - cell(minY[i]) + 1);
+        if (entryEntity.length < entries) {
+            int capacity = Math.max(entries, entryEntity.length * 2);
+            entryEntity = new int[capacity];
+            entryX = new int[capacity];
+            entryY = new int[capacity];
+            entryBucket = new int[capacity];
+        }
+        // Tabla con al menos el doble de buckets que entradas, potencia de 2 para usar una mascara
+        int buckets = Integer.highestOneBit(Math.max(1, entries) * 2 - 1) << 1;
+        if (cellStart.length < buckets + 1) cellStart = new int[buckets + 1];
+        Arrays.fill(cellStart, 0, buckets + 1, 0);
+
+        // Guarda el bucket de cada entrada y cuenta cuantas caen en cada uno
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            for (int cx = cell(minX[i]), x1 = cell(maxX[i]); cx <= x1; cx++) {
+                for (int cy = cell(minY[i]), y1 = cell(maxY[i]); cy <= y1; cy++) {
+                    int bucket = bucket(cx, cy, buckets);
+                    entryBucket[e++] = bucket;
+                    cellStart[bucket + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b < buckets; b++)
+            cellStart[b + 1] += cellStart[b];
+
+        /* Ubica cada entrada en su bucket. cellStart[b] avanza con cada entrada y termina en el comienzo del bucket b + 1, por
+         * eso despues el bucket b va desde cellStart[b - 1] hasta cellStart[b]. */
+        e = 0;
+        for (int i = 0; i < n; i++) {
+            for (int cx = cell(minX[i]), x1 = cell(maxX[i]); cx <= x1; cx++) {
+                for (int cy = cell(minY[i]), y1 = cell(maxY[i]); cy <= y1; cy++) {
+                    int slot = cellStart[entryBucket[e++]]++;
+                    entryEntity[slot] = i;
+                    entryX[slot] = cx;
+                    entryY[slot] = cy;
+                }
+            }
+        }
+
+        int pairs = 0;
+        for (int b = 0; b < buckets; b++) {
+            int start = b == 0 ? 0 : cellStart[b - 1], end = cellStart[b];
+            for (int p = start; p < end; p++) {
+                int i = entryEntity[p];
+                for (int q = p + 1; q < end; q++) {
+                    // Distintas celdas pueden caer en el mismo bucket
+                    if (entryX[q] != entryX[p] || entryY[q] != entryY[p]) continue;
+                    int j = entryEntity[q];
+                    if (!overlaps(i, j)) continue;
+                    // Solo la celda de la esquina de la superposicion informa el par
+                    if (cell(Math.max(minX[i], minX[j])) != entryX[p] || cell(Math.max(minY[i], minY[j])) != entryY[p]) continue;
+                    handler.pair(entities[i], entities[j]);
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static int bucket(int cx, int cy, int buckets) {
+        // Primos grandes para mezclar las coordenadas (Teschner et al., Optimized Spatial Hashing for Collision Detection)
+        int h = cx * 73856093 ^ cy * 19349663;
+        return (h ^ h >>> 16) & (buckets - 1);
+    }
+
+    private int sweep(int n, PairHandler handler) {
+        if (sorted.length < n) sorted = new long[Math.max(n, sorted.length * 2)];
+        for (int i = 0; i < n; i++)
+            sorted[i] = (long) sortable((float) minX[i]) << 32 | i;
+        // Ordena primitivos, sin crear objetos
+        Arrays.sort(sorted, 0, n);
+
+        int pairs = 0;
+        for (int a = 0; a < n; a++) {
+            int i = (int) sorted[a];
+            int end = sortable((float) maxX[i]);
+            for (int b = a + 1; b < n; b++) {
+                // Las siguientes empiezan despues de que termina i en x, ya no se pueden superponer
+                if ((int) (sorted[b] >> 32) > end) break;
+                int j = (int) sorted[b];
+                if (overlaps(i, j)) {
+                    handler.pair(entities[i], entities[j]);
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Convierte el float a un entero que se ordena igual que el float, incluidos los negativos.
+     */
+    private static int sortable(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ (bits >> 31 & 0x7fffffff);
+    }
+
+}
\ No newline at end of file
@@ -3,49 +3,37 @@ package com.craivet.game.entities;
 import javax.swing.*;
 
 import org.lwjgl.LWJGLException;
-import org.lwjgl.Sys;
 import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
+import com.craivet.GameLoop;
+import com.craivet.rendered.InstancedQuads;
+
 import static org.lwjgl.opengl.GL11.*;
 import static com.craivet.Global.*;
 
-public class EntityDemo {
-
-    private static long lastFrame;
+public class EntityDemo implements GameLoop.Game {
 
-    private static long getTime() {
-        return (Sys.getTime() * 1000) / Sys.getTimerResolution();
-    }
+    private InstancedQuads quads;
 
-    private static int getDelta() {
-        long currentTime = getTime();
-        int delta = (int) (currentTime - lastFrame);
-        lastFrame = getTime();
-        return delta;
-    }
+    private AbstractMovableEntity box;
+    private Entity point;
 
     public void start() {
 
         setUpDisplay();
 
-        MoveableEntity box = new Box(100, 100, 50, 50);
-        Entity point = new Point(50, 50);
-
-        lastFrame = getTime();
+        box = new Box(100, 100, 50, 50);
+        point = new Point(50, 50);
 
         setUpOpenGL();
+        quads = new InstancedQuads(16);
 
-        while (!Display.isCloseRequested()) {
-
-            render(box, point);
-
-            Display.update();
-            Display.sync(120);
-
-        }
+        // La caja se mueve en pasos fijos de 1/120 segundos
+        new GameLoop(this, 120).run();
 
+        quads.dispose();
         Display.destroy();
 
     }
@@ -69,14 +57,16 @@ public class EntityDemo {
         glMatrixMode(GL_MODELVIEW);
     }
 
-    private void render(MoveableEntity box, Entity point) {
-        glClear(GL_COLOR_BUFFER_BIT);
+    @Override
+    public boolean isRunning() {
+        return !Display.isCloseRequested();
+    }
 
+    @Override
+    public void update(double delta) {
         // Establece la posicion del point en la ubicacion del mouse
         point.setLocation(Mouse.getX(), Mouse.getY() - 1); // -1 ?
 
-        int delta = getDelta();
-
         box.update(delta);
         point.update(delta);
 
@@ -84,9 +74,20 @@ public class EntityDemo {
         if (box.intersects(point)) box.setDX(0.2); // Mueva la caja horizontalmente a una velocidad reducida a 9 veces
 
         calculateLimits(box);
+    }
+
+    @Override
+    public void render(float alpha) {
+        glClear(GL_COLOR_BUFFER_BIT);
 
         point.draw();
-        box.draw(); // Rellena la caja por asi decirlo
+        // Rellena la caja por asi decirlo, como una instancia del quad compartido
+        quads.begin();
+        box.draw(quads);
+        quads.end();
+
+        Display.update();
+        Display.sync(120);
     }
 
     /**
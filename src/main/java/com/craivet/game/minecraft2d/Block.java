@@ -2,76 +2,109 @@ package com.craivet.game.minecraft2d;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Objects;
 
-import com.craivet.TextureDemo;
-
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
+import com.craivet.Texture;
+import com.craivet.TextureAtlas;
+import com.craivet.TextureCache;
+import com.craivet.rendered.InstancedQuads;
+import com.craivet.rendered.SpriteBatch;
 
 import javax.swing.*;
 
 import static org.lwjgl.opengl.GL11.*;
 
+/**
+ * Bloque compartido (flyweight): existe una sola instancia por tipo de bloque y no guarda su posicion. La grilla solo almacena
+ * el tipo de cada celda y pasa las coordenadas al dibujar, asi que editar una celda no crea objetos.
+ */
+
 public class Block {
 
+    private static final Block[] BLOCKS = new Block[BlockType.values().length];
+
+    static {
+        for (BlockType type : BlockType.values())
+            BLOCKS[type.ordinal()] = new Block(type);
+    }
+
     private final BlockType type;
-    private final float x;
-    private final float y;
     private Texture texture;
 
-    public Block(BlockType type, float x, float y) {
+    private Block(BlockType type) {
         this.type = type;
-        this.x = x;
-        this.y = y;
-        try {
-            // Decodifica la imagen de tipo PNG (en "location") para trabajarla como una textura
-            texture = TextureLoader.getTexture("PNG", Objects.requireNonNull(TextureDemo.class.getClassLoader().getResourceAsStream(type.location)));
-        } catch (FileNotFoundException e) {
-            JOptionPane.showMessageDialog(null, "No se pudo encontrar la imagen", "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error de I/O", "Error", JOptionPane.ERROR_MESSAGE);
-        }
     }
 
-    public void draw() {
+    /**
+     * Devuelve el bloque compartido del tipo especificado.
+     */
+    public static Block of(BlockType type) {
+        return BLOCKS[type.ordinal()];
+    }
+
+    /**
+     * Dibuja el bloque en modo inmediato con su propia textura.
+     *
+     * @param x posicion x en pixeles.
+     * @param y posicion y en pixeles.
+     */
+    public void draw(float x, float y) {
+
+        // La textura se obtiene recien al dibujar, ya que necesita un contexto GL
+        if (texture == null) texture = loadTexture();
+        if (texture == null) return;
 
         glEnable(GL_TEXTURE_2D);
 
         // Enlaza la textura pasandole el texturizado y el ID de cada textura para que GL sepa que textura enlazar
-        glBindTexture(GL_TEXTURE_2D, texture.getTextureID());
-
-        // glPushMatrix() y glPopMatrix() se usan para guardar y cargar la matriz actual (pila de matrices)
-        glPushMatrix();
+        texture.bind();
 
-        // Aplica un desplazamiento a todas las invocaciones posteriores del metodo glVertex
-        glTranslatef(x, y, 0);
+        /* El desplazamiento se suma a los vertices en lugar de usar glPushMatrix/glTranslatef/glPopMatrix, que serian tres
+         * llamadas al driver mas por bloque. */
+        float x2 = x + World.BLOCK_SIZE, y2 = y + World.BLOCK_SIZE;
 
         // Es obligatorio pasarle a GL las coordenadas de texturas si se trabaja con estas
         glBegin(GL_QUADS);
         glTexCoord2f(0, 0);
-        glVertex2f(0, 0);
+        glVertex2f(x, y);
         glTexCoord2f(1, 0);
-        glVertex2f(World.BLOCK_SIZE, 0);
+        glVertex2f(x2, y);
         glTexCoord2f(1, 1);
-        glVertex2f(World.BLOCK_SIZE, World.BLOCK_SIZE);
+        glVertex2f(x2, y2);
         glTexCoord2f(0, 1);
-        glVertex2f(0, World.BLOCK_SIZE);
+        glVertex2f(x, y2);
         glEnd();
+    }
 
-        glPopMatrix();
+    /**
+     * Agrega el bloque al lote usando la region del atlas que corresponde a su tipo, sin enlazar texturas ni tocar la pila de
+     * matrices.
+     */
+    public void draw(SpriteBatch batch, TextureAtlas atlas, float x, float y) {
+        batch.draw(atlas.findRegion(type.location), x, y, World.BLOCK_SIZE, World.BLOCK_SIZE);
     }
 
-    public BlockType getType() {
-        return type;
+    /**
+     * Agrega el bloque como una instancia con la region del atlas que corresponde a su tipo.
+     */
+    public void draw(InstancedQuads quads, TextureAtlas atlas, float x, float y) {
+        quads.draw(atlas.findRegion(type.location), x, y, World.BLOCK_SIZE, World.BLOCK_SIZE);
     }
 
-    public float getX() {
-        return x;
+    private Texture loadTexture() {
+        try {
+            /* Obtiene la textura de la cache, que decodifica la imagen PNG (en "location") y la sube a la GPU solo la primera
+             * vez. El bloque compartido mantiene la referencia mientras dure la aplicacion. */
+            return TextureCache.getInstance().acquire(type.location);
+        } catch (FileNotFoundException e) {
+            JOptionPane.showMessageDialog(null, "No se pudo encontrar la imagen", "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Error de I/O", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        return null;
     }
 
-    public float getY() {
-        return y;
+    public BlockType getType() {
+        return type;
     }
 
 }
\ No newline at end of file
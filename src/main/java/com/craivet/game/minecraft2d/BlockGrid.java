@@ -4,62 +4,198 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.jdom.Document;
 import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.input.SAXBuilder;
 import org.jdom.output.XMLOutputter;
 
 import javax.swing.*;
 
+import com.craivet.Camera2D;
+import com.craivet.TextureAtlas;
+import com.craivet.rendered.SpriteBatch;
+
 import static com.craivet.game.minecraft2d.World.*;
 
+/**
+ * Mundo sin limites dividido en {@link Chunk}s de {@link Chunk#SIZE}x{@link Chunk#SIZE} bloques.
+ * <p>
+ * Los chunks se guardan en un mapa indexado por sus coordenadas y se crean recien cuando se escribe un bloque que no es aire
+ * dentro de ellos; leer un chunk que no existe devuelve aire. Asi la memoria ocupada es proporcional al area explorada y no al
+ * tamanio del mundo ni de la ventana.
+ * <p>
+ * Los chunks alejados de la camara se pueden desalojar con {@link #evict(int, int, int)}. Los vacios simplemente se descartan;
+ * los que tienen bloques solo se desalojan si hay un {@link ChunkPager} que los guarde para volver a cargarlos cuando se acceda a
+ * ellos de nuevo.
+ */
+
 public class BlockGrid {
 
-    private final Block[][] blocks;
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private ChunkPager pager;
 
-    // Usar ArrayList para manejar las dimensiones dinamicas de la ventana
-    // private ArrayList<Block> blocks;
+    public void setAt(BlockType type, int x, int y) {
+        Chunk chunk = getChunk(Math.floorDiv(x, Chunk.SIZE), Math.floorDiv(y, Chunk.SIZE), type != BlockType.AIR);
+        // No hace falta crear un chunk para escribir aire
+        if (chunk != null) chunk.set(Math.floorMod(x, Chunk.SIZE), Math.floorMod(y, Chunk.SIZE), type);
+    }
 
-    public BlockGrid() {
-        blocks = new Block[cols][rows];
-        for (int x = 0; x < cols; x++)
-            for (int y = 0; y < rows; y++)
-                blocks[x][y] = new Block(BlockType.AIR, x * BLOCK_SIZE, y * BLOCK_SIZE);
+    public Block getAt(int x, int y) {
+        return Block.of(getTypeAt(x, y));
     }
 
-    public void setAt(BlockType type, int x, int y) {
-        blocks[x][y] = new Block(type, x * BLOCK_SIZE, y * BLOCK_SIZE);
+    public BlockType getTypeAt(int x, int y) {
+        Chunk chunk = getChunk(Math.floorDiv(x, Chunk.SIZE), Math.floorDiv(y, Chunk.SIZE), false);
+        return chunk == null ? BlockType.AIR : chunk.get(Math.floorMod(x, Chunk.SIZE), Math.floorMod(y, Chunk.SIZE));
     }
 
-    public Block getAt(int x, int y) {
-        return blocks[x][y];
+    /**
+     * Devuelve el chunk de las coordenadas especificadas, cargandolo desde el pager si fue desalojado.
+     *
+     * @param create si es true crea el chunk cuando no existe.
+     * @return el chunk o null si no existe y create es false.
+     */
+    public Chunk getChunk(int cx, int cy, boolean create) {
+        long key = Chunk.key(cx, cy);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            if (pager != null) chunk = pager.pageIn(cx, cy);
+            if (chunk == null && create) chunk = new Chunk(cx, cy);
+            if (chunk != null) chunks.put(key, chunk);
+        }
+        return chunk;
     }
 
     /**
-     * Guarda el estado del juego en formato xml.
+     * Devuelve el chunk si esta cargado en memoria, sin pedirselo al pager.
+     */
+    public Chunk getLoadedChunk(int cx, int cy) {
+        return chunks.get(Chunk.key(cx, cy));
+    }
+
+    /**
+     * Entrega cada chunk del mundo: los cargados en memoria y los que el pager tiene desalojados, sin volver a cargar estos
+     * ultimos (guardar no deshace el desalojo).
+     */
+    public void forEachChunk(Consumer<Chunk> action) {
+        chunks.values().forEach(action);
+        if (pager != null) pager.forEachPaged(chunk -> {
+            // Si se volvio a cargar, vale la version en memoria que ya se entrego
+            if (!chunks.containsKey(Chunk.key(chunk.cx, chunk.cy))) action.accept(chunk);
+        });
+    }
+
+    /**
+     * Desaloja los chunks que estan a mas de radius chunks del chunk (cx, cy).
+     *
+     * @return cantidad de chunks desalojados.
+     */
+    public int evict(int cx, int cy, int radius) {
+        int evicted = 0;
+        Iterator<Chunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            if (Math.max(Math.abs(chunk.cx - cx), Math.abs(chunk.cy - cy)) <= radius) continue;
+            // Un chunk con bloques solo se puede descartar si se puede volver a cargar
+            if (!chunk.isEmpty()) {
+                if (pager == null) continue;
+                pager.pageOut(chunk);
+            } else if (pager != null) {
+                // El pager puede tener una version anterior del chunk, todavia con bloques
+                pager.discard(chunk.cx, chunk.cy);
+            }
+            iterator.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Agrega un chunk leido de un archivo, reemplazando el que tenga las mismas coordenadas.
+     */
+    public void putChunk(Chunk chunk) {
+        chunks.put(Chunk.key(chunk.cx, chunk.cy), chunk);
+    }
+
+    /**
+     * Agrega un chunk leido de un archivo. Si ya hay un chunk en la misma posicion, copia sobre el las celdas que no son aire; de
+     * esta forma un chunk que llega en partes (o mientras se esta editando el mundo) no borra lo que ya estaba.
+     */
+    public void mergeChunk(Chunk chunk) {
+        Chunk current = chunks.get(Chunk.key(chunk.cx, chunk.cy));
+        if (current == null) putChunk(chunk);
+        else current.merge(chunk);
+    }
+
+    /**
+     * Guarda el estado del juego en el formato binario de {@link WorldFile}, incluidos los chunks desalojados.
      *
      * @param file archivo del juego.
      */
     public void save(File file) {
+        try {
+            List<Chunk> all = new ArrayList<>(chunks.size());
+            forEachChunk(all::add);
+            WorldFile.writeAtomic(file, all);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "No se pudo guardar el archivo", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Carga el estado del juego desde el formato binario de {@link WorldFile}.
+     *
+     * @param file archivo del juego.
+     */
+    public void load(File file) {
+        try {
+            List<Chunk> loaded = WorldFile.read(file);
+            clear();
+            for (Chunk chunk : loaded)
+                putChunk(chunk);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "No se pudo cargar el archivo", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Exporta el estado del juego en formato xml, incluidos los chunks desalojados. Ocupa mucho mas que el formato binario, pero se
+     * puede leer y editar a mano.
+     *
+     * @param file archivo del juego.
+     */
+    public void exportXml(File file) {
 
         Document document = new Document();
         Element root = new Element("blocks"); // Etiqueta raiz (bloques)
         document.setRootElement(root); // Establece el elemento raiz
 
-        for (int x = 0; x < cols; x++) {
-            for (int y = 0; y < rows; y++) {
+        // Solo los chunks existentes, las celdas fuera de ellos son aire
+        List<Chunk> all = new ArrayList<>(chunks.size());
+        forEachChunk(all::add);
+        for (Chunk chunk : all) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                for (int y = 0; y < Chunk.SIZE; y++) {
 
-                Element block = new Element("block"); // Segunda etiqueta (bloque)
+                    Element block = new Element("block"); // Segunda etiqueta (bloque)
 
-                // Establece los valores para los atributos (x, y, type) en la etiqueta bloque
-                block.setAttribute("x", String.valueOf(x));
-                block.setAttribute("y", String.valueOf(y));
-                block.setAttribute("type", String.valueOf(blocks[x][y].getType()));
+                    // Establece los valores para los atributos (x, y, type) en la etiqueta bloque
+                    block.setAttribute("x", String.valueOf(chunk.cx * Chunk.SIZE + x));
+                    block.setAttribute("y", String.valueOf(chunk.cy * Chunk.SIZE + y));
+                    block.setAttribute("type", String.valueOf(chunk.get(x, y)));
 
-                // Agrega la etiqueta bloque a la etiqueta bloques
-                root.addContent(block);
+                    // Agrega la etiqueta bloque a la etiqueta bloques
+                    root.addContent(block);
+                }
             }
         }
 
@@ -75,42 +211,59 @@ public class BlockGrid {
         }
     }
 
-    public void load(File file) {
+    /**
+     * Importa el estado del juego desde el formato xml. El archivo se recorre con StAX, asi que no hace falta tener el documento
+     * completo en memoria; para cargarlo sin detener el juego usar {@link WorldLoader#loadXml(BlockGrid, File)}.
+     *
+     * @param file archivo del juego.
+     */
+    public void importXml(File file) {
+        clear();
         try {
-            SAXBuilder builder = new SAXBuilder();
-            Document document = builder.build(file);
-            Element root = document.getRootElement();
-
-            for (Object block : root.getChildren()) { // Convierte el tipo de datos Element a Object
-
-                // Convierte el tipo de datos Object a Element (raro)
-                Element e = (Element) block;
+            WorldLoader.readXml(file, this::mergeChunk, progress -> {
+            });
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "No se pudo cargar el archivo", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-                // Crea el bloque con los valores obtenidos del xml
-                int x = Integer.parseInt(e.getAttributeValue("x"));
-                int y = Integer.parseInt(e.getAttributeValue("y"));
+    /**
+     * Dibuja los bloques que entran en la vista con un lote de sprites. Como todos los tipos de bloque estan en la misma pagina
+     * del atlas, la vista completa se envia con un solo enlace de textura y una sola llamada de dibujo (mientras entre en la
+     * capacidad del lote). Las celdas fuera de la vista de la camara no se recorren.
+     */
+    public void draw(SpriteBatch batch, TextureAtlas atlas, Camera2D camera) {
+        int x1 = camera.firstColumn(BLOCK_SIZE), x2 = camera.lastColumn(BLOCK_SIZE);
+        int y1 = camera.firstRow(BLOCK_SIZE), y2 = camera.lastRow(BLOCK_SIZE);
+        for (int y = y1; y <= y2; y++)
+            for (int x = x1; x <= x2; x++)
+                getAt(x, y).draw(batch, atlas, x * BLOCK_SIZE, y * BLOCK_SIZE);
+    }
 
-                blocks[x][y] = new Block(BlockType.valueOf(e.getAttributeValue("type")), x * BLOCK_SIZE, y * BLOCK_SIZE);
+    public void clear() {
+        chunks.clear();
+    }
 
-            }
+    /**
+     * Descarta los chunks cargados que cumplen la condicion, sin pasarlos al pager.
+     */
+    public void removeChunks(Predicate<Chunk> filter) {
+        chunks.values().removeIf(filter);
+    }
 
-        } catch (JDOMException e) {
-            JOptionPane.showMessageDialog(null, "No se pudo cargar el archivo", "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error de I/O", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+    /**
+     * Devuelve los chunks cargados en memoria.
+     */
+    public Collection<Chunk> getChunks() {
+        return Collections.unmodifiableCollection(chunks.values());
     }
 
-    public void draw() {
-        for (int x = 0; x < cols; x++)
-            for (int y = 0; y < rows; y++)
-                blocks[x][y].draw();
+    public int getChunkCount() {
+        return chunks.size();
     }
 
-    public void clear() {
-        for (int x = 0; x < cols; x++)
-            for (int y = 0; y < rows; y++)
-                blocks[x][y] = new Block(BlockType.AIR, x * BLOCK_SIZE, y * BLOCK_SIZE);
+    public void setPager(ChunkPager pager) {
+        this.pager = pager;
     }
 
 }
\ No newline at end of file
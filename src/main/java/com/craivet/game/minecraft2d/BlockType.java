@@ -12,4 +12,15 @@ public enum BlockType {
         this.location = location;
     }
 
+    /**
+     * Devuelve la ubicacion de las imagenes de todos los tipos de bloque, para empaquetarlas en un atlas.
+     */
+    public static String[] locations() {
+        BlockType[] types = values();
+        String[] locations = new String[types.length];
+        for (int i = 0; i < types.length; i++)
+            locations[i] = types[i].location;
+        return locations;
+    }
+
 }
\ No newline at end of file
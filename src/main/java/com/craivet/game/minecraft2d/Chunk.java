@@ -0,0 +1,155 @@
+package com.craivet.game.minecraft2d;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Porcion cuadrada del mundo de {@link #SIZE}x{@link #SIZE} bloques.
+ * <p>
+ * Igual que la grilla, guarda un byte por celda con el ordinal del {@link BlockType}, fila por fila. Las coordenadas (cx, cy)
+ * son las del chunk, no las de los bloques: el bloque (x, y) del mundo pertenece al chunk (floorDiv(x, SIZE), floorDiv(y, SIZE)).
+ */
+
+public class Chunk {
+
+    public static final int SIZE = 32;
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    public final int cx;
+    public final int cy;
+    private final byte[] types = new byte[SIZE * SIZE];
+    // Cantidad de celdas que no son aire, para saber si el chunk esta vacio sin recorrerlo
+    private int solid;
+    // Aumenta con cada modificacion, permite saber si el chunk cambio desde la ultima vez que se guardo
+    private int revision;
+
+    public Chunk(int cx, int cy) {
+        this.cx = cx;
+        this.cy = cy;
+    }
+
+    /**
+     * @param x coordenada local entre 0 y SIZE - 1.
+     * @param y coordenada local entre 0 y SIZE - 1.
+     */
+    public BlockType get(int x, int y) {
+        return TYPES[types[y * SIZE + x]];
+    }
+
+    public void set(int x, int y, BlockType type) {
+        int i = y * SIZE + x;
+        byte old = types[i];
+        byte ordinal = (byte) type.ordinal();
+        if (old == ordinal) return;
+        if (old == BlockType.AIR.ordinal()) solid++;
+        else if (ordinal == BlockType.AIR.ordinal()) solid--;
+        types[i] = ordinal;
+        revision++;
+    }
+
+    public void fill(BlockType type) {
+        Arrays.fill(types, (byte) type.ordinal());
+        solid = type == BlockType.AIR ? 0 : types.length;
+        revision++;
+    }
+
+    /**
+     * Devuelve una copia independiente del chunk (con la misma revision), para leerla desde otro hilo mientras el original se
+     * sigue modificando.
+     */
+    public Chunk copy() {
+        Chunk copy = new Chunk(cx, cy);
+        System.arraycopy(types, 0, copy.types, 0, types.length);
+        copy.solid = solid;
+        copy.revision = revision;
+        return copy;
+    }
+
+    /**
+     * Reemplaza las celdas por las del otro chunk. La revision solo aumenta si alguna celda cambio.
+     *
+     * @return true si alguna celda cambio.
+     */
+    public boolean copyFrom(Chunk other) {
+        if (Arrays.equals(types, other.types)) return false;
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        solid = other.solid;
+        revision++;
+        return true;
+    }
+
+    /**
+     * Copia sobre este chunk las celdas del otro que no son aire.
+     */
+    public void merge(Chunk other) {
+        for (int i = 0; i < types.length; i++) {
+            byte type = other.types[i];
+            if (type != BlockType.AIR.ordinal()) set(i % SIZE, i / SIZE, TYPES[type]);
+        }
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Devuelve true si todas las celdas son aire.
+     */
+    public boolean isEmpty() {
+        return solid == 0;
+    }
+
+    /**
+     * Devuelve la cantidad de bytes que ocupa el chunk codificado con {@link #encode(ByteBuffer)}.
+     */
+    public int encodedSize() {
+        int runs = 0;
+        for (int i = 0; i < types.length; i++)
+            if (i == 0 || types[i] != types[i - 1]) runs++;
+        return runs * 3;
+    }
+
+    /**
+     * Escribe las celdas comprimidas con RLE (run-length encoding): cada corrida de celdas consecutivas del mismo tipo se guarda
+     * como el ordinal (1 byte) y el largo de la corrida (2 bytes). Un chunk de un solo tipo ocupa 3 bytes en lugar de 1024.
+     */
+    public void encode(ByteBuffer out) {
+        int i = 0;
+        while (i < types.length) {
+            byte type = types[i];
+            int run = 1;
+            while (i + run < types.length && types[i + run] == type) run++;
+            out.put(type).putShort((short) run);
+            i += run;
+        }
+    }
+
+    /**
+     * Lee las celdas escritas con {@link #encode(ByteBuffer)}, reemplazando las actuales.
+     *
+     * @throws IllegalArgumentException si los datos no forman un chunk valido.
+     */
+    public void decode(ByteBuffer in) {
+        int i = 0;
+        solid = 0;
+        while (i < types.length) {
+            byte type = in.get();
+            int run = in.getShort() & 0xFFFF;
+            if (type < 0 || type >= TYPES.length || run == 0 || i + run > types.length)
+                throw new IllegalArgumentException("Corrida invalida en el chunk (" + cx + ", " + cy + ")");
+            Arrays.fill(types, i, i + run, type);
+            if (type != BlockType.AIR.ordinal()) solid += run;
+            i += run;
+        }
+        revision++;
+    }
+
+    /**
+     * Empaqueta las coordenadas del chunk en una sola clave para el mapa de chunks.
+     */
+    public static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.craivet.game.minecraft2d;
+
+import java.util.function.Consumer;
+
+/**
+ * Guarda los chunks desalojados de memoria y los vuelve a cargar cuando se accede a ellos.
+ */
+
+public interface ChunkPager {
+
+    /**
+     * Guarda un chunk que se va a quitar de memoria.
+     */
+    void pageOut(Chunk chunk);
+
+    /**
+     * Devuelve el chunk guardado en las coordenadas especificadas o null si nunca se guardo.
+     */
+    Chunk pageIn(int cx, int cy);
+
+    /**
+     * Olvida el chunk guardado en las coordenadas especificadas, si existe. La grilla lo llama al descartar un chunk que quedo
+     * vacio, para que una copia vieja no vuelva a aparecer al cargarlo o al guardar el mundo.
+     */
+    void discard(int cx, int cy);
+
+    /**
+     * Entrega cada chunk guardado sin volver a cargarlo en la grilla, por ejemplo para guardar el mundo completo. Puede incluir
+     * chunks que ya se volvieron a cargar; en ese caso la grilla usa el que tiene en memoria.
+     */
+    void forEachPaged(Consumer<Chunk> action);
+
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.craivet.game.minecraft2d;
 
 import java.io.File;
+import java.io.IOException;
 
 import javax.swing.*;
 
@@ -10,40 +11,92 @@ import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
+import com.craivet.Camera2D;
+import com.craivet.SimulationThread;
+import com.craivet.TextureAtlas;
+import com.craivet.TextureCache;
+import com.craivet.TripleBuffer;
+import com.craivet.rendered.InstancedQuads;
+
 import static org.lwjgl.opengl.GL11.*;
 
 import static com.craivet.game.minecraft2d.World.*;
 import static com.craivet.Global.*;
 
+/**
+ * Editor del mundo por chunks.
+ * <p>
+ * Con {@code --threaded} el mundo ({@link WorldSimulation}) avanza en un {@link SimulationThread} y publica los chunks cercanos a
+ * la vista en un {@link TripleBuffer}; el hilo de OpenGL los copia a su propia grilla, que es la que dibuja. Sin el argumento el
+ * mundo avanza una vez por cuadro en el hilo de OpenGL y se dibuja su grilla directamente. En los dos casos la entrada solo
+ * encola cambios en el mundo.
+ */
+
 public class Screen {
 
+    private WorldSimulation world;
+    // Grilla que se dibuja: la del mundo, o la copia de la ultima publicacion si el mundo corre en otro hilo
     private BlockGrid grid;
+    private boolean loading;
+    private boolean running = true;
+    private InstancedQuads quads;
+    private TextureAtlas atlas;
+    private TileLayer layer;
     private BlockType type = BlockType.BRICK;
     private int x, y;
     private boolean mouseEnabled = true;
+    // Vista del mundo, determina que chunks y celdas se dibujan
+    private Camera2D camera;
 
-    public void start() {
+    public void start(boolean threaded) {
 
         setUpDisplay();
         setUpOpenGL();
 
-        grid = new BlockGrid();
-
-        while (!Display.isCloseRequested()) {
+        camera = new Camera2D(Display.getWidth(), Display.getHeight());
+        world = new WorldSimulation(new File("world"));
 
-            update();
-            render();
-            input();
+        if (threaded) runThreaded();
+        else {
+            grid = world.getGrid();
+            while (running && !Display.isCloseRequested()) {
+                world.update(1000.0 / FPS);
+                update(world.isLoading(), world.getProgress());
+                frame();
+            }
+        }
 
-            Display.update();
-            Display.sync(FPS);
+        world.close();
+        quads.dispose();
+        layer.dispose();
+        TextureCache.getInstance().dispose();
+        Display.destroy();
 
-            if (Display.wasResized()) resize();
+    }
 
+    private void runThreaded() {
+        grid = new BlockGrid();
+        TripleBuffer<WorldSimulation.Frame> frames = new TripleBuffer<>(WorldSimulation.Frame::new);
+        SimulationThread<WorldSimulation.Frame> simulation = new SimulationThread<>(world, frames, FPS);
+        simulation.start();
+        while (running && !Display.isCloseRequested()) {
+            // Si no hubo pasos desde el cuadro anterior se vuelve a dibujar la misma grilla
+            if (frames.swap()) frames.getReadBuffer().copyTo(grid);
+            WorldSimulation.Frame latest = frames.getReadBuffer();
+            update(latest.isLoading(), latest.getProgress());
+            frame();
         }
+        simulation.stop();
+    }
 
-        Display.destroy();
+    private void frame() {
+        render();
+        input();
+
+        Display.update();
+        Display.sync(FPS);
 
+        if (Display.wasResized()) resize();
     }
 
     private void setUpDisplay() {
@@ -65,17 +118,46 @@ public class Screen {
         glMatrixMode(GL_MODELVIEW);
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        // Todas las texturas de los bloques en una sola pagina, para dibujar la grilla sin cambiar de textura
+        try {
+            atlas = TextureAtlas.load(BlockType.locations());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Error de I/O", "Error", JOptionPane.ERROR_MESSAGE);
+            Display.destroy();
+            System.exit(1);
+        }
+        quads = new InstancedQuads(16);
+        layer = new TileLayer(atlas);
     }
 
-    private void update() {
-
+    private void update(boolean loading, float progress) {
+        if (loading || this.loading)
+            Display.setTitle(loading ? "Minecraft 2D - Cargando " + (int) (progress * 100) + "%" : "Minecraft 2D");
+        this.loading = loading;
+        // Los errores del guardado y de la carga en segundo plano se muestran desde este hilo
+        String error;
+        while ((error = world.pollError()) != null)
+            JOptionPane.showMessageDialog(null, error, "Error", JOptionPane.ERROR_MESSAGE);
+        // Se consulta en cada cuadro para que el movimiento no se acumule mientras no se arrastra
+        int dx = Mouse.getDX(), dy = Mouse.getDY();
+        // Arrastrar con el boton derecho desplaza la camara por el mundo
+        if (Mouse.isButtonDown(1)) {
+            camera.translate(-dx, dy);
+        }
+        // Cuando la camara cambia de chunk el mundo desaloja los chunks que quedaron lejos
+        int chunkPixels = Chunk.SIZE * BLOCK_SIZE;
+        world.setView(camera.firstColumn(chunkPixels), camera.firstRow(chunkPixels), Math.max(World.cols, World.rows) / Chunk.SIZE + 2);
     }
 
     private void render() {
         /* En realidad no se necesita limpiar la pantalla, ya que creamos bloques todo el tiempo y no trabajamos con la misma
          * textura. */
         glClear(GL_COLOR_BUFFER_BIT);
-        grid.draw();
+        // Todo se dibuja en coordenadas del mundo, la camara se aplica una sola vez por cuadro
+        glLoadIdentity();
+        glTranslatef(-camera.getX(), -camera.getY(), 0);
+        // Solo se vuelven a armar los vertices de los chunks que cambiaron desde el cuadro anterior
+        layer.draw(grid, camera);
     }
 
     private void input() {
@@ -89,11 +171,12 @@ public class Screen {
             /* Se vuelve a hablitar cuando se hace click izquierdo en la pantalla, ya que al usar el teclado, el mouse queda
              * deshabilitado y esta es la unica forma de habilitarlo (entrando a este metodo por asi decirlo). */
             mouseEnabled = true;
-            // Divide la posicion del mouse por el tamanio del bloque y lo redondea para obtener el numero exacto de la grilla
-            x = Math.round((float) Mouse.getX() / World.BLOCK_SIZE);
-            y = Math.round((float) (HEIGHT - Mouse.getY() - 1) / World.BLOCK_SIZE); // -1 ?
+            /* Suma la posicion de la camara y divide por el tamanio del bloque para obtener la celda del mundo. Se usa floorDiv
+             * para que las coordenadas negativas (a la izquierda o arriba del origen) caigan en la celda correcta. */
+            x = Math.floorDiv(camera.toWorldX(Mouse.getX()), World.BLOCK_SIZE);
+            y = Math.floorDiv(camera.toWorldY(Display.getHeight() - Mouse.getY() - 1), World.BLOCK_SIZE); // -1 ?
             // Si se hizo click izquierdo
-            if (Mouse.isButtonDown(0)) grid.setAt(type, x, y); // Crea un nuevo bloque
+            if (Mouse.isButtonDown(0)) world.setAt(type, x, y); // Crea un nuevo bloque
         }
         drawSelectionBlock();
     }
@@ -102,59 +185,70 @@ public class Screen {
 
         while (Keyboard.next()) {
 
-            // Calcula los limites de la ventana evitando sumar o restar la posicion del bloque fuera de esta (ArrayIndexOutOfBoundsException)
+            // Calcula los limites de la vista evitando mover el bloque de seleccion fuera de esta
+            int left = camera.firstColumn(World.BLOCK_SIZE), top = camera.firstRow(World.BLOCK_SIZE);
 
             /* Para el movimiento KEY_RIGHT, x solo tiene que llegar hasta 19 y no 20 (por eso el "x + 1" sin asignar), ya que 19 *
              * 32 = 608, dejando el espacio sobrante para la textura de 32 pixeles (608 + 32 = 640 limite) sin pasar el limite del
              * ancho de la pantalla. */
-            if (Keyboard.isKeyDown(Keyboard.KEY_RIGHT) && x + 1 < World.cols) {
+            if (Keyboard.isKeyDown(Keyboard.KEY_RIGHT) && x + 1 < left + World.cols) {
                 x++;
                 /* Deshabilita el mouse cuando se usa el teclado para que no se superpongan los eventos, ya que se van a estar
                  * tomando x e y de ambas entradas y nunca se va a mover el bloque de seleccion. */
                 mouseEnabled = false;
             }
-            if (Keyboard.isKeyDown(Keyboard.KEY_LEFT) && x > 0) {
+            if (Keyboard.isKeyDown(Keyboard.KEY_LEFT) && x > left) {
                 x--;
                 mouseEnabled = false;
             }
-            if (Keyboard.isKeyDown(Keyboard.KEY_UP) && y > 0) {
+            if (Keyboard.isKeyDown(Keyboard.KEY_UP) && y > top) {
                 y--;
                 mouseEnabled = false;
             }
-            if (Keyboard.isKeyDown(Keyboard.KEY_DOWN) && y + 1 < World.rows) {
+            if (Keyboard.isKeyDown(Keyboard.KEY_DOWN) && y + 1 < top + World.rows) {
                 y++;
                 mouseEnabled = false;
             }
 
-            if (Keyboard.isKeyDown(Keyboard.KEY_S)) grid.save(new File("save.xml"));
-            if (Keyboard.isKeyDown(Keyboard.KEY_L)) grid.load(new File("save.xml"));
+            // El guardado se escribe en otro hilo y solo incluye los chunks modificados desde el anterior
+            if (Keyboard.isKeyDown(Keyboard.KEY_S)) world.save();
+            // Los archivos por chunk se leen en el hilo de carga y se agregan de a poco, igual que el xml
+            if (Keyboard.isKeyDown(Keyboard.KEY_L)) world.load();
+            // El formato xml queda como opcion para exportar e importar
+            if (Keyboard.isKeyDown(Keyboard.KEY_E)) world.exportXml(new File("save.xml"));
+            if (Keyboard.isKeyDown(Keyboard.KEY_I)) world.importXml(new File("save.xml"));
             if (Keyboard.isKeyDown(Keyboard.KEY_1)) type = BlockType.AIR;
             if (Keyboard.isKeyDown(Keyboard.KEY_2)) type = BlockType.GRASS;
             if (Keyboard.isKeyDown(Keyboard.KEY_3)) type = BlockType.DIRT;
             if (Keyboard.isKeyDown(Keyboard.KEY_4)) type = BlockType.STONE;
             if (Keyboard.isKeyDown(Keyboard.KEY_5)) type = BlockType.BRICK;
-            if (Keyboard.isKeyDown(Keyboard.KEY_C)) grid.clear();
-            if (Keyboard.isKeyDown(Keyboard.KEY_ESCAPE)) {
-                Display.destroy();
-                System.exit(0);
-            }
+            if (Keyboard.isKeyDown(Keyboard.KEY_C)) world.clear();
+            // Termina el bucle, asi el mundo se detiene y los guardados pendientes se completan antes de cerrar
+            if (Keyboard.isKeyDown(Keyboard.KEY_ESCAPE)) running = false;
 
         }
 
     }
 
     /**
-     * Dibuja el bloque de seleccion.
+     * Dibuja el bloque de seleccion con la region del atlas de su tipo, la misma pagina que usa la grilla.
      */
     private void drawSelectionBlock() {
-        glColor4f(1f, 1f, 1f, 0.5f); // Color blanco con 50% de transparencia
-        new Block(type, x * World.BLOCK_SIZE, y * World.BLOCK_SIZE).draw();
-        glColor4f(1f, 1f, 1f, 1f); // Color blanco con 100% de transparencia
+        quads.begin();
+        quads.setColor(1f, 1f, 1f, 0.5f); // Color blanco con 50% de transparencia
+        Block.of(type).draw(quads, atlas, x * World.BLOCK_SIZE, y * World.BLOCK_SIZE);
+        quads.end();
     }
 
     private void resize() {
-        // Especifica los parametros de transformacion de la ventana grafica para todas las ventanas graficas
+        /* Especifica los parametros de transformacion de la ventana grafica y la proyeccion. El mundo no depende del tamanio
+         * de la ventana, solo cambia la cantidad de bloques visibles. */
         glViewport(0, 0, Display.getWidth(), Display.getHeight());
+        glMatrixMode(GL_PROJECTION);
+        glLoadIdentity();
+        glOrtho(0, Display.getWidth(), Display.getHeight(), 0, 1, -1);
+        glMatrixMode(GL_MODELVIEW);
+        camera.setViewport(Display.getWidth(), Display.getHeight());
         World.setCols(Display.getWidth() / BLOCK_SIZE);
         World.setRows(Display.getHeight() / BLOCK_SIZE);
         System.out.println(Display.getWidth() + "," + Display.getHeight());
@@ -169,7 +263,7 @@ public class Screen {
     }
 
     public static void main(String[] args) {
-        new Screen().start();
+        new Screen().start(args.length > 0 && args[0].equals("--threaded"));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.craivet.game.minecraft2d;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.lwjgl.BufferUtils;
+
+import com.craivet.Camera2D;
+import com.craivet.Texture;
+import com.craivet.TextureAtlas;
+import com.craivet.TextureRegion;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+import static com.craivet.game.minecraft2d.World.*;
+
+/**
+ * Capa de bloques con los vertices de cada chunk guardados en la GPU.
+ * <p>
+ * Los vertices de un chunk (un quad por celda con la region del atlas de su tipo) se arman una sola vez y se vuelven a armar
+ * solo cuando cambia la revision del chunk o la grilla lo reemplaza por otro ({@link BlockGrid#clear()}, cargar un archivo). En
+ * un cuadro sin cambios dibujar la vista cuesta una llamada de dibujo por chunk visible, sin importar la cantidad de celdas.
+ * <p>
+ * Las posiciones son locales al chunk y se desplazan al dibujar, asi todas las posiciones sin chunk (solo aire) comparten los
+ * mismos vertices. El envio a la GPU se delega en un {@link Renderer}, de esta forma el seguimiento de los chunks modificados se
+ * puede usar sin contexto GL.
+ */
+
+public class TileLayer {
+
+    /** Cantidad de componentes por vertice: posicion (2) y coordenadas de textura (2). */
+    public static final int VERTEX_SIZE = 2 + 2;
+    /** Cantidad de vertices de un chunk (un quad por celda). */
+    public static final int VERTEX_COUNT = Chunk.SIZE * Chunk.SIZE * 4;
+
+    private static final BlockType[] TYPES = BlockType.values();
+    // Tamanio del chunk en pixeles
+    private static final int CHUNK_PIXELS = Chunk.SIZE * BLOCK_SIZE;
+
+    private final Texture texture;
+    // Region del atlas de cada tipo de bloque, indexada por ordinal
+    private final TextureRegion[] regions = new TextureRegion[TYPES.length];
+    private final Renderer renderer;
+    // Vertices del chunk que se esta armando, se reutiliza para todos
+    private final FloatBuffer vertices = BufferUtils.createFloatBuffer(VERTEX_COUNT * VERTEX_SIZE);
+
+    private final Map<Long, Tile> tiles = new HashMap<>();
+    // Vertices compartidos por las posiciones que no tienen chunk
+    private Tile empty;
+
+    // Chunks armados y llamadas de dibujo en el ultimo draw() y en total
+    private int rebuilds, renderCalls;
+    private int totalRebuilds;
+
+    public TileLayer(TextureAtlas atlas) {
+        this(atlas, new GLRenderer());
+    }
+
+    public TileLayer(TextureAtlas atlas, Renderer renderer) {
+        this.texture = atlas.getTexture();
+        this.renderer = renderer;
+        for (BlockType type : TYPES) {
+            regions[type.ordinal()] = atlas.findRegion(type.location);
+            if (regions[type.ordinal()] == null)
+                throw new IllegalArgumentException("El atlas no tiene la region " + type.location);
+        }
+    }
+
+    /**
+     * Dibuja los chunks que entran en la vista de la camara, armando antes los que cambiaron desde el cuadro anterior. Los chunks
+     * fuera de la vista no se arman ni se dibujan.
+     */
+    public void draw(BlockGrid grid, Camera2D camera) {
+        rebuilds = 0;
+        renderCalls = 0;
+        prune(grid);
+
+        int cx1 = camera.firstColumn(CHUNK_PIXELS), cx2 = camera.lastColumn(CHUNK_PIXELS);
+        int cy1 = camera.firstRow(CHUNK_PIXELS), cy2 = camera.lastRow(CHUNK_PIXELS);
+        for (int cy = cy1; cy <= cy2; cy++) {
+            for (int cx = cx1; cx <= cx2; cx++) {
+                Chunk chunk = grid.getChunk(cx, cy, false);
+                Tile tile = chunk == null ? getEmpty() : getTile(chunk);
+                renderer.render(tile.buffer, texture, cx * CHUNK_PIXELS, cy * CHUNK_PIXELS, VERTEX_COUNT);
+                renderCalls++;
+            }
+        }
+    }
+
+    /**
+     * Devuelve los vertices del chunk, armandolos de nuevo si el chunk cambio.
+     */
+    private Tile getTile(Chunk chunk) {
+        long key = Chunk.key(chunk.cx, chunk.cy);
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            tile = new Tile(renderer.create());
+            tiles.put(key, tile);
+        }
+        if (tile.chunk != chunk || tile.revision != chunk.getRevision()) {
+            build(tile, chunk);
+            tile.chunk = chunk;
+            tile.revision = chunk.getRevision();
+        }
+        return tile;
+    }
+
+    private Tile getEmpty() {
+        if (empty == null) {
+            empty = new Tile(renderer.create());
+            build(empty, new Chunk(0, 0));
+        }
+        return empty;
+    }
+
+    /**
+     * Libera los vertices de los chunks que ya no estan en la grilla (desalojados, borrados o reemplazados).
+     */
+    private void prune(BlockGrid grid) {
+        Iterator<Tile> iterator = tiles.values().iterator();
+        while (iterator.hasNext()) {
+            Tile tile = iterator.next();
+            if (grid.getLoadedChunk(tile.chunk.cx, tile.chunk.cy) == tile.chunk) continue;
+            renderer.delete(tile.buffer);
+            iterator.remove();
+        }
+    }
+
+    private void build(Tile tile, Chunk chunk) {
+        vertices.clear();
+        for (int y = 0; y < Chunk.SIZE; y++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                TextureRegion region = regions[chunk.get(x, y).ordinal()];
+                float x1 = x * BLOCK_SIZE, y1 = y * BLOCK_SIZE;
+                float x2 = x1 + BLOCK_SIZE, y2 = y1 + BLOCK_SIZE;
+                // Mismo orden que el lote de sprites: sup. izq., sup. der., inf. der., inf. izq.
+                vertices.put(x1).put(y1).put(region.u).put(region.v);
+                vertices.put(x2).put(y1).put(region.u2).put(region.v);
+                vertices.put(x2).put(y2).put(region.u2).put(region.v2);
+                vertices.put(x1).put(y2).put(region.u).put(region.v2);
+            }
+        }
+        vertices.flip();
+        renderer.upload(tile.buffer, vertices);
+        rebuilds++;
+        totalRebuilds++;
+    }
+
+    /**
+     * Libera los vertices de todos los chunks.
+     */
+    public void dispose() {
+        for (Tile tile : tiles.values())
+            renderer.delete(tile.buffer);
+        tiles.clear();
+        if (empty != null) renderer.delete(empty.buffer);
+        empty = null;
+    }
+
+    /**
+     * Devuelve la cantidad de chunks con vertices en la GPU (sin contar los vertices compartidos de aire).
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Devuelve la cantidad de chunks que se armaron en el ultimo draw().
+     */
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    public int getTotalRebuilds() {
+        return totalRebuilds;
+    }
+
+    public int getRenderCalls() {
+        return renderCalls;
+    }
+
+    private static class Tile {
+        final int buffer;
+        Chunk chunk;
+        int revision;
+
+        Tile(int buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Guarda y dibuja los vertices de los chunks.
+     */
+    public interface Renderer {
+
+        /**
+         * Crea un buffer de vertices y devuelve su identificador.
+         */
+        int create();
+
+        /**
+         * @param vertices vertices intercalados (x, y, u, v) desde la posicion 0 hasta el limite.
+         */
+        void upload(int buffer, FloatBuffer vertices);
+
+        /**
+         * @param x posicion x en pixeles del chunk.
+         * @param y posicion y en pixeles del chunk.
+         */
+        void render(int buffer, Texture texture, float x, float y, int vertexCount);
+
+        void delete(int buffer);
+
+    }
+
+    /**
+     * Guarda los vertices de cada chunk en un VBO con GL_STATIC_DRAW, ya que cambian solo cuando se edita el chunk.
+     */
+    public static class GLRenderer implements Renderer {
+
+        // Distancia en bytes entre el inicio de un vertice y el siguiente
+        private static final int STRIDE = VERTEX_SIZE * Float.BYTES;
+
+        @Override
+        public int create() {
+            return glGenBuffers();
+        }
+
+        @Override
+        public void upload(int buffer, FloatBuffer vertices) {
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        @Override
+        public void render(int buffer, Texture texture, float x, float y, int vertexCount) {
+            glEnable(GL_TEXTURE_2D);
+            texture.bind();
+
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glVertexPointer(2, GL_FLOAT, STRIDE, 0L);
+            glTexCoordPointer(2, GL_FLOAT, STRIDE, 2L * Float.BYTES);
+            glEnableClientState(GL_VERTEX_ARRAY);
+            glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+
+            glPushMatrix();
+            glTranslatef(x, y, 0);
+            glDrawArrays(GL_QUADS, 0, vertexCount);
+            glPopMatrix();
+
+            glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+            glDisableClientState(GL_VERTEX_ARRAY);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        @Override
+        public void delete(int buffer) {
+            glDeleteBuffers(buffer);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -5,7 +5,7 @@ public class World {
     // Textura de 32 pixeles justo para 640 y 480?
     public static final int BLOCK_SIZE = 32;
 
-    // Calcula el cantidad de columnas y filas dependiendo del tamanio de la ventana y la textura
+    // Calcula la cantidad de columnas y filas visibles dependiendo del tamanio de la ventana y la textura
     public static int cols = Screen.getWidth() / BLOCK_SIZE;
     public static int rows = Screen.getHeight() / BLOCK_SIZE;
 
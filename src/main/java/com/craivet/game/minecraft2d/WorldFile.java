@@ -0,0 +1,143 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Formato binario del mundo.
+ * <pre>
+ * Cabecera:  magic "MC2D" (int) | version (short) | tamanio del chunk (short) | cantidad de chunks (int)
+ * Por chunk: cx (int) | cy (int) | largo de los datos (int) | celdas codificadas con RLE ({@link Chunk#encode})
+ * </pre>
+ * Solo se guardan los chunks con bloques; todo lo que no esta en el archivo es aire. Las celdas se leen y escriben en binario,
+ * sin convertir cada una a texto como el formato xml.
+ * <p>
+ * El archivo no se mapea en memoria ni para leer ni para escribir: en Windows un archivo con un mapeo vivo no se puede truncar,
+ * renombrar ni borrar hasta que el recolector de basura libera el mapeo, asi que guardar sobre un archivo que se acaba de leer
+ * fallaria. El contenido completo se lee de una vez en un buffer del heap a traves del canal, y se escribe de la misma forma con
+ * {@link #writeAtomic(File, Collection)}.
+ */
+
+public final class WorldFile {
+
+    public static final int MAGIC = 0x4D433244; // "MC2D"
+    public static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 4 + 2 + 2 + 4;
+    static final int CHUNK_HEADER_SIZE = 4 + 4 + 4;
+
+    private WorldFile() {
+
+    }
+
+    /**
+     * Escribe los chunks con bloques en un archivo temporal junto al destino y despues lo renombra sobre el destino. Si el proceso
+     * termina a mitad de la escritura, el archivo anterior queda intacto.
+     */
+    public static void writeAtomic(File file, Collection<Chunk> chunks) throws IOException {
+        List<Chunk> solid = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks)
+            if (!chunk.isEmpty()) solid.add(chunk);
+        // El tamanio codificado de cada chunk se calcula una sola vez, para reservar el buffer y para su cabecera
+        int[] sizes = new int[solid.size()];
+        int size = HEADER_SIZE;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = solid.get(i).encodedSize();
+            size += CHUNK_HEADER_SIZE + sizes[i];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        put(buffer, solid, sizes);
+        buffer.flip();
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static void put(ByteBuffer buffer, List<Chunk> solid, int[] sizes) {
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) Chunk.SIZE).putInt(solid.size());
+        for (int i = 0; i < sizes.length; i++) {
+            Chunk chunk = solid.get(i);
+            buffer.putInt(chunk.cx).putInt(chunk.cy).putInt(sizes[i]);
+            chunk.encode(buffer);
+        }
+    }
+
+    /**
+     * Lee todos los chunks del archivo.
+     *
+     * @throws IOException si el archivo no tiene el formato esperado.
+     */
+    public static List<Chunk> read(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("El archivo " + file + " es demasiado grande");
+            buffer = ByteBuffer.allocate((int) size);
+            // Si el archivo se acorto mientras se leia, lo que falta se detecta como un archivo corrupto
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) == -1) break;
+        }
+        buffer.flip();
+        return read(buffer, file);
+    }
+
+    /**
+     * Lee todos los chunks de un buffer con el contenido completo de un archivo.
+     *
+     * @param file archivo de origen, solo se usa en los mensajes de error.
+     * @throws IOException si el contenido no tiene el formato esperado.
+     */
+    public static List<Chunk> read(ByteBuffer buffer, File file) throws IOException {
+        try {
+            int count = readHeader(buffer, file);
+            List<Chunk> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                chunks.add(readChunk(buffer, file));
+            return chunks;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("El archivo " + file + " esta corrupto", e);
+        }
+    }
+
+    /**
+     * Valida la cabecera y devuelve la cantidad de chunks.
+     */
+    static int readHeader(ByteBuffer buffer, File file) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("El archivo " + file + " no es un mundo guardado");
+        short version = buffer.getShort();
+        if (version != VERSION) throw new IOException("Version " + version + " no soportada en " + file);
+        short chunkSize = buffer.getShort();
+        if (chunkSize != Chunk.SIZE)
+            throw new IOException("Chunks de " + chunkSize + " bloques no soportados en " + file);
+        return buffer.getInt();
+    }
+
+    static Chunk readChunk(ByteBuffer buffer, File file) throws IOException {
+        int cx = buffer.getInt(), cy = buffer.getInt(), length = buffer.getInt();
+        Chunk chunk = new Chunk(cx, cy);
+        int end = buffer.position() + length;
+        chunk.decode(buffer);
+        if (buffer.position() != end)
+            throw new IOException("El chunk (" + cx + ", " + cy + ") de " + file + " no ocupa los " + length + " bytes declarados");
+        return chunk;
+    }
+
+}
\ No newline at end of file
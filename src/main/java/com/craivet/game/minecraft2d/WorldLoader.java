@@ -0,0 +1,298 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Carga un mundo guardado en un hilo aparte, publicando los chunks a medida que se completan.
+ * <p>
+ * El xml se recorre con StAX, elemento por elemento, en lugar de armar el documento completo en memoria como JDOM; el formato
+ * binario se lee secuencialmente con un buffer de tamanio fijo. En los dos casos la memoria usada depende de la cantidad de chunks
+ * a medio leer y no del tamanio del archivo.
+ * <p>
+ * El hilo de carga nunca toca la grilla: deja los chunks terminados en una cola y el hilo de renderizado los agrega con
+ * {@link #update(BlockGrid, int)} una vez por cuadro. Asi las primeras partes del mundo se ven mientras el resto se sigue leyendo.
+ * Por la misma razon los errores no se muestran desde el hilo de carga: se consultan con {@link #pollError()}.
+ */
+
+public class WorldLoader {
+
+    // Tamanio del buffer de lectura del formato binario, alcanza para el chunk codificado mas grande
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Task task;
+    // Ultimo error del hilo de carga, hasta que se consulta
+    private final AtomicReference<String> error = new AtomicReference<>();
+
+    /**
+     * Vacia la grilla y empieza a cargar un archivo xml, cancelando la carga anterior si no habia terminado.
+     */
+    public void loadXml(BlockGrid grid, File file) {
+        start(grid, new Task(new File[]{file}, true, null));
+    }
+
+    /**
+     * Vacia la grilla y empieza a cargar un archivo con el formato de {@link WorldFile}, cancelando la carga anterior si no habia
+     * terminado.
+     */
+    public void loadBinary(BlockGrid grid, File file) {
+        start(grid, new Task(new File[]{file}, false, null));
+    }
+
+    /**
+     * Vacia la grilla y empieza a cargar varios archivos con el formato de {@link WorldFile}, uno detras del otro, cancelando la
+     * carga anterior si no habia terminado. Es la forma de cargar los archivos por chunk de {@link WorldSaver}.
+     *
+     * @param merged recibe cada chunk despues de agregarlo a la grilla, en el hilo que llama a {@link #update(BlockGrid, int)}.
+     */
+    public void loadBinary(BlockGrid grid, File[] files, Consumer<Chunk> merged) {
+        start(grid, new Task(files.clone(), false, merged));
+    }
+
+    private void start(BlockGrid grid, Task task) {
+        cancel();
+        grid.clear();
+        this.task = task;
+        Thread thread = new Thread(task, "world-loader");
+        thread.setDaemon(true);
+        task.thread = thread;
+        thread.start();
+    }
+
+    /**
+     * Agrega a la grilla los chunks que ya se leyeron. Se llama una vez por cuadro desde el hilo que usa la grilla.
+     *
+     * @param max cantidad maxima de chunks a agregar, para repartir el trabajo entre varios cuadros.
+     * @return cantidad de chunks agregados.
+     */
+    public int update(BlockGrid grid, int max) {
+        if (task == null) return 0;
+        int count = 0;
+        Chunk chunk;
+        while (count < max && (chunk = task.ready.poll()) != null) {
+            grid.mergeChunk(chunk);
+            if (task.merged != null) task.merged.accept(chunk);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Detiene la carga actual. Los chunks ya agregados quedan en la grilla.
+     */
+    public void cancel() {
+        if (task == null) return;
+        task.thread.interrupt();
+        task.ready.clear();
+        task = null;
+    }
+
+    /**
+     * Devuelve true mientras quedan chunks por leer o por agregar a la grilla.
+     */
+    public boolean isLoading() {
+        return task != null && (!task.done || !task.ready.isEmpty());
+    }
+
+    /**
+     * Devuelve la fraccion de los archivos leida, entre 0 y 1.
+     */
+    public float getProgress() {
+        return task == null ? 1 : task.progress;
+    }
+
+    /**
+     * Devuelve el ultimo error del hilo de carga y lo olvida, o null si no hubo errores desde la consulta anterior.
+     */
+    public String pollError() {
+        return error.getAndSet(null);
+    }
+
+    /**
+     * Lee un archivo xml con el formato de {@link BlockGrid#exportXml(File)}.
+     *
+     * @param out      recibe cada chunk cuando se leyeron todas sus celdas (o al final del archivo si quedo incompleto).
+     * @param progress recibe la fraccion del archivo leida.
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado.
+     */
+    static void readXml(File file, Consumer<Chunk> out, DoubleConsumer progress) throws IOException {
+        long length = Math.max(file.length(), 1);
+        try (CountingInputStream input = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+            try {
+                read(reader, input, length, out, progress);
+            } finally {
+                reader.close();
+            }
+            progress.accept(1);
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            // NumberFormatException y los tipos de bloque desconocidos son IllegalArgumentException
+            throw new IOException("El archivo " + file + " esta corrupto", e);
+        }
+    }
+
+    private static void read(XMLStreamReader reader, CountingInputStream input, long length, Consumer<Chunk> out,
+                             DoubleConsumer progress) throws XMLStreamException {
+        // Chunks que todavia no recibieron todas sus celdas y cuantas recibieron
+        Map<Long, Chunk> partial = new HashMap<>();
+        Map<Long, Integer> cells = new HashMap<>();
+        while (reader.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) return;
+            if (reader.next() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("block")) continue;
+
+            int x = Integer.parseInt(reader.getAttributeValue(null, "x"));
+            int y = Integer.parseInt(reader.getAttributeValue(null, "y"));
+            BlockType type = BlockType.valueOf(reader.getAttributeValue(null, "type"));
+
+            int cx = Math.floorDiv(x, Chunk.SIZE), cy = Math.floorDiv(y, Chunk.SIZE);
+            long key = Chunk.key(cx, cy);
+            Chunk chunk = partial.computeIfAbsent(key, k -> new Chunk(cx, cy));
+            chunk.set(Math.floorMod(x, Chunk.SIZE), Math.floorMod(y, Chunk.SIZE), type);
+            int count = cells.merge(key, 1, Integer::sum);
+            if (count == Chunk.SIZE * Chunk.SIZE) {
+                partial.remove(key);
+                cells.remove(key);
+                if (!chunk.isEmpty()) out.accept(chunk);
+                progress.accept((double) input.count / length);
+            }
+        }
+        for (Chunk chunk : partial.values())
+            if (!chunk.isEmpty()) out.accept(chunk);
+    }
+
+    /**
+     * Lee un archivo con el formato de {@link WorldFile} de a un chunk por vez.
+     *
+     * @param out      recibe cada chunk leido.
+     * @param progress recibe la fraccion del archivo leida.
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado.
+     */
+    static void readBinary(File file, Consumer<Chunk> out, DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = Math.max(channel.size(), 1);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+
+            int count = WorldFile.readHeader(fill(channel, buffer, WorldFile.HEADER_SIZE), file);
+            for (int i = 0; i < count; i++) {
+                if (Thread.currentThread().isInterrupted()) return;
+                fill(channel, buffer, WorldFile.CHUNK_HEADER_SIZE);
+                // El largo de los datos esta despues de cx y cy
+                int size = buffer.getInt(buffer.position() + 8);
+                if (size < 0 || WorldFile.CHUNK_HEADER_SIZE + size > BUFFER_SIZE)
+                    throw new IOException("El archivo " + file + " esta corrupto");
+                fill(channel, buffer, WorldFile.CHUNK_HEADER_SIZE + size);
+                out.accept(WorldFile.readChunk(buffer, file));
+                progress.accept((double) (channel.position() - buffer.remaining()) / length);
+            }
+            progress.accept(1);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("El archivo " + file + " esta corrupto", e);
+        }
+    }
+
+    /**
+     * Se asegura de que queden al menos n bytes sin leer en el buffer, leyendo mas del archivo si hace falta.
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() >= n) return buffer;
+        buffer.compact();
+        while (buffer.position() < n)
+            if (channel.read(buffer) < 0) throw new IOException("Fin de archivo inesperado");
+        buffer.flip();
+        return buffer;
+    }
+
+    private class Task implements Runnable {
+
+        final File[] files;
+        final boolean xml;
+        final Consumer<Chunk> merged;
+        final Queue<Chunk> ready = new ConcurrentLinkedQueue<>();
+        Thread thread;
+        volatile float progress;
+        volatile boolean done;
+
+        Task(File[] files, boolean xml, Consumer<Chunk> merged) {
+            this.files = files;
+            this.xml = xml;
+            this.merged = merged;
+        }
+
+        @Override
+        public void run() {
+            File file = null;
+            try {
+                for (int i = 0; i < files.length && !Thread.currentThread().isInterrupted(); i++) {
+                    file = files[i];
+                    // Cada archivo ocupa la misma parte del progreso total
+                    int index = i;
+                    DoubleConsumer fraction = value -> progress = (float) ((index + value) / files.length);
+                    if (xml) readXml(file, ready::add, fraction);
+                    else readBinary(file, ready::add, fraction);
+                }
+            } catch (IOException e) {
+                // Si se cancelo la carga el error es esperable (por ejemplo el canal se cierra al interrumpir el hilo)
+                if (!Thread.currentThread().isInterrupted()) error.set("No se pudo cargar el archivo " + file);
+            } finally {
+                progress = 1;
+                done = true;
+            }
+        }
+
+    }
+
+    /**
+     * Cuenta los bytes leidos para calcular el progreso de la carga.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Guarda el mundo en un directorio con un archivo por chunk ({@link WorldFile} con un solo chunk), sin detener el hilo de
+ * renderizado.
+ * <p>
+ * {@link #save(BlockGrid)} se llama desde el hilo que modifica la grilla y solo copia los chunks cuya revision cambio desde el
+ * ultimo guardado (1 KB por chunk); la compresion y la escritura a disco ocurren en un hilo aparte. Cada archivo se escribe con
+ * {@link WorldFile#writeAtomic(File, java.util.Collection)}, asi que un guardado interrumpido nunca deja un chunk a medio
+ * escribir. Guardar varias veces seguidas sin modificar nada no escribe ningun archivo.
+ * <p>
+ * Los chunks desalojados por un {@link ChunkPager} tambien se guardan, sin volver a cargarlos en la grilla
+ * ({@link BlockGrid#forEachChunk}). Un chunk guardado que ya no esta en la grilla ni en el pager se considera vacio y se borra su
+ * archivo. Si no se pudo borrar, se vuelve a intentar en cada guardado hasta lograrlo.
+ * <p>
+ * El hilo de escritura no muestra dialogos (Swing no se debe usar desde cualquier hilo): los errores se guardan y el hilo que
+ * guarda los consulta con {@link #pollError()}.
+ */
+
+public class WorldSaver {
+
+    private final File dir;
+    // Un solo hilo, asi las escrituras de un mismo chunk nunca se adelantan entre si
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "world-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Ultimo chunk guardado en cada posicion y su revision en ese momento (solo se usa desde el hilo de la grilla)
+    private final Map<Long, Chunk> saved = new HashMap<>();
+    private final Map<Long, Integer> savedRevisions = new HashMap<>();
+    // Chunks que no se pudieron escribir o borrar, se vuelven a guardar en el proximo save()
+    private final Queue<Long> failed = new ConcurrentLinkedQueue<>();
+    private Future<?> pending;
+    // Ultimo error del hilo de escritura, hasta que se consulta
+    private final AtomicReference<String> error = new AtomicReference<>();
+
+    // Chunks escritos en el ultimo guardado
+    private volatile int written;
+
+    public WorldSaver(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Encola la escritura de los chunks que cambiaron desde el ultimo guardado y vuelve de inmediato.
+     *
+     * @return cantidad de chunks encolados.
+     */
+    public int save(BlockGrid grid) {
+        // Las posiciones que fallaron se vuelven a escribir si siguen en la grilla, o a borrar si ya no estan
+        Set<Long> retry = new HashSet<>();
+        Long key;
+        while ((key = failed.poll()) != null) {
+            saved.remove(key);
+            savedRevisions.remove(key);
+            retry.add(key);
+        }
+
+        List<Chunk> snapshots = new ArrayList<>();
+        Set<Long> present = new HashSet<>();
+        grid.forEachChunk(chunk -> {
+            long k = Chunk.key(chunk.cx, chunk.cy);
+            present.add(k);
+            // Se compara la instancia ademas de la revision porque load() o clear() reemplazan los chunks
+            if (saved.get(k) == chunk && savedRevisions.get(k) == chunk.getRevision()) return;
+            saved.put(k, chunk);
+            savedRevisions.put(k, chunk.getRevision());
+            snapshots.add(chunk.copy());
+        });
+
+        // Los chunks que desaparecieron de la grilla (y del pager) se guardan vacios (se borra su archivo)
+        Iterator<Map.Entry<Long, Chunk>> iterator = saved.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next().getValue();
+            if (present.contains(Chunk.key(chunk.cx, chunk.cy))) continue;
+            iterator.remove();
+            savedRevisions.remove(Chunk.key(chunk.cx, chunk.cy));
+            snapshots.add(new Chunk(chunk.cx, chunk.cy));
+        }
+        for (long k : retry)
+            if (!present.contains(k)) snapshots.add(new Chunk((int) (k >> 32), (int) k));
+
+        if (!snapshots.isEmpty()) pending = writer.submit(() -> write(snapshots));
+        return snapshots.size();
+    }
+
+    private void write(List<Chunk> snapshots) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            for (Chunk chunk : snapshots)
+                failed.add(Chunk.key(chunk.cx, chunk.cy));
+            error.set("No se pudo crear el directorio " + dir);
+            return;
+        }
+        int count = 0;
+        for (Chunk chunk : snapshots) {
+            File file = file(chunk.cx, chunk.cy);
+            try {
+                if (chunk.isEmpty()) Files.deleteIfExists(file.toPath());
+                else WorldFile.writeAtomic(file, Collections.singletonList(chunk));
+                count++;
+            } catch (IOException e) {
+                failed.add(Chunk.key(chunk.cx, chunk.cy));
+            }
+        }
+        written = count;
+        if (count < snapshots.size())
+            error.set("No se pudieron guardar " + (snapshots.size() - count) + " chunks en " + dir);
+    }
+
+    /**
+     * Devuelve el ultimo error del hilo de escritura y lo olvida, o null si no hubo errores desde la consulta anterior. Se llama
+     * desde el hilo de la grilla, por ejemplo una vez por cuadro, para informarlo al usuario.
+     */
+    public String pollError() {
+        return error.getAndSet(null);
+    }
+
+    /**
+     * Espera a que terminen los guardados pendientes, vacia la grilla y empieza a cargar los archivos del directorio con el
+     * loader. Los chunks se agregan a medida que se llama a {@link WorldLoader#update(BlockGrid, int)}.
+     */
+    public void load(BlockGrid grid, WorldLoader loader) {
+        await();
+        Set<Long> stale = deleteFailed(grid);
+        List<File> files = new ArrayList<>();
+        File[] all = dir.listFiles((d, name) -> name.startsWith("c.") && name.endsWith(".dat"));
+        if (all == null) {
+            error.set("No se pudo leer el directorio " + dir);
+            return;
+        }
+        Set<File> skip = new HashSet<>();
+        for (long key : stale)
+            skip.add(file((int) (key >> 32), (int) key));
+        for (File file : all)
+            // Un chunk borrado cuyo archivo no se pudo borrar no vuelve a aparecer
+            if (!skip.contains(file)) files.add(file);
+        // Se siguen intentando borrar en los proximos guardados
+        failed.addAll(stale);
+
+        saved.clear();
+        savedRevisions.clear();
+        loader.loadBinary(grid, files.toArray(new File[0]), chunk -> {
+            // Si el chunk se mezclo con uno editado durante la carga, el del disco ya no coincide y se vuelve a guardar
+            if (grid.getLoadedChunk(chunk.cx, chunk.cy) != chunk) return;
+            long key = Chunk.key(chunk.cx, chunk.cy);
+            saved.put(key, chunk);
+            savedRevisions.put(key, chunk.getRevision());
+        });
+    }
+
+    /**
+     * Vuelve a intentar borrar los archivos de los chunks que fallaron y ya no estan en la grilla.
+     *
+     * @return las posiciones cuyo archivo sigue sin poder borrarse.
+     */
+    private Set<Long> deleteFailed(BlockGrid grid) {
+        Set<Long> present = new HashSet<>();
+        grid.forEachChunk(chunk -> present.add(Chunk.key(chunk.cx, chunk.cy)));
+        Set<Long> stale = new HashSet<>();
+        Long key;
+        while ((key = failed.poll()) != null) {
+            // Una escritura que fallo dejo la version anterior del chunk, que es la que se carga
+            if (present.contains(key)) continue;
+            try {
+                Files.deleteIfExists(file((int) (key >> 32), (int) (long) key).toPath());
+            } catch (IOException e) {
+                stale.add(key);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Bloquea hasta que se escriban todos los chunks encolados.
+     */
+    public void await() {
+        if (pending == null) return;
+        try {
+            // Las tareas se ejecutan en orden, basta con esperar la ultima
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Los errores de escritura quedan para pollError()
+        }
+    }
+
+    /**
+     * Termina los guardados pendientes y detiene el hilo de escritura.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isSaving() {
+        return pending != null && !pending.isDone();
+    }
+
+    /**
+     * Devuelve la cantidad de chunks escritos en el ultimo guardado terminado.
+     */
+    public int getWritten() {
+        return written;
+    }
+
+    private File file(int cx, int cy) {
+        return new File(dir, "c." + cx + "." + cy + ".dat");
+    }
+
+}
\ No newline at end of file
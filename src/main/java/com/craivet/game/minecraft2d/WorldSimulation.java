@@ -0,0 +1,206 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+import com.craivet.SimulationThread;
+
+/**
+ * Estado del mundo (la grilla, el guardado y la carga) separado de la pantalla, para avanzarlo en el hilo de OpenGL o en un
+ * {@link SimulationThread}.
+ * <p>
+ * La pantalla nunca modifica la grilla directamente: cada cambio se encola en una cola sin bloqueos y se aplica al comienzo del
+ * proximo {@link #update(double)}, en el hilo que avanza el mundo. Con otro hilo, cada paso publica en un {@link Frame} una
+ * copia de los chunks cercanos a la vista y la pantalla la pasa a su propia grilla con {@link Frame#copyTo(BlockGrid)}; asi el
+ * hilo de OpenGL solo lee chunks que nadie mas modifica.
+ */
+
+public class WorldSimulation implements SimulationThread.Simulation<WorldSimulation.Frame> {
+
+    private final BlockGrid grid = new BlockGrid();
+    private final WorldSaver saver;
+    private final WorldLoader loader = new WorldLoader();
+    // Cambios pedidos por la pantalla y errores para mostrarle, cada cola tiene un solo hilo que escribe y uno que lee
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+    // Chunk de la esquina de la vista (Chunk.key) y distancia en chunks que se conserva alrededor, los escribe la pantalla
+    private volatile long view;
+    private volatile int radius = 2;
+    // Vista con la que se desalojaron chunks por ultima vez
+    private long evicted;
+
+    public WorldSimulation(File dir) {
+        saver = new WorldSaver(dir);
+    }
+
+    /**
+     * Aplica los cambios pedidos desde el paso anterior, agrega los chunks de una carga en curso y desaloja los chunks que quedaron
+     * lejos de la vista.
+     */
+    @Override
+    public void update(double delta) {
+        Runnable command;
+        while ((command = commands.poll()) != null)
+            command.run();
+        // Los chunks de una carga en curso se agregan de a poco para no trabar el paso
+        if (loader.isLoading()) loader.update(grid, 64);
+        report(saver.pollError());
+        report(loader.pollError());
+        long current = view;
+        if (current != evicted) {
+            evicted = current;
+            grid.evict((int) (current >> 32), (int) current, radius);
+        }
+    }
+
+    /**
+     * Copia los chunks que rodean la vista y el progreso de la carga.
+     */
+    @Override
+    public void write(Frame frame) {
+        long current = view;
+        int cx = (int) (current >> 32), cy = (int) current, r = radius;
+        frame.copyFrom(grid, cx - r, cy - r, cx + r, cy + r);
+        frame.loading = loader.isLoading();
+        frame.progress = loader.getProgress();
+    }
+
+    private void report(String error) {
+        if (error != null) errors.add(error);
+    }
+
+    /**
+     * Cambia la vista. Se puede llamar desde cualquier hilo, por ejemplo en cada cuadro.
+     *
+     * @param cx     chunk de la esquina de la vista.
+     * @param cy     chunk de la esquina de la vista.
+     * @param radius distancia en chunks a la que se conservan y se publican los chunks.
+     */
+    public void setView(int cx, int cy, int radius) {
+        this.radius = radius;
+        view = Chunk.key(cx, cy);
+    }
+
+    public void setAt(BlockType type, int x, int y) {
+        commands.add(() -> grid.setAt(type, x, y));
+    }
+
+    /**
+     * Encola el guardado de los chunks modificados, la escritura ocurre en el hilo del {@link WorldSaver}.
+     */
+    public void save() {
+        commands.add(() -> saver.save(grid));
+    }
+
+    /**
+     * Vacia la grilla y carga los archivos por chunk del directorio, de a poco en los proximos pasos.
+     */
+    public void load() {
+        commands.add(() -> saver.load(grid, loader));
+    }
+
+    public void exportXml(File file) {
+        commands.add(() -> grid.exportXml(file));
+    }
+
+    public void importXml(File file) {
+        commands.add(() -> loader.loadXml(grid, file));
+    }
+
+    public void clear() {
+        commands.add(grid::clear);
+    }
+
+    /**
+     * Devuelve el proximo error del guardado o de la carga, o null si no hay. Se llama desde el hilo de OpenGL para mostrarlo.
+     */
+    public String pollError() {
+        return errors.poll();
+    }
+
+    /**
+     * Devuelve la grilla. Solo se puede usar desde el hilo que llama a {@link #update(double)}.
+     */
+    public BlockGrid getGrid() {
+        return grid;
+    }
+
+    public boolean isLoading() {
+        return loader.isLoading();
+    }
+
+    public float getProgress() {
+        return loader.getProgress();
+    }
+
+    /**
+     * Cancela la carga en curso y termina los guardados pendientes. Se llama despues de detener el hilo que avanza el mundo.
+     */
+    public void close() {
+        loader.cancel();
+        saver.close();
+    }
+
+    /**
+     * Chunks cercanos a la vista en un paso de la simulacion. Las copias se reutilizan entre publicaciones, solo se crean al
+     * aparecer chunks nuevos en la vista.
+     */
+    public static class Frame {
+
+        final Map<Long, Chunk> chunks = new HashMap<>();
+        // Chunks de la grilla de destino que ya no estan en la copia
+        private final Predicate<Chunk> missing = chunk -> !chunks.containsKey(Chunk.key(chunk.cx, chunk.cy));
+        boolean loading;
+        float progress;
+
+        /**
+         * Copia los chunks cargados entre (cx1, cy1) y (cx2, cy2) inclusive y olvida los demas.
+         */
+        void copyFrom(BlockGrid grid, int cx1, int cy1, int cx2, int cy2) {
+            Iterator<Chunk> iterator = chunks.values().iterator();
+            while (iterator.hasNext()) {
+                Chunk chunk = iterator.next();
+                if (chunk.cx < cx1 || chunk.cx > cx2 || chunk.cy < cy1 || chunk.cy > cy2 || grid.getLoadedChunk(chunk.cx, chunk.cy) == null)
+                    iterator.remove();
+            }
+            for (int cy = cy1; cy <= cy2; cy++) {
+                for (int cx = cx1; cx <= cx2; cx++) {
+                    Chunk source = grid.getLoadedChunk(cx, cy);
+                    if (source == null) continue;
+                    Chunk copy = chunks.get(Chunk.key(cx, cy));
+                    if (copy == null) chunks.put(Chunk.key(cx, cy), copy = new Chunk(cx, cy));
+                    copy.copyFrom(source);
+                }
+            }
+        }
+
+        /**
+         * Deja en la grilla los mismos chunks que la copia. Los chunks que no cambiaron conservan su instancia y su revision, asi
+         * {@link TileLayer} solo vuelve a armar los que cambiaron.
+         */
+        public void copyTo(BlockGrid target) {
+            target.removeChunks(missing);
+            for (Chunk chunk : chunks.values()) {
+                Chunk current = target.getLoadedChunk(chunk.cx, chunk.cy);
+                if (current == null) target.putChunk(chunk.copy());
+                else current.copyFrom(chunk);
+            }
+        }
+
+        public boolean isLoading() {
+            return loading;
+        }
+
+        public float getProgress() {
+            return progress;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.craivet.game.pong;
 
 import org.lwjgl.LWJGLException;
-import org.lwjgl.Sys;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
+import com.craivet.GameLoop;
+import com.craivet.SimulationThread;
+import com.craivet.TripleBuffer;
 import com.craivet.game.entities.AbstractMovableEntity;
+import com.craivet.rendered.InstancedQuads;
 
 import javax.swing.*;
 
@@ -26,37 +29,71 @@ import static com.craivet.Global.*;
  * </ul>
  * En conclusion, con valores de FPS menores el Delta se incrementa, los desplazamientos en estos frames son mayores pero tenemos
  * menos frames, por lo tanto el resultado de la suma final es el mismo. Ahora podemos decir que el juego es <b>framerate independente</b>.
+ * <p>
+ * Con un delta variable la suma final es la misma solo aproximadamente: un cuadro lento puede hacer que la bola atraviese el
+ * bate. Por eso el juego avanza con {@link GameLoop} en pasos fijos de 1/120 segundos, sin importar los FPS, y al dibujar
+ * interpola entre la posicion anterior y la actual.
+ * <p>
+ * Con {@code --threaded} la simulacion corre en un {@link SimulationThread} y publica cada paso en un {@link TripleBuffer}; el
+ * hilo principal solo lee el teclado, dibuja el ultimo estado publicado y espera el intercambio de buffers.
  */
 
-public class Pong {
+public class Pong implements GameLoop.Game, SimulationThread.Simulation<Pong.State> {
+
+    private static final int UPDATES_PER_SECOND = 120;
 
     private static Bat bat;
     private static Ball ball;
+    // Posiciones antes del ultimo paso, para interpolar al dibujar
+    private double ballX, ballY, batX, batY;
+    // Direccion del bate segun el teclado (1 arriba, -1 abajo), la escribe el hilo de OpenGL y la lee la simulacion
+    private volatile int direction;
+    // Estado que se dibuja cuando la simulacion corre en el mismo hilo
+    private final State state = new State();
+    // Dibuja la bola y el bate con una sola llamada
+    private InstancedQuads quads;
+
+    /**
+     * Posiciones de la bola y el bate antes y despues del ultimo paso.
+     */
+    static class State {
+
+        double ballX0, ballY0, ballX, ballY, ballWidth, ballHeight;
+        double batX0, batY0, batX, batY, batWidth, batHeight;
+        // Momento en que se publico, para calcular cuanto del siguiente paso transcurrio al dibujar
+        long time;
 
-    private static long lastFrame;
+    }
 
-    public void start() {
+    public void start(boolean threaded) {
 
         setUpDisplay();
         setUpOpenGL();
         setUpEntities();
-        setUpTimer();
+        quads = new InstancedQuads(16);
 
-        while (!Display.isCloseRequested()) {
+        if (threaded) runThreaded();
+        // Actualiza las entidades en pasos fijos y dibuja su posicion interpolada en cada cuadro
+        else new GameLoop(this, UPDATES_PER_SECOND).run();
 
-            // Actualiza (usando un valor delta) y dibuja la nueva posicion de las entidades
-            update(Delta.getDelta());
-            render();
-            input();
+        quads.dispose();
+        Display.destroy();
 
-            // Cantidad de veces que se actualiza la pantalla del juego por segundo
-            Display.update();
-            Display.sync(FPS); // Mientras mas bajo sean los FPS mayor sera el delta
+    }
 
+    private void runThreaded() {
+        TripleBuffer<State> states = new TripleBuffer<>(State::new);
+        SimulationThread<State> simulation = new SimulationThread<>(this, states, UPDATES_PER_SECOND);
+        simulation.start();
+        while (!Display.isCloseRequested()) {
+            input();
+            states.swap();
+            State latest = states.getReadBuffer();
+            // El estado publicado esta un paso atras, se interpola segun el tiempo transcurrido desde la publicacion
+            float alpha = Math.min(1, (float) (System.nanoTime() - latest.time) / simulation.getStepNanos());
+            draw(latest, alpha);
         }
-
-        Display.destroy();
-
+        simulation.stop();
     }
 
     private void setUpDisplay() {
@@ -85,13 +122,31 @@ public class Pong {
         ball = new Ball((double) WIDTH / 2 - (double) 10 / 2, (double) HEIGHT / 2 - (double) 10 / 2, 10, 10);
         // Para que la bola comience a desplazarse hacia la izquierda
         ball.setDX(-0.1);
+        // Sin un paso anterior, el primer cuadro interpola entre la posicion inicial y ella misma
+        ballX = ball.getX();
+        ballY = ball.getY();
+        batX = bat.getX();
+        batY = bat.getY();
     }
 
-    private void setUpTimer() {
-        lastFrame = Delta.getTime();
+    @Override
+    public boolean isRunning() {
+        return !Display.isCloseRequested();
     }
 
-    private void update(double delta) {
+    /**
+     * Avanza la simulacion un paso, en el hilo de simulacion si se ejecuta con {@code --threaded}.
+     */
+    @Override
+    public void update(double delta) {
+        // El bate se detiene en los bordes de la ventana y queda en su lugar cuando no se presiona ninguna tecla
+        if (direction > 0 && bat.getY() + bat.getHeight() <= HEIGHT) bat.setDY(0.2);
+        else if (direction < 0 && bat.getY() >= 0) bat.setDY(-0.2);
+        else bat.setDY(0);
+        ballX = ball.getX();
+        ballY = ball.getY();
+        batX = bat.getX();
+        batY = bat.getY();
         ball.update(delta);
         bat.update(delta);
         // Si la bola intersecta con el bate
@@ -100,32 +155,58 @@ public class Pong {
         if (ball.getX() + ball.getWidth() >= WIDTH) ball.setDX(-0.3);
     }
 
-    private void render() {
-        glClear(GL_COLOR_BUFFER_BIT);
-        ball.draw();
-        bat.draw();
+    @Override
+    public void write(State snapshot) {
+        snapshot.ballX0 = ballX;
+        snapshot.ballY0 = ballY;
+        snapshot.ballX = ball.getX();
+        snapshot.ballY = ball.getY();
+        snapshot.ballWidth = ball.getWidth();
+        snapshot.ballHeight = ball.getHeight();
+        snapshot.batX0 = batX;
+        snapshot.batY0 = batY;
+        snapshot.batX = bat.getX();
+        snapshot.batY = bat.getY();
+        snapshot.batWidth = bat.getWidth();
+        snapshot.batHeight = bat.getHeight();
+        snapshot.time = System.nanoTime();
     }
 
-    private void input() {
-        // Si se presiono te tecla de arriba y el bate no llego al alto de la ventana
-        if (Keyboard.isKeyDown(Keyboard.KEY_UP) && bat.getY() + bat.getHeight() <= HEIGHT) bat.setDY(0.2);
-        else if (Keyboard.isKeyDown(Keyboard.KEY_DOWN) && bat.getY() >= 0) bat.setDY(-0.2);
-        else bat.setDY(0); // Para que el bate quede en su lugar cuando no se presiona ninguna tecla
+    @Override
+    public void render(float alpha) {
+        write(state);
+        draw(state, alpha);
     }
 
-    private static class Delta {
-
-        private static long getTime() {
-            return (Sys.getTime() * 1000) / Sys.getTimerResolution();
-        }
+    private void draw(State state, float alpha) {
+        glClear(GL_COLOR_BUFFER_BIT);
+        quads.begin();
+        draw(state.ballX0, state.ballY0, state.ballX, state.ballY, state.ballWidth, state.ballHeight, alpha);
+        draw(state.batX0, state.batY0, state.batX, state.batY, state.batWidth, state.batHeight, alpha);
+        quads.end();
+
+        // Cantidad de veces que se actualiza la pantalla del juego por segundo, ya no cambia la velocidad del juego
+        Display.update();
+        Display.sync(FPS);
+    }
 
-        private static double getDelta() {
-            long currentTime = getTime();
-            double delta = currentTime - lastFrame;
-            lastFrame = currentTime;
-            return delta;
-        }
+    /**
+     * Dibuja una entidad entre su posicion anterior (alpha = 0) y la actual (alpha = 1).
+     */
+    private void draw(double previousX, double previousY, double x, double y, double width, double height, float alpha) {
+        quads.draw((float) (previousX + (x - previousX) * alpha), (float) (previousY + (y - previousY) * alpha), (float) width, (float) height);
+    }
 
+    /**
+     * Lee el teclado. Siempre se llama desde el hilo de OpenGL, que es el unico que puede usarlo: {@link GameLoop} lo llama una
+     * vez por cuadro y con {@code --threaded} lo llama el bucle de dibujo.
+     */
+    @Override
+    public void input() {
+        // Si se presiono la tecla de arriba o la de abajo, los limites de la ventana se controlan en cada paso
+        if (Keyboard.isKeyDown(Keyboard.KEY_UP)) direction = 1;
+        else if (Keyboard.isKeyDown(Keyboard.KEY_DOWN)) direction = -1;
+        else direction = 0;
     }
 
     private static class Bat extends AbstractMovableEntity {
@@ -153,7 +234,7 @@ public class Pong {
     }
 
     public static void main(String[] args) {
-        new Pong().start();
+        new Pong().start(args.length > 0 && args[0].equals("--threaded"));
     }
 
 }
\ No newline at end of file
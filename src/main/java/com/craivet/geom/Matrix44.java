@@ -1,5 +1,6 @@
 package com.craivet.geom;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
  /**
@@ -140,36 +141,422 @@ import java.util.Arrays;
  * sistema de coordenadas local B (se mueve con el). Sin embargo, las coordenadas de ese punto cambiaran en el sistema de
  * coordenadas A. Al multiplicar el punto cuyas coordenadas estan expresadas en relacion con A por la matriz B, obtendremos las
  * nuevas coordenadas del punto en el sistema de coordenadas A.
+ * <br><br>
+ * <h2>Implementacion</h2>
+ * Los 16 coeficientes se guardan en un solo arreglo {@code float[16]} fila por fila, en lugar de un arreglo de filas: la matriz
+ * es un solo objeto contiguo y leer un coeficiente no pasa por otro arreglo. Se usa la convencion de vectores fila de este
+ * capitulo (P' = P * M, la traslacion en M30, M31 y M32). Como OpenGL usa vectores columna pero guarda sus matrices en
+ * column-major, los dos arreglos quedan iguales y {@link #store(FloatBuffer)} los copia sin trasponer.
+ * <p>
+ * Los constructores de transformaciones ({@code translation}, {@code rotation}, {@code scaling}, {@code ortho},
+ * {@code perspective}) reemplazan la matriz; {@code translate}, {@code rotate} y {@code scale} la combinan igual que las llamadas
+ * de OpenGL sobre la matriz actual. Ninguna operacion crea objetos. {@link Matrix44d} es la misma matriz con double.
  */
 
 public class Matrix44 {
 
-    private final double[][] m;
+    /**
+     * Coeficientes fila por fila: m[fila * 4 + columna]. Con vectores fila la traslacion queda en m[12], m[13] y m[14], las
+     * mismas posiciones que espera OpenGL en column-major, asi el arreglo se copia tal cual.
+     */
+    public final float[] m = new float[16];
 
+    /**
+     * Crea la matriz identidad.
+     */
     public Matrix44() {
-        // Inicializa los coeficientes de la matriz con los coeficientes de la matriz identidad
-        m = new double[][]{
-                {1, 0, 0, 0},
-                {0, 1, 0, 0},
-                {0, 0, 1, 0},
-                {0, 0, 0, 1}
-        };
+        identity();
     }
 
-    public double[] getRow(int i) {
-        return m[i];
+    public Matrix44(Matrix44 other) {
+        set(other);
     }
 
-    public void setRow(int i, double[] row) {
-        m[i] = row;
+    public float get(int row, int column) {
+        return m[row * 4 + column];
     }
 
-    public static void main(String[] args) {
-        Matrix44 matrix = new Matrix44();
-        System.out.println(Arrays.toString(matrix.getRow(3))); // Accede a los coeficientes de la fila 3
-        System.out.println(matrix.m[0][0]); // Accede al coeficiente del subindice 0,0
+    public Matrix44 set(int row, int column, float value) {
+        m[row * 4 + column] = value;
+        return this;
+    }
+
+    /**
+     * Copia la fila i en dest, que debe tener al menos 4 elementos.
+     */
+    public float[] getRow(int i, float[] dest) {
+        System.arraycopy(m, i * 4, dest, 0, 4);
+        return dest;
+    }
+
+    public Matrix44 setRow(int i, float x, float y, float z, float w) {
+        m[i * 4] = x;
+        m[i * 4 + 1] = y;
+        m[i * 4 + 2] = z;
+        m[i * 4 + 3] = w;
+        return this;
+    }
+
+    public Matrix44 set(Matrix44 other) {
+        System.arraycopy(other.m, 0, m, 0, 16);
+        return this;
+    }
+
+    public Matrix44 identity() {
+        Arrays.fill(m, 0);
+        m[0] = m[5] = m[10] = m[15] = 1;
+        return this;
+    }
+
+    /**
+     * Multiplica esta matriz por b (this * b) y guarda el resultado en esta. Con vectores fila un punto transformado por el
+     * resultado se transforma primero por esta matriz y despues por b.
+     */
+    public Matrix44 mul(Matrix44 b) {
+        return mul(b, this);
+    }
+
+    /**
+     * Multiplica esta matriz por b (this * b) y guarda el resultado en dest, que puede ser cualquiera de las dos.
+     */
+    public Matrix44 mul(Matrix44 b, Matrix44 dest) {
+        float[] a = m, c = b.m;
+        // Todos los productos se calculan antes de escribir, asi dest puede ser this o b
+        float r00 = a[0] * c[0] + a[1] * c[4] + a[2] * c[8] + a[3] * c[12];
+        float r01 = a[0] * c[1] + a[1] * c[5] + a[2] * c[9] + a[3] * c[13];
+        float r02 = a[0] * c[2] + a[1] * c[6] + a[2] * c[10] + a[3] * c[14];
+        float r03 = a[0] * c[3] + a[1] * c[7] + a[2] * c[11] + a[3] * c[15];
+        float r10 = a[4] * c[0] + a[5] * c[4] + a[6] * c[8] + a[7] * c[12];
+        float r11 = a[4] * c[1] + a[5] * c[5] + a[6] * c[9] + a[7] * c[13];
+        float r12 = a[4] * c[2] + a[5] * c[6] + a[6] * c[10] + a[7] * c[14];
+        float r13 = a[4] * c[3] + a[5] * c[7] + a[6] * c[11] + a[7] * c[15];
+        float r20 = a[8] * c[0] + a[9] * c[4] + a[10] * c[8] + a[11] * c[12];
+        float r21 = a[8] * c[1] + a[9] * c[5] + a[10] * c[9] + a[11] * c[13];
+        float r22 = a[8] * c[2] + a[9] * c[6] + a[10] * c[10] + a[11] * c[14];
+        float r23 = a[8] * c[3] + a[9] * c[7] + a[10] * c[11] + a[11] * c[15];
+        float r30 = a[12] * c[0] + a[13] * c[4] + a[14] * c[8] + a[15] * c[12];
+        float r31 = a[12] * c[1] + a[13] * c[5] + a[14] * c[9] + a[15] * c[13];
+        float r32 = a[12] * c[2] + a[13] * c[6] + a[14] * c[10] + a[15] * c[14];
+        float r33 = a[12] * c[3] + a[13] * c[7] + a[14] * c[11] + a[15] * c[15];
+        float[] d = dest.m;
+        d[0] = r00;
+        d[1] = r01;
+        d[2] = r02;
+        d[3] = r03;
+        d[4] = r10;
+        d[5] = r11;
+        d[6] = r12;
+        d[7] = r13;
+        d[8] = r20;
+        d[9] = r21;
+        d[10] = r22;
+        d[11] = r23;
+        d[12] = r30;
+        d[13] = r31;
+        d[14] = r32;
+        d[15] = r33;
+        return dest;
+    }
+
+    public Matrix44 transpose() {
+        swap(1, 4);
+        swap(2, 8);
+        swap(3, 12);
+        swap(6, 9);
+        swap(7, 13);
+        swap(11, 14);
+        return this;
+    }
+
+    private void swap(int i, int j) {
+        float t = m[i];
+        m[i] = m[j];
+        m[j] = t;
+    }
+
+    /**
+     * Indica si la matriz es afin, es decir si la cuarta columna es (0, 0, 0, 1), como en las combinaciones de traslacion,
+     * rotacion y escala.
+     */
+    public boolean isAffine() {
+        return m[3] == 0 && m[7] == 0 && m[11] == 0 && m[15] == 1;
+    }
+
+    /**
+     * Invierte la matriz. Si es afin invierte solo la parte 3x3 y despues la traslacion, que es bastante mas barato que el caso
+     * general.
+     *
+     * @throws IllegalStateException si la matriz no es invertible.
+     */
+    public Matrix44 invert() {
+        return isAffine() ? invertAffine() : invertGeneral();
+    }
+
+    private Matrix44 invertAffine() {
+        // Cofactores de la parte 3x3
+        float c00 = m[5] * m[10] - m[6] * m[9];
+        float c01 = m[6] * m[8] - m[4] * m[10];
+        float c02 = m[4] * m[9] - m[5] * m[8];
+        float det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (det == 0) throw new IllegalStateException("La matriz no es invertible");
+        float inv = 1 / det;
+        float r00 = c00 * inv;
+        float r01 = (m[2] * m[9] - m[1] * m[10]) * inv;
+        float r02 = (m[1] * m[6] - m[2] * m[5]) * inv;
+        float r10 = c01 * inv;
+        float r11 = (m[0] * m[10] - m[2] * m[8]) * inv;
+        float r12 = (m[2] * m[4] - m[0] * m[6]) * inv;
+        float r20 = c02 * inv;
+        float r21 = (m[1] * m[8] - m[0] * m[9]) * inv;
+        float r22 = (m[0] * m[5] - m[1] * m[4]) * inv;
+        // La traslacion inversa es -t * inversa(3x3)
+        float tx = m[12], ty = m[13], tz = m[14];
+        m[0] = r00;
+        m[1] = r01;
+        m[2] = r02;
+        m[4] = r10;
+        m[5] = r11;
+        m[6] = r12;
+        m[8] = r20;
+        m[9] = r21;
+        m[10] = r22;
+        m[12] = -(tx * r00 + ty * r10 + tz * r20);
+        m[13] = -(tx * r01 + ty * r11 + tz * r21);
+        m[14] = -(tx * r02 + ty * r12 + tz * r22);
+        return this;
+    }
+
+    private Matrix44 invertGeneral() {
+        // Determinantes 2x2 de las dos filas de arriba (s) y de las dos de abajo (c)
+        float s0 = m[0] * m[5] - m[1] * m[4];
+        float s1 = m[0] * m[6] - m[2] * m[4];
+        float s2 = m[0] * m[7] - m[3] * m[4];
+        float s3 = m[1] * m[6] - m[2] * m[5];
+        float s4 = m[1] * m[7] - m[3] * m[5];
+        float s5 = m[2] * m[7] - m[3] * m[6];
+        float c5 = m[10] * m[15] - m[11] * m[14];
+        float c4 = m[9] * m[15] - m[11] * m[13];
+        float c3 = m[9] * m[14] - m[10] * m[13];
+        float c2 = m[8] * m[15] - m[11] * m[12];
+        float c1 = m[8] * m[14] - m[10] * m[12];
+        float c0 = m[8] * m[13] - m[9] * m[12];
+        float det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0) throw new IllegalStateException("La matriz no es invertible");
+        float inv = 1 / det;
+        float r00 = (m[5] * c5 - m[6] * c4 + m[7] * c3) * inv;
+        float r01 = (-m[1] * c5 + m[2] * c4 - m[3] * c3) * inv;
+        float r02 = (m[13] * s5 - m[14] * s4 + m[15] * s3) * inv;
+        float r03 = (-m[9] * s5 + m[10] * s4 - m[11] * s3) * inv;
+        float r10 = (-m[4] * c5 + m[6] * c2 - m[7] * c1) * inv;
+        float r11 = (m[0] * c5 - m[2] * c2 + m[3] * c1) * inv;
+        float r12 = (-m[12] * s5 + m[14] * s2 - m[15] * s1) * inv;
+        float r13 = (m[8] * s5 - m[10] * s2 + m[11] * s1) * inv;
+        float r20 = (m[4] * c4 - m[5] * c2 + m[7] * c0) * inv;
+        float r21 = (-m[0] * c4 + m[1] * c2 - m[3] * c0) * inv;
+        float r22 = (m[12] * s4 - m[13] * s2 + m[15] * s0) * inv;
+        float r23 = (-m[8] * s4 + m[9] * s2 - m[11] * s0) * inv;
+        float r30 = (-m[4] * c3 + m[5] * c1 - m[6] * c0) * inv;
+        float r31 = (m[0] * c3 - m[1] * c1 + m[2] * c0) * inv;
+        float r32 = (-m[12] * s3 + m[13] * s1 - m[14] * s0) * inv;
+        float r33 = (m[8] * s3 - m[9] * s1 + m[10] * s0) * inv;
+        m[0] = r00;
+        m[1] = r01;
+        m[2] = r02;
+        m[3] = r03;
+        m[4] = r10;
+        m[5] = r11;
+        m[6] = r12;
+        m[7] = r13;
+        m[8] = r20;
+        m[9] = r21;
+        m[10] = r22;
+        m[11] = r23;
+        m[12] = r30;
+        m[13] = r31;
+        m[14] = r32;
+        m[15] = r33;
+        return this;
+    }
+
+    /**
+     * Reemplaza la matriz por una traslacion.
+     */
+    public Matrix44 translation(float x, float y, float z) {
+        identity();
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+        return this;
+    }
+
+    /**
+     * Reemplaza la matriz por una escala.
+     */
+    public Matrix44 scaling(float x, float y, float z) {
+        identity();
+        m[0] = x;
+        m[5] = y;
+        m[10] = z;
+        return this;
+    }
+
+    /**
+     * Reemplaza la matriz por una rotacion alrededor del eje (x, y, z), igual que glRotatef.
+     *
+     * @param angle angulo en grados.
+     */
+    public Matrix44 rotation(float angle, float x, float y, float z) {
+        return identity().rotate(angle, x, y, z);
+    }
+
+    /**
+     * Reemplaza la matriz por una proyeccion ortografica, igual que glOrtho.
+     */
+    public Matrix44 ortho(float left, float right, float bottom, float top, float near, float far) {
+        identity();
+        m[0] = 2 / (right - left);
+        m[5] = 2 / (top - bottom);
+        m[10] = -2 / (far - near);
+        m[12] = -(right + left) / (right - left);
+        m[13] = -(top + bottom) / (top - bottom);
+        m[14] = -(far + near) / (far - near);
+        return this;
     }
 
-}
+    /**
+     * Reemplaza la matriz por una proyeccion en perspectiva, igual que gluPerspective.
+     *
+     * @param fovy campo de vision vertical en grados.
+     */
+    public Matrix44 perspective(float fovy, float aspect, float near, float far) {
+        float f = (float) (1 / Math.tan(Math.toRadians(fovy) / 2));
+        Arrays.fill(m, 0);
+        m[0] = f / aspect;
+        m[5] = f;
+        m[10] = (far + near) / (near - far);
+        // La cuarta columna copia -z en w, por eso la matriz no es afin
+        m[11] = -1;
+        m[14] = 2 * far * near / (near - far);
+        return this;
+    }
 
+    /**
+     * Aplica una traslacion antes que esta transformacion (this = T * this), igual que glTranslatef sobre la matriz actual.
+     */
+    public Matrix44 translate(float x, float y, float z) {
+        // Solo cambia la ultima fila
+        m[12] += x * m[0] + y * m[4] + z * m[8];
+        m[13] += x * m[1] + y * m[5] + z * m[9];
+        m[14] += x * m[2] + y * m[6] + z * m[10];
+        m[15] += x * m[3] + y * m[7] + z * m[11];
+        return this;
+    }
+
+    /**
+     * Aplica una escala antes que esta transformacion (this = S * this), igual que glScalef sobre la matriz actual.
+     */
+    public Matrix44 scale(float x, float y, float z) {
+        for (int c = 0; c < 4; c++) {
+            m[c] *= x;
+            m[4 + c] *= y;
+            m[8 + c] *= z;
+        }
+        return this;
+    }
+
+    /**
+     * Aplica una rotacion antes que esta transformacion (this = R * this), igual que glRotatef sobre la matriz actual.
+     *
+     * @param angle angulo en grados.
+     */
+    public Matrix44 rotate(float angle, float x, float y, float z) {
+        float len = (float) Math.sqrt(x * x + y * y + z * z);
+        if (len == 0) throw new IllegalArgumentException("El eje de rotacion no puede ser (0, 0, 0)");
+        x /= len;
+        y /= len;
+        z /= len;
+        double radians = Math.toRadians(angle);
+        float c = (float) Math.cos(radians), s = (float) Math.sin(radians), t = 1 - c;
+        // Cada fila de R es un eje rotado (ver "Relacion entre matrices y sistemas de coordenadas cartesianas")
+        float r00 = t * x * x + c, r01 = t * x * y + s * z, r02 = t * x * z - s * y;
+        float r10 = t * x * y - s * z, r11 = t * y * y + c, r12 = t * y * z + s * x;
+        float r20 = t * x * z + s * y, r21 = t * y * z - s * x, r22 = t * z * z + c;
+        // R solo tiene la parte 3x3, asi que solo cambian las tres primeras filas
+        for (int col = 0; col < 4; col++) {
+            float a0 = m[col], a1 = m[4 + col], a2 = m[8 + col];
+            m[col] = r00 * a0 + r01 * a1 + r02 * a2;
+            m[4 + col] = r10 * a0 + r11 * a1 + r12 * a2;
+            m[8 + col] = r20 * a0 + r21 * a1 + r22 * a2;
+        }
+        return this;
+    }
+
+    /**
+     * Transforma un punto (w = 1). Si la matriz es una proyeccion y w' no es 1, divide el resultado por w'.
+     */
+    public Vec3f transformPoint(Vec3f p, Vec3f dest) {
+        float x = p.x * m[0] + p.y * m[4] + p.z * m[8] + m[12];
+        float y = p.x * m[1] + p.y * m[5] + p.z * m[9] + m[13];
+        float z = p.x * m[2] + p.y * m[6] + p.z * m[10] + m[14];
+        float w = p.x * m[3] + p.y * m[7] + p.z * m[11] + m[15];
+        if (w != 1 && w != 0) {
+            float inv = 1 / w;
+            return dest.set(x * inv, y * inv, z * inv);
+        }
+        return dest.set(x, y, z);
+    }
+
+    /**
+     * Transforma un vector (w = 0): no se traslada.
+     */
+    public Vec3f transformDirection(Vec3f v, Vec3f dest) {
+        return dest.set(v.x * m[0] + v.y * m[4] + v.z * m[8], v.x * m[1] + v.y * m[5] + v.z * m[9], v.x * m[2] + v.y * m[6] + v.z * m[10]);
+    }
+
+    /**
+     * Escribe los 16 coeficientes en el buffer a partir de su posicion, sin moverla, listo para glLoadMatrix o glUniformMatrix4
+     * (sin trasponer).
+     */
+    public FloatBuffer store(FloatBuffer buffer) {
+        int position = buffer.position();
+        for (int i = 0; i < 16; i++)
+            buffer.put(position + i, m[i]);
+        return buffer;
+    }
+
+    /**
+     * Escribe la traspuesta en el buffer a partir de su posicion, sin moverla y sin crear una copia traspuesta. Sirve para los
+     * shaders o bibliotecas que usan vectores columna en row-major.
+     */
+    public FloatBuffer storeTransposed(FloatBuffer buffer) {
+        int position = buffer.position();
+        for (int i = 0; i < 16; i++)
+            buffer.put(position + (i & 3) * 4 + (i >> 2), m[i]);
+        return buffer;
+    }
+
+    /**
+     * Lee los 16 coeficientes del buffer a partir de su posicion, sin moverla, por ejemplo despues de glGetFloat.
+     */
+    public Matrix44 load(FloatBuffer buffer) {
+        int position = buffer.position();
+        for (int i = 0; i < 16; i++)
+            m[i] = buffer.get(position + i);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 4; row++)
+            builder.append(Arrays.toString(getRow(row, new float[4]))).append('\n');
+        return builder.toString();
+    }
+
+    public static void main(String[] args) {
+        Matrix44 matrix = new Matrix44();
+        System.out.println(Arrays.toString(matrix.getRow(3, new float[4]))); // Accede a los coeficientes de la fila 3
+        System.out.println(matrix.get(0, 0)); // Accede al coeficiente del subindice 0,0
+    }
 
+}
\ No newline at end of file
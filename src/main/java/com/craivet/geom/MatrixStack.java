@@ -0,0 +1,129 @@
+package com.craivet.geom;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Pila de matrices del lado de la CPU, con las mismas operaciones que la pila de OpenGL (glPushMatrix, glPopMatrix,
+ * glTranslatef, glRotatef, glScalef, glMultMatrix).
+ * <p>
+ * Todas las matrices se crean en el constructor, asi que ninguna operacion crea objetos. La matriz del tope se puede aplicar a
+ * los vertices al armar un lote (ver {@link com.craivet.rendered.SpriteBatch#getTransform()}) o subir una sola vez por dibujo
+ * con {@link #store(FloatBuffer)} y glLoadMatrix, en lugar de tres llamadas al driver por objeto.
+ */
+
+public class MatrixStack {
+
+    /** Profundidad minima que OpenGL garantiza para la pila de modelo-vista. */
+    public static final int DEFAULT_DEPTH = 32;
+
+    private final Matrix44[] stack;
+    // Indice de la matriz del tope
+    private int top;
+
+    /**
+     * Crea una pila con {@link #DEFAULT_DEPTH} matrices y la identidad en el tope.
+     */
+    public MatrixStack() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param depth cantidad maxima de matrices en la pila.
+     */
+    public MatrixStack(int depth) {
+        if (depth <= 0) throw new IllegalArgumentException("La profundidad de la pila debe ser mayor a 0: " + depth);
+        stack = new Matrix44[depth];
+        for (int i = 0; i < depth; i++)
+            stack[i] = new Matrix44();
+    }
+
+    /**
+     * Devuelve la matriz del tope. Es la misma instancia hasta el proximo push() o pop().
+     */
+    public Matrix44 peek() {
+        return stack[top];
+    }
+
+    /**
+     * Copia la matriz del tope en una nueva posicion de la pila, igual que glPushMatrix.
+     */
+    public MatrixStack push() {
+        if (top == stack.length - 1) throw new IllegalStateException("La pila de matrices esta llena (" + stack.length + ")");
+        stack[top + 1].set(stack[top]);
+        top++;
+        return this;
+    }
+
+    /**
+     * Descarta la matriz del tope y vuelve a la anterior, igual que glPopMatrix.
+     */
+    public MatrixStack pop() {
+        if (top == 0) throw new IllegalStateException("No hay matrices para sacar de la pila");
+        top--;
+        return this;
+    }
+
+    /**
+     * Devuelve la cantidad de matrices en la pila, 1 si no se hizo ningun push().
+     */
+    public int size() {
+        return top + 1;
+    }
+
+    public int getDepth() {
+        return stack.length;
+    }
+
+    /**
+     * Vacia la pila y deja la identidad en el tope, por ejemplo al comenzar un cuadro.
+     */
+    public MatrixStack reset() {
+        top = 0;
+        stack[0].identity();
+        return this;
+    }
+
+    public MatrixStack loadIdentity() {
+        stack[top].identity();
+        return this;
+    }
+
+    public MatrixStack load(Matrix44 matrix) {
+        stack[top].set(matrix);
+        return this;
+    }
+
+    public MatrixStack translate(float x, float y, float z) {
+        stack[top].translate(x, y, z);
+        return this;
+    }
+
+    /**
+     * @param angle angulo en grados.
+     */
+    public MatrixStack rotate(float angle, float x, float y, float z) {
+        stack[top].rotate(angle, x, y, z);
+        return this;
+    }
+
+    public MatrixStack scale(float x, float y, float z) {
+        stack[top].scale(x, y, z);
+        return this;
+    }
+
+    /**
+     * Aplica la matriz antes que el tope (tope = matrix * tope), igual que glMultMatrix.
+     */
+    public MatrixStack multiply(Matrix44 matrix) {
+        matrix.mul(stack[top], stack[top]);
+        return this;
+    }
+
+    /**
+     * Escribe la matriz del tope en el buffer a partir de su posicion, sin moverla, lista para glLoadMatrix.
+     */
+    public FloatBuffer store(FloatBuffer buffer) {
+        return stack[top].store(buffer);
+    }
+
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.craivet.geom;
 
+import java.nio.FloatBuffer;
+
 /**
  * <h2>Row Major vs Column Major Vector</h2>
  * Anteriormente en esta leccion, explicamos que los vectores (o puntos) se pueden escribir como matrices [1x3] (una fila, tres
@@ -109,8 +111,142 @@ package com.craivet.geom;
  * traslacion m03, m13 y m23 de una matriz que utiliza la convencion de vector column-major tendrian indices 13, 14 y 15 en el
  * array de float, al igual que los coeficientes de traslacion m30, m31 y m32 de una matriz que utiliza la convencion de vector row-major.
  * <br><br>
+ * <h2>Implementacion</h2>
+ * Esta clase es una vista de una matriz [4x4] guardada en 16 floats contiguos de un arreglo, con un {@link Layout} que dice en
+ * que orden estan: {@code get(fila, columna)} lee {@code storage[offset + fila * 4 + columna]} en {@link Layout#ROW_MAJOR} y
+ * {@code storage[offset + columna * 4 + fila]} en {@link Layout#COLUMN_MAJOR}. La vista no copia nada: {@link #as(Layout)}
+ * devuelve otra vista sobre el mismo arreglo con el otro orden, que es la matriz traspuesta sin mover ningun coeficiente.
+ * <p>
+ * Para subir una matriz a OpenGL, {@link #store(FloatBuffer, Layout)} la escribe en el buffer en el orden pedido directamente
+ * desde el arreglo, trasponiendo al escribir si hace falta, sin una copia traspuesta intermedia. OpenGL lee column-major con
+ * vectores columna, por lo que:
+ * <ul>
+ * <li>una matriz con vectores fila, como {@link Matrix44}, se escribe en {@link Layout#ROW_MAJOR} (es el mismo arreglo, se
+ * copia tal cual);</li>
+ * <li>una matriz con vectores columna, como las de los libros que escriben P' = M * P, se escribe en
+ * {@link Layout#COLUMN_MAJOR}.</li>
+ * </ul>
+ * <br>
  * Fuente: <a href="https://www.scratchapixel.com/lessons/mathematics-physics-for-computer-graphics/geometry/row-major-vs-column-major-vector.html">Row Major vs Column Major Vector</a>
  */
 
 public class RowMajorColumnMajorVector {
-}
+
+    /**
+     * Orden en que estan guardados los 16 coeficientes.
+     */
+    public enum Layout {
+
+        /** Fila por fila, como los arreglos de C/C++ y Java. */
+        ROW_MAJOR,
+        /** Columna por columna, como FORTRAN, MATLAB y OpenGL. */
+        COLUMN_MAJOR;
+
+        public Layout opposite() {
+            return this == ROW_MAJOR ? COLUMN_MAJOR : ROW_MAJOR;
+        }
+
+    }
+
+    private final float[] storage;
+    private final int offset;
+    private final Layout layout;
+    // Vista con el otro orden sobre el mismo arreglo, se crea la primera vez que se pide
+    private RowMajorColumnMajorVector opposite;
+
+    /**
+     * @param storage arreglo con los coeficientes, no se copia.
+     * @param offset  indice del primer coeficiente, para matrices guardadas una detras de otra en el mismo arreglo.
+     */
+    public RowMajorColumnMajorVector(float[] storage, int offset, Layout layout) {
+        if (offset < 0 || offset + 16 > storage.length)
+            throw new IllegalArgumentException("No entran 16 coeficientes desde el indice " + offset + " en " + storage.length + " floats");
+        this.storage = storage;
+        this.offset = offset;
+        this.layout = layout;
+    }
+
+    /**
+     * Vista row-major de los coeficientes de la matriz, que siguen siendo los de la matriz: lo que se cambie en la vista cambia la
+     * matriz.
+     */
+    public static RowMajorColumnMajorVector of(Matrix44 matrix) {
+        return new RowMajorColumnMajorVector(matrix.m, 0, Layout.ROW_MAJOR);
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Devuelve una vista con el orden pedido sobre el mismo arreglo. Con el mismo orden devuelve esta vista; con el otro, la
+     * traspuesta (siempre la misma instancia).
+     */
+    public RowMajorColumnMajorVector as(Layout layout) {
+        if (layout == this.layout) return this;
+        if (opposite == null) {
+            opposite = new RowMajorColumnMajorVector(storage, offset, layout);
+            opposite.opposite = this;
+        }
+        return opposite;
+    }
+
+    public float get(int row, int column) {
+        return storage[index(row, column)];
+    }
+
+    public RowMajorColumnMajorVector set(int row, int column, float value) {
+        storage[index(row, column)] = value;
+        return this;
+    }
+
+    private int index(int row, int column) {
+        return offset + (layout == Layout.ROW_MAJOR ? row * 4 + column : column * 4 + row);
+    }
+
+    /**
+     * Escribe la matriz en el buffer a partir de su posicion, sin moverla, con los coeficientes en el orden pedido. Si el orden es
+     * el mismo que el del arreglo se copian tal cual; si no, se trasponen al escribir.
+     */
+    public FloatBuffer store(FloatBuffer buffer, Layout layout) {
+        int position = buffer.position();
+        if (layout == this.layout) {
+            for (int i = 0; i < 16; i++)
+                buffer.put(position + i, storage[offset + i]);
+        } else {
+            // El elemento i del arreglo (fila i / 4, columna i % 4 en su orden) va a la posicion traspuesta
+            for (int i = 0; i < 16; i++)
+                buffer.put(position + (i & 3) * 4 + (i >> 2), storage[offset + i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Lee la matriz del buffer a partir de su posicion, sin moverla, con los coeficientes en el orden indicado (por ejemplo
+     * {@link Layout#COLUMN_MAJOR} despues de glGetFloat).
+     */
+    public RowMajorColumnMajorVector load(FloatBuffer buffer, Layout layout) {
+        int position = buffer.position();
+        if (layout == this.layout) {
+            for (int i = 0; i < 16; i++)
+                storage[offset + i] = buffer.get(position + i);
+        } else {
+            for (int i = 0; i < 16; i++)
+                storage[offset + i] = buffer.get(position + (i & 3) * 4 + (i >> 2));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 4; row++) {
+            builder.append('[');
+            for (int column = 0; column < 4; column++)
+                builder.append(column == 0 ? "" : ", ").append(get(row, column));
+            builder.append("]\n");
+        }
+        return builder.toString();
+    }
+
+}
\ No newline at end of file
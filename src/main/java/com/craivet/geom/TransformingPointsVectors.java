@@ -1,5 +1,10 @@
 package com.craivet.geom;
 
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import com.craivet.BlockTask;
+
 /**
  * <h2>Puntos transformadores</h2>
  * Aunque la traslacion es el operador lineal mas sencillo que se puede aplicar a un punto, no se ha mencionado con frecuencia en
@@ -112,8 +117,213 @@ package com.craivet.geom;
  * su cuarta columna establecida en (0, 0, 0, 1), y con estas matrices, el valor de w' siempre debe ser 1. Sin embargo, en casos
  * especiales (matriz de proyeccion, transformada de corte), el valor de w' puede ser diferente de 1, en cuyo caso necesitaras
  * normalizarlo (dividimos w' por si mismo), lo que requiere dividir tambien las otras coordenadas transformadas x', y' y z' por w'.
+ * <h2>Transformar muchos puntos</h2>
+ * Llamar a {@link Matrix44#transformPoint} por cada objeto no alcanza cuando hay millones de vertices: cada punto es un objeto
+ * en otra parte del heap y los coeficientes se vuelven a leer de la matriz en cada llamada. Los metodos de esta clase aplican una
+ * {@link Matrix44} a puntos o vectores guardados uno detras de otro (x, y, z, x, y, z...) en un arreglo o en un buffer directo,
+ * como las posiciones de {@link com.craivet.rendered.ParticleStore}.
+ * <p>
+ * Los bucles secuenciales copian los coeficientes en variables locales, no llaman a ningun metodo y no tienen saltos adentro: si
+ * la matriz es afin (cuarta columna (0, 0, 0, 1)) se usa un bucle sin w', y solo para las proyecciones se usa el que divide por
+ * w'. Asi el JIT puede desenrollarlos y quitar los controles de limites, y vectorizarlos donde el compilador lo permita (C2 en
+ * Java 8 solo vectoriza accesos contiguos, no el salto de a 3 floats). Los resultados son identicos a los de
+ * {@link Matrix44#transformPoint} y {@link Matrix44#transformDirection}.
+ * <p>
+ * Las variantes paralelas reparten los puntos en bloques de {@link #BLOCK_SIZE} que se procesan con fork/join
+ * ({@link BlockTask}), igual que {@link com.craivet.rendered.ParticleSimulation}; con menos de un bloque se transforma en el hilo que llama. El origen y el
+ * destino pueden ser el mismo arreglo con el mismo offset (transformar en el lugar), pero no deben superponerse de otra forma. La
+ * matriz no debe cambiar mientras se transforma.
  */
 
 public class TransformingPointsVectors {
 
-}
+    /** Cantidad de puntos por bloque de trabajo en las variantes paralelas. */
+    public static final int BLOCK_SIZE = 16 * 1024;
+
+    private final ForkJoinPool pool;
+
+    public TransformingPointsVectors() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool en el que se ejecutan los bloques.
+     */
+    public TransformingPointsVectors(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Transforma count puntos (w = 1) del arreglo src al arreglo dst. Si la matriz es una proyeccion y w' no es 1, divide cada
+     * resultado por w'.
+     *
+     * @param srcOffset indice del primer float del origen.
+     * @param dstOffset indice del primer float del destino.
+     */
+    public static void transformPoints(Matrix44 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        checkRange(src.length, srcOffset, count);
+        checkRange(dst.length, dstOffset, count);
+        float[] m = matrix.m;
+        float m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+        float m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+        float m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+        float m30 = m[12], m31 = m[13], m32 = m[14], m33 = m[15];
+        int end = srcOffset + count * 3;
+        if (matrix.isAffine()) {
+            for (int s = srcOffset, d = dstOffset; s < end; s += 3, d += 3) {
+                float x = src[s], y = src[s + 1], z = src[s + 2];
+                dst[d] = x * m00 + y * m10 + z * m20 + m30;
+                dst[d + 1] = x * m01 + y * m11 + z * m21 + m31;
+                dst[d + 2] = x * m02 + y * m12 + z * m22 + m32;
+            }
+        } else {
+            for (int s = srcOffset, d = dstOffset; s < end; s += 3, d += 3) {
+                float x = src[s], y = src[s + 1], z = src[s + 2];
+                float w = x * m03 + y * m13 + z * m23 + m33;
+                float inv = w != 1 && w != 0 ? 1 / w : 1;
+                dst[d] = (x * m00 + y * m10 + z * m20 + m30) * inv;
+                dst[d + 1] = (x * m01 + y * m11 + z * m21 + m31) * inv;
+                dst[d + 2] = (x * m02 + y * m12 + z * m22 + m32) * inv;
+            }
+        }
+    }
+
+    /**
+     * Transforma count vectores (w = 0) del arreglo src al arreglo dst, sin trasladarlos.
+     *
+     * @param srcOffset indice del primer float del origen.
+     * @param dstOffset indice del primer float del destino.
+     */
+    public static void transformDirections(Matrix44 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        checkRange(src.length, srcOffset, count);
+        checkRange(dst.length, dstOffset, count);
+        float[] m = matrix.m;
+        float m00 = m[0], m01 = m[1], m02 = m[2];
+        float m10 = m[4], m11 = m[5], m12 = m[6];
+        float m20 = m[8], m21 = m[9], m22 = m[10];
+        int end = srcOffset + count * 3;
+        for (int s = srcOffset, d = dstOffset; s < end; s += 3, d += 3) {
+            float x = src[s], y = src[s + 1], z = src[s + 2];
+            dst[d] = x * m00 + y * m10 + z * m20;
+            dst[d + 1] = x * m01 + y * m11 + z * m21;
+            dst[d + 2] = x * m02 + y * m12 + z * m22;
+        }
+    }
+
+    /**
+     * Igual que {@link #transformPoints(Matrix44, float[], int, float[], int, int)} pero con buffers (por ejemplo el buffer
+     * directo de un VBO). Usa indices absolutos, las posiciones de los buffers no se mueven.
+     */
+    public static void transformPoints(Matrix44 matrix, FloatBuffer src, int srcIndex, FloatBuffer dst, int dstIndex, int count) {
+        checkRange(src.limit(), srcIndex, count);
+        checkRange(dst.limit(), dstIndex, count);
+        float[] m = matrix.m;
+        float m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+        float m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+        float m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+        float m30 = m[12], m31 = m[13], m32 = m[14], m33 = m[15];
+        int end = srcIndex + count * 3;
+        if (matrix.isAffine()) {
+            for (int s = srcIndex, d = dstIndex; s < end; s += 3, d += 3) {
+                float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+                dst.put(d, x * m00 + y * m10 + z * m20 + m30);
+                dst.put(d + 1, x * m01 + y * m11 + z * m21 + m31);
+                dst.put(d + 2, x * m02 + y * m12 + z * m22 + m32);
+            }
+        } else {
+            for (int s = srcIndex, d = dstIndex; s < end; s += 3, d += 3) {
+                float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+                float w = x * m03 + y * m13 + z * m23 + m33;
+                float inv = w != 1 && w != 0 ? 1 / w : 1;
+                dst.put(d, (x * m00 + y * m10 + z * m20 + m30) * inv);
+                dst.put(d + 1, (x * m01 + y * m11 + z * m21 + m31) * inv);
+                dst.put(d + 2, (x * m02 + y * m12 + z * m22 + m32) * inv);
+            }
+        }
+    }
+
+    /**
+     * Igual que {@link #transformDirections(Matrix44, float[], int, float[], int, int)} pero con buffers. Usa indices absolutos,
+     * las posiciones de los buffers no se mueven.
+     */
+    public static void transformDirections(Matrix44 matrix, FloatBuffer src, int srcIndex, FloatBuffer dst, int dstIndex, int count) {
+        checkRange(src.limit(), srcIndex, count);
+        checkRange(dst.limit(), dstIndex, count);
+        float[] m = matrix.m;
+        float m00 = m[0], m01 = m[1], m02 = m[2];
+        float m10 = m[4], m11 = m[5], m12 = m[6];
+        float m20 = m[8], m21 = m[9], m22 = m[10];
+        int end = srcIndex + count * 3;
+        for (int s = srcIndex, d = dstIndex; s < end; s += 3, d += 3) {
+            float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+            dst.put(d, x * m00 + y * m10 + z * m20);
+            dst.put(d + 1, x * m01 + y * m11 + z * m21);
+            dst.put(d + 2, x * m02 + y * m12 + z * m22);
+        }
+    }
+
+    /**
+     * Version paralela de {@link #transformPoints(Matrix44, float[], int, float[], int, int)}.
+     */
+    public void transformPointsParallel(Matrix44 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        checkRange(src.length, srcOffset, count);
+        checkRange(dst.length, dstOffset, count);
+        run(count, (first, n) -> transformPoints(matrix, src, srcOffset + first * 3, dst, dstOffset + first * 3, n));
+    }
+
+    /**
+     * Version paralela de {@link #transformDirections(Matrix44, float[], int, float[], int, int)}.
+     */
+    public void transformDirectionsParallel(Matrix44 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        checkRange(src.length, srcOffset, count);
+        checkRange(dst.length, dstOffset, count);
+        run(count, (first, n) -> transformDirections(matrix, src, srcOffset + first * 3, dst, dstOffset + first * 3, n));
+    }
+
+    /**
+     * Version paralela de {@link #transformPoints(Matrix44, FloatBuffer, int, FloatBuffer, int, int)}. Los bloques leen y escriben
+     * con indices absolutos, asi que pueden compartir los buffers.
+     */
+    public void transformPointsParallel(Matrix44 matrix, FloatBuffer src, int srcIndex, FloatBuffer dst, int dstIndex, int count) {
+        checkRange(src.limit(), srcIndex, count);
+        checkRange(dst.limit(), dstIndex, count);
+        run(count, (first, n) -> transformPoints(matrix, src, srcIndex + first * 3, dst, dstIndex + first * 3, n));
+    }
+
+    /**
+     * Version paralela de {@link #transformDirections(Matrix44, FloatBuffer, int, FloatBuffer, int, int)}.
+     */
+    public void transformDirectionsParallel(Matrix44 matrix, FloatBuffer src, int srcIndex, FloatBuffer dst, int dstIndex, int count) {
+        checkRange(src.limit(), srcIndex, count);
+        checkRange(dst.limit(), dstIndex, count);
+        run(count, (first, n) -> transformDirections(matrix, src, srcIndex + first * 3, dst, dstIndex + first * 3, n));
+    }
+
+    private void run(int count, Range range) {
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        // Con un solo bloque no vale la pena pasar por el pool
+        if (blocks <= 1) range.run(0, count);
+        else pool.invoke(new BlockTask(block -> {
+            int first = block * BLOCK_SIZE;
+            range.run(first, Math.min(BLOCK_SIZE, count - first));
+        }, 0, blocks));
+    }
+
+    /**
+     * Comprueba antes de escribir que los count puntos entran, asi un error no deja el destino transformado a medias.
+     */
+    private static void checkRange(int length, int offset, int count) {
+        if (offset < 0 || count < 0 || offset > length || count > (length - offset) / 3)
+            throw new IllegalArgumentException("No entran " + count + " puntos desde el indice " + offset + " en " + length + " floats");
+    }
+
+    /**
+     * Transforma los puntos de first a first + count - 1.
+     */
+    private interface Range {
+
+        void run(int first, int count);
+
+    }
+
+}
\ No newline at end of file
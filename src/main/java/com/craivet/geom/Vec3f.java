@@ -1,5 +1,7 @@
 package com.craivet.geom;
 
+import java.nio.FloatBuffer;
+
 /**
  * <h2>Introduccion a las matrices: ¡facilitan las transformaciones!</h2>
  * Las matrices desempeñan un papel fundamental en el proceso de graficos y vera que se utilizan con regularidad en el codigo de
@@ -35,8 +37,161 @@ package com.craivet.geom;
  *      Vec3f P = Vec3f(1, 1, 1);
  *      Vec3f Ptranformed = P * M;  // Hacer todo a la vez, traducir, rotar, escalar
  * }</pre>
+ * <h2>Vec3f</h2>
+ * A diferencia de {@link Vec3}, que usa double y crea un vector nuevo en cada operacion, Vec3f es mutable y usa float, el mismo
+ * tipo que se envia a OpenGL. Cada operacion tiene dos formas: sin destino modifica este vector y lo devuelve para encadenar
+ * llamadas, y con destino deja este vector como esta y escribe el resultado en {@code dest}, que puede ser este mismo vector o
+ * el otro operando. Ninguna operacion crea objetos, asi se pueden usar en los bucles por vertice o por entidad con vectores
+ * temporales creados una sola vez.
  */
 
 public class Vec3f {
-}
 
+    public float x, y, z;
+
+    public Vec3f() {
+    }
+
+    public Vec3f(float xyz) {
+        this(xyz, xyz, xyz);
+    }
+
+    public Vec3f(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Vec3f(Vec3f v) {
+        this(v.x, v.y, v.z);
+    }
+
+    public Vec3f set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vec3f set(Vec3f v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public Vec3f add(Vec3f v) {
+        return add(v, this);
+    }
+
+    public Vec3f add(Vec3f v, Vec3f dest) {
+        return dest.set(x + v.x, y + v.y, z + v.z);
+    }
+
+    public Vec3f sub(Vec3f v) {
+        return sub(v, this);
+    }
+
+    public Vec3f sub(Vec3f v, Vec3f dest) {
+        return dest.set(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vec3f scale(float s) {
+        return scale(s, this);
+    }
+
+    public Vec3f scale(float s, Vec3f dest) {
+        return dest.set(x * s, y * s, z * s);
+    }
+
+    /**
+     * Suma el vector multiplicado por s, por ejemplo para integrar una posicion: {@code position.fma(dt, velocity)}.
+     */
+    public Vec3f fma(float s, Vec3f v) {
+        return fma(s, v, this);
+    }
+
+    public Vec3f fma(float s, Vec3f v, Vec3f dest) {
+        return dest.set(x + s * v.x, y + s * v.y, z + s * v.z);
+    }
+
+    /**
+     * Suma el producto componente a componente de a y b.
+     */
+    public Vec3f fma(Vec3f a, Vec3f b) {
+        return fma(a, b, this);
+    }
+
+    public Vec3f fma(Vec3f a, Vec3f b, Vec3f dest) {
+        return dest.set(x + a.x * b.x, y + a.y * b.y, z + a.z * b.z);
+    }
+
+    public float dot(Vec3f v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /**
+     * Producto vectorial (ver {@link Vec3#cross(Vec3)}).
+     */
+    public Vec3f cross(Vec3f v) {
+        return cross(v, this);
+    }
+
+    public Vec3f cross(Vec3f v, Vec3f dest) {
+        // set recibe los tres componentes ya calculados, asi dest puede ser cualquiera de los dos operandos
+        return dest.set(y * v.z - z * v.y, z * v.x - x * v.z, x * v.y - y * v.x);
+    }
+
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    public float lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Normaliza el vector si su longitud es mayor que 0 (ver {@link Vec3#normalize()}).
+     */
+    public Vec3f normalize() {
+        return normalize(this);
+    }
+
+    public Vec3f normalize(Vec3f dest) {
+        float len = length();
+        if (len > 0) {
+            float invLen = 1 / len;
+            return dest.set(x * invLen, y * invLen, z * invLen);
+        }
+        return dest.set(this);
+    }
+
+    /**
+     * Interpola linealmente entre este vector (t = 0) y v (t = 1).
+     */
+    public Vec3f lerp(Vec3f v, float t) {
+        return lerp(v, t, this);
+    }
+
+    public Vec3f lerp(Vec3f v, float t, Vec3f dest) {
+        return dest.set(x + (v.x - x) * t, y + (v.y - y) * t, z + (v.z - z) * t);
+    }
+
+    /**
+     * Lee el vector de tres floats consecutivos del buffer a partir del indice, sin mover la posicion del buffer.
+     */
+    public Vec3f load(FloatBuffer buffer, int index) {
+        return set(buffer.get(index), buffer.get(index + 1), buffer.get(index + 2));
+    }
+
+    /**
+     * Escribe el vector en tres floats consecutivos del buffer a partir del indice, sin mover la posicion del buffer.
+     */
+    public Vec3f store(FloatBuffer buffer, int index) {
+        buffer.put(index, x).put(index + 1, y).put(index + 2, z);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+
+}
\ No newline at end of file
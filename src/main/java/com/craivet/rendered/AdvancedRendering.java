@@ -1,108 +1,93 @@
 package com.craivet.rendered;
 
-import java.nio.FloatBuffer;
-import java.util.Random;
-
-import org.lwjgl.BufferUtils;
 import org.lwjgl.LWJGLException;
-import org.lwjgl.Sys;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
 import javax.swing.*;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.craivet.FrameProfiler;
+import com.craivet.FrameProfiler.Metric;
+import com.craivet.Frustum;
+import com.craivet.GameLoop;
+import com.craivet.ProfilerOverlay;
+
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.util.glu.GLU.gluPerspective;
 
 import static com.craivet.Global.*;
 
 /**
  * Muestra una simulacion de particulas similar al espacio con tecnicas de renderizado avanzadas.
+ * <p>
+ * Los tiempos de cada fase y las llamadas a OpenGL se miden con un {@link FrameProfiler}: F3 muestra u oculta el overlay, P
+ * imprime los percentiles en la consola y si se pasa un archivo como argumento se agrega una fila por segundo en csv.
  */
 
-public class AdvancedRendering {
-
-    private enum RenderMode {IMMEDIATE, DISPLAY_LISTS, VERTEX_ARRAY_OBJECT, VERTEX_BUFFER_OBJECT}
+public class AdvancedRendering implements GameLoop.Game {
 
     RenderMode mode = RenderMode.IMMEDIATE;
 
     // Velocidad a la que viaja la camara
     private static float speed;
 
-    private Point[] points;
-
-    private int displayList;
-    private FloatBuffer vertexArray;
-    private int vertexBufferObject;
-
-    private float delta;
-    private static long lastFrame;
-
-    private static float getDelta() {
-        long time = getTime();
-        float delta = (float) (time - lastFrame);
-        lastFrame = time;
-        return delta;
-    }
-
-    private static long getTime() {
-        return (Sys.getTime() * 1000) / Sys.getTimerResolution();
-    }
-
-    private void start() {
+    // Posiciones de todos los puntos en un solo buffer directo
+    private ParticleStore points;
+    // Mueve los puntos en paralelo, siempre con la misma semilla para que todas las corridas sean comparables
+    static final long SEED = 42;
+    private ParticleSimulation simulation;
+    private boolean moving = true;
+
+    // Bloques de puntos que se descartan si quedan fuera del frustum
+    private PointClusters clusters;
+    private final Frustum frustum = new Frustum();
+    // Rangos de puntos visibles en el cuadro actual
+    private int[] first, count;
+    private int ranges;
+    private boolean culling = true;
+    // Distancia que avanzo la camara, se aplica con glTranslatef en cada cuadro
+    private float distance;
+
+    // Recursos y llamadas de cada modo de renderizado
+    private PointRenderer renderer;
+    // Cuenta las llamadas de cada cuadro para el perfilador
+    private RecordingBackend recorder;
+
+    private final FrameProfiler profiler = new FrameProfiler(1024);
+    private ProfilerOverlay overlay;
+
+    private void start(File profile) throws IOException {
 
         setUpDisplay();
         setUpOpenGL();
         setUpEntities();
 
-        /* Display lists */
-        displayList = glGenLists(1); // Genera un ID para la lista de visualizacion
-        /* Crea la lista de visualizacion usando el ID displayList. Todas las llamadas posteriores para renderizado se almacenaran
-         * en la lista de visualizacion. */
-        glNewList(displayList, GL_COMPILE);
-        glBegin(GL_POINTS);
-        for (Point p : points)
-            glVertex3f(p.x, p.y, p.z);
-        glEnd();
-        glEndList(); // Deja de almacenar llamadas en la lista de visualizacion y compila
-
-        /* Vertex Arrays y Vertex Buffer Objects */
-        /* Crea un FloatBuffer (arreglo complejo de flotantes) con la longitud de la cantidad de puntos * 3 (porque tenemos 3
-         * vertices por punto). */
-        vertexArray = BufferUtils.createFloatBuffer(points.length * 3);
-        // Itera los puntos y los guarda en el FloatBuffer
-        for (Point p : points)
-            vertexArray.put(new float[]{p.x, p.y, p.z});
-        // Hace que el buffer sea legible para OpenGL (lo voltea)
-        vertexArray.flip();
-        // Crea el identificador para el VBO
-        vertexBufferObject = glGenBuffers();
-        // Vincula el VBO para su uso (en este caso, almacena informacion)
-        glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObject);
-        // Almacena todo el contenido del FloatBuffer en el VBO
-        glBufferData(GL_ARRAY_BUFFER, vertexArray, GL_STATIC_DRAW);
-        // Desenlaza el VBO
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        lastFrame = getTime();
-
-        System.out.println("Modo de renderizado configurado a " + mode.name());
+        /* Crea la lista de visualizacion, el VBO y el VAO. Los puntos ya estan en un FloatBuffer directo (x, y, z por punto) en
+         * el orden de los bloques, asi que se usa tal cual sin copiarlo. */
+        recorder = new RecordingBackend(new PointRenderer.GLBackend());
+        renderer = new PointRenderer(points, recorder);
 
-        while (!Display.isCloseRequested()) {
+        overlay = new ProfilerOverlay(profiler);
+        FrameProfiler.CsvReport csv = null;
+        if (profile != null) {
+            csv = new FrameProfiler.CsvReport(profile);
+            profiler.addReport(csv);
+        }
 
-            render();
-            input();
+        System.out.println("Modo de renderizado configurado a " + mode.name());
 
-            Display.update();
-            Display.sync(FPS);
-        }
+        // La simulacion y la camara avanzan en pasos fijos de 1/60 segundos, aunque el modo de renderizado baje los FPS
+        GameLoop loop = new GameLoop(this, 60);
+        loop.setProfiler(profiler);
+        loop.run();
 
-        // Elimina la lista de visualizacion
-        glDeleteLists(displayList, 1);
-        // Elimina el VBO
-        glDeleteBuffers(vertexBufferObject);
+        // Elimina la lista de visualizacion y los buffers
+        renderer.dispose();
+        if (csv != null) csv.close();
 
         Display.destroy();
         System.exit(0);
@@ -126,6 +111,8 @@ public class AdvancedRendering {
         glLoadIdentity();
         // Configura el far para ver todos los puntos (propositos de evaluacion comparativa)
         gluPerspective((float) 30, (float) Display.getWidth() / Display.getHeight(), 0.001f, 10000);
+        // Los mismos parametros que la proyeccion, para descartar los bloques de puntos que no se ven
+        frustum.setPerspective(30, (float) Display.getWidth() / Display.getHeight(), 0.001f, 10000);
         glMatrixMode(GL_MODELVIEW);
         // Vuelve a verificar la validez del dibujo 3D
         glEnable(GL_DEPTH_TEST);
@@ -133,95 +120,127 @@ public class AdvancedRendering {
 
     private void setUpEntities() {
 
-        points = new Point[3_000_000];
-        Random random = new Random();
+        points = new ParticleStore(3_000_000);
+        simulation = createSimulation(points);
 
-        /* Modifica la variable far para adaptarse a points.length. Los puntos, no importa cuanto, ahora aparecen distribuidos
-         * uniformemente a lo largo de la pantalla. */
-        for (int i = 0; i < points.length; i++)
-            points[i] = new Point((random.nextFloat() - 0.5f) * 100f, (random.nextFloat() - 0.5f) * 100f, random.nextInt(points.length / 50) - (float) points.length / 50);
+        clusters = new PointClusters(simulation, 4096);
+        first = new int[clusters.getClusterCount()];
+        count = new int[clusters.getClusterCount()];
 
     }
 
-    private void render() {
+    /**
+     * Crea la simulacion de la escena y genera los puntos, siempre con la misma semilla.
+     */
+    static ParticleSimulation createSimulation(ParticleStore points) {
+        int depth = points.size() / 50;
+        ParticleSimulation simulation = new ParticleSimulation(points);
+        simulation.setBounds(-50, -50, -depth, 50, 50, 0);
+
+        /* Modifica la variable far para adaptarse a points.size(). Los puntos, no importa cuanto, ahora aparecen distribuidos
+         * uniformemente a lo largo de la pantalla. Se generan en paralelo directamente en el buffer, sin crear objetos. */
+        simulation.generate(SEED, (random, p) -> {
+            p[0] = (float) (random.nextDouble() - 0.5) * 100f;
+            p[1] = (float) (random.nextDouble() - 0.5) * 100f;
+            p[2] = random.nextInt(depth) - depth;
+            // Deriva lenta en cualquier direccion, en unidades por cuadro a 60 fps
+            p[3] = (float) (random.nextDouble() - 0.5) * 0.1f;
+            p[4] = (float) (random.nextDouble() - 0.5) * 0.1f;
+            p[5] = (float) (random.nextDouble() - 0.5) * 0.1f;
+        });
+        return simulation;
+    }
 
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+    @Override
+    public boolean isRunning() {
+        return !Display.isCloseRequested();
+    }
 
-        /* Divide el delta entre 16 para obtener un delta de 16 a 60 fps. Si es 60 fps, el delta sera 1.0f y todas las llamadas de
-         * entrada seran las mismas que antes. */
-        delta = getDelta() / 16f;
+    @Override
+    public void update(double delta) {
+        /* Divide el delta entre 16 para obtener un paso de 1.0f a 60 pasos por segundo, asi las velocidades siguen siendo por
+         * cuadro a 60 fps. */
+        float step = (float) delta / 16f;
+
+        if (moving) {
+            simulation.update(step);
+            // Los bloques se deforman a medida que los puntos se mueven, asi que sus cajas se recalculan en cada paso
+            clusters.updateBounds();
+            renderer.invalidate();
+        }
 
         // Empuja la pantalla hacia adentro a la velocidad especificada
-        glTranslatef(0, 0, speed);
-
-        switch (mode) {
-            case DISPLAY_LISTS:
-                // Dibuja la lista de visualizacion
-                glCallList(displayList);
-                break;
-            case VERTEX_BUFFER_OBJECT:
-                // Habilita las matrices de vertices (VBO)
-                glEnableClientState(GL_VERTEX_ARRAY);
-                // Le dice a OpenGL que use nuestro VBO
-                glBindBuffer(GL_ARRAY_BUFFER, vertexBufferObject);
-                // Le dice a OpenGL que busque los datos en el VBO vinculado con 3 componentes (xyz) y con el tipo float
-                glVertexPointer(3, GL_FLOAT, 0, 0L);
-                /* Le dice a OpenGL que dibuje los datos proporcionados por el metodo de puntero como puntos. Longitud cantidad de
-                 * puntos. */
-                glDrawArrays(GL_POINTS, 0, points.length);
-                // Desenlaza el VBO
-                glBindBuffer(GL_ARRAY_BUFFER, 0);
-                // Deshabilita las matrices de vertices
-                glDisableClientState(GL_VERTEX_ARRAY);
-                break;
-            case VERTEX_ARRAY_OBJECT:
-                glEnableClientState(GL_VERTEX_ARRAY);
-                // Le dice a OpenGL que busque los datos en el buffer vertexArray con 3 componentes (xyz)
-                glVertexPointer(3, 0, vertexArray);
-                glDrawArrays(GL_POINTS, 0, points.length);
-                glDisableClientState(GL_VERTEX_ARRAY);
-                break;
-            case IMMEDIATE:
-                glBegin(GL_POINTS);
-                for (Point p : points)
-                    glVertex3f(p.x, p.y, p.z);
-                glEnd();
-                break;
+        distance += speed * step;
+    }
+
+    @Override
+    public void render(float alpha) {
+
+        profiler.begin(Metric.RENDER);
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+        glLoadIdentity();
+        glTranslatef(0, 0, distance);
+
+        // Empujar el mundo hacia +z es lo mismo que mover la camara hacia -z
+        frustum.setPosition(0, 0, -distance);
+        if (culling) ranges = clusters.cull(frustum, first, count);
+        else {
+            first[0] = 0;
+            count[0] = points.size();
+            ranges = 1;
         }
 
+        recorder.reset();
+        renderer.draw(mode, first, count, ranges);
+        profiler.addCalls(recorder.getCalls(), recorder.getDrawCalls());
+
+        overlay.render();
+        profiler.end(Metric.RENDER);
+
+        profiler.begin(Metric.SWAP);
+        Display.update();
+        Display.sync(FPS);
+        profiler.end(Metric.SWAP);
+
     }
 
-    private void input() {
+    @Override
+    public void input() {
         if (Keyboard.isKeyDown(Keyboard.KEY_UP)) speed += 0.01f;
         if (Keyboard.isKeyDown(Keyboard.KEY_DOWN)) speed -= 0.01f;
         while (Keyboard.next()) {
             if (Keyboard.isKeyDown(Keyboard.KEY_C)) {
                 speed = 0;
-                glLoadIdentity();
+                distance = 0;
             }
             if (Keyboard.isKeyDown(Keyboard.KEY_SPACE)) speed = 0;
-            if (Keyboard.isKeyDown(Keyboard.KEY_1)) mode = RenderMode.VERTEX_BUFFER_OBJECT;
-            if (Keyboard.isKeyDown(Keyboard.KEY_2)) mode = RenderMode.VERTEX_ARRAY_OBJECT;
-            if (Keyboard.isKeyDown(Keyboard.KEY_3)) mode = RenderMode.DISPLAY_LISTS;
-            if (Keyboard.isKeyDown(Keyboard.KEY_4)) mode = RenderMode.IMMEDIATE;
-            System.out.println("Modo de renderizado configurado a " + mode.name());
+            if (Keyboard.isKeyDown(Keyboard.KEY_M)) moving = !moving;
+            if (Keyboard.isKeyDown(Keyboard.KEY_F3)) overlay.toggle();
+            if (Keyboard.isKeyDown(Keyboard.KEY_P)) FrameProfiler.LOG.report(profiler);
+            if (Keyboard.isKeyDown(Keyboard.KEY_F)) {
+                culling = !culling;
+                System.out.println("Descarte por frustum " + (culling ? "activado" : "desactivado"));
+            }
+            if (Keyboard.isKeyDown(Keyboard.KEY_1)) setMode(RenderMode.VERTEX_BUFFER_OBJECT);
+            if (Keyboard.isKeyDown(Keyboard.KEY_2)) setMode(RenderMode.VERTEX_ARRAY_OBJECT);
+            if (Keyboard.isKeyDown(Keyboard.KEY_3)) setMode(RenderMode.DISPLAY_LISTS);
+            if (Keyboard.isKeyDown(Keyboard.KEY_4)) setMode(RenderMode.IMMEDIATE);
+            if (Keyboard.isKeyDown(Keyboard.KEY_5)) setMode(RenderMode.STREAM_ORPHAN);
+            if (Keyboard.isKeyDown(Keyboard.KEY_6)) setMode(RenderMode.STREAM_MAP_UNSYNCHRONIZED);
+            if (Keyboard.isKeyDown(Keyboard.KEY_7)) setMode(RenderMode.STREAM_RING);
+            if (Keyboard.isKeyDown(Keyboard.KEY_8)) setMode(RenderMode.CLIENT_ARRAYS);
+            System.out.println("Modo de renderizado configurado a " + mode.name() + " (" + (culling ? clusters.getVisiblePoints() : points.size()) + " puntos enviados)");
         }
     }
 
-    private static class Point {
-        final float x;
-        final float y;
-        final float z;
-
-        public Point(float x, float y, float z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
+    private void setMode(RenderMode mode) {
+        if (renderer.isSupported(mode)) this.mode = mode;
+        else System.out.println("El modo " + mode.name() + " no es compatible con esta version de OpenGL");
     }
 
-    public static void main(String[] args) {
-        new AdvancedRendering().start();
+    public static void main(String[] args) throws IOException {
+        new AdvancedRendering().start(args.length > 0 ? new File(args[0]) : null);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GLContext;
+
+import com.craivet.Texture;
+import com.craivet.TextureRegion;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Dibuja muchos rectangulos iguales (cajas, bates, bloques) con una sola llamada de dibujo por textura.
+ * <p>
+ * En lugar de repetir el mismo quad con {@code glPushMatrix/glTranslatef/glPopMatrix} o {@code glRectd} por cada objeto, se
+ * guarda un solo quad unitario en la GPU y cada rectangulo se describe con sus atributos de instancia intercalados (x, y, ancho,
+ * alto, r, g, b, a, u, v, u2, v2). Los atributos se acumulan como en {@link SpriteBatch} y se envian al llamar a {@link #end()} o
+ * {@link #flush()}, al cambiar la textura o al llenarse la capacidad.
+ * <p>
+ * Con OpenGL 3.3 {@link GLRenderer} dibuja todas las instancias con {@code glDrawArraysInstanced}. Sin instanciado,
+ * {@link BatchRenderer} expande cada instancia a cuatro vertices en un {@link SpriteBatch}, que tambien las dibuja con una sola
+ * llamada. Los rectangulos sin textura ({@code texture == null}) usan solo el color.
+ */
+
+public class InstancedQuads {
+
+    /** Cantidad de componentes por instancia: posicion (2), tamanio (2), color (4) y region de la textura (4). */
+    public static final int INSTANCE_SIZE = 2 + 2 + 4 + 4;
+
+    private final FloatBuffer instances;
+    private final int size;
+    private final Renderer renderer;
+
+    private Texture texture;
+    private int count;
+    private boolean drawing;
+
+    private float r = 1, g = 1, b = 1, a = 1;
+
+    // Llamadas de dibujo desde el ultimo begin() y en total
+    private int renderCalls;
+    private int totalRenderCalls;
+
+    public InstancedQuads() {
+        this(1000);
+    }
+
+    /**
+     * Usa instanciado si el contexto actual lo permite y un lote de vertices si no.
+     */
+    public InstancedQuads(int size) {
+        this(size, isInstancingSupported() ? new GLRenderer() : new BatchRenderer(size));
+    }
+
+    /**
+     * @param size     cantidad maxima de instancias por llamada de dibujo.
+     * @param renderer encargado de dibujar las instancias.
+     */
+    public InstancedQuads(int size, Renderer renderer) {
+        if (size <= 0) throw new IllegalArgumentException("El tamanio del lote debe ser mayor a 0: " + size);
+        this.size = size;
+        this.renderer = renderer;
+        instances = BufferUtils.createFloatBuffer(size * INSTANCE_SIZE);
+    }
+
+    /**
+     * Devuelve true si el contexto actual tiene glDrawArraysInstanced y glVertexAttribDivisor (OpenGL 3.3).
+     */
+    public static boolean isInstancingSupported() {
+        return GLContext.getCapabilities().OpenGL33;
+    }
+
+    public void begin() {
+        if (drawing) throw new IllegalStateException("Se debe llamar a end() antes de begin()");
+        renderCalls = 0;
+        drawing = true;
+    }
+
+    public void end() {
+        if (!drawing) throw new IllegalStateException("Se debe llamar a begin() antes de end()");
+        flush();
+        drawing = false;
+        texture = null;
+    }
+
+    /**
+     * Establece el color de las siguientes instancias.
+     */
+    public void setColor(float r, float g, float b, float a) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.a = a;
+    }
+
+    /**
+     * Agrega un rectangulo sin textura con el color actual.
+     */
+    public void draw(float x, float y, float width, float height) {
+        draw(null, x, y, width, height, 0, 0, 1, 1);
+    }
+
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        draw(region.texture, x, y, width, height, region.u, region.v, region.u2, region.v2);
+    }
+
+    /**
+     * Agrega una instancia.
+     *
+     * @param texture textura del rectangulo, null para usar solo el color.
+     * @param x       posicion x de la esquina con coordenada de textura (u, v).
+     * @param y       posicion y de la esquina con coordenada de textura (u, v).
+     * @param width   ancho del rectangulo.
+     * @param height  alto del rectangulo.
+     * @param u       coordenada s de la esquina (x, y).
+     * @param v       coordenada t de la esquina (x, y).
+     * @param u2      coordenada s de la esquina opuesta.
+     * @param v2      coordenada t de la esquina opuesta.
+     */
+    public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+        if (!drawing) throw new IllegalStateException("Se debe llamar a begin() antes de draw()");
+
+        if (texture != this.texture) {
+            flush();
+            this.texture = texture;
+        } else if (count == size) flush();
+
+        instances.put(x).put(y).put(width).put(height).put(r).put(g).put(b).put(a).put(u).put(v).put(u2).put(v2);
+        count++;
+    }
+
+    /**
+     * Dibuja las instancias pendientes con una sola llamada de dibujo.
+     */
+    public void flush() {
+        if (count == 0) return;
+        instances.flip();
+        renderer.render(texture, instances, count);
+        instances.clear();
+        count = 0;
+        renderCalls++;
+        totalRenderCalls++;
+    }
+
+    public void dispose() {
+        renderer.dispose();
+    }
+
+    /**
+     * Devuelve una vista de solo lectura de las instancias pendientes.
+     */
+    public FloatBuffer getInstances() {
+        FloatBuffer view = instances.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getRenderCalls() {
+        return renderCalls;
+    }
+
+    public int getTotalRenderCalls() {
+        return totalRenderCalls;
+    }
+
+    /**
+     * Dibuja un grupo de instancias con la misma textura.
+     */
+    public interface Renderer {
+
+        /**
+         * @param texture   textura de todas las instancias, null si no tienen.
+         * @param instances atributos intercalados desde la posicion 0 hasta el limite.
+         * @param count     cantidad de instancias.
+         */
+        void render(Texture texture, FloatBuffer instances, int count);
+
+        void dispose();
+
+    }
+
+    /**
+     * Guarda el quad unitario en un VBO y las instancias en otro que se vuelve a reservar en cada llamada, y los combina en un
+     * shader: la esquina del quad escala y desplaza el rectangulo e interpola la region de la textura. Los atributos de instancia
+     * avanzan una vez por instancia ({@code glVertexAttribDivisor(1)}). La matriz es la de la pila de OpenGL, igual que en el
+     * modo inmediato.
+     */
+    public static class GLRenderer implements Renderer {
+
+        private static final int CORNER = 0, RECT = 1, COLOR = 2, REGION = 3;
+        // Distancia en bytes entre el inicio de una instancia y la siguiente
+        private static final int STRIDE = INSTANCE_SIZE * Float.BYTES;
+
+        private static final String VERTEX_SHADER = "#version 120\n"
+                + "attribute vec2 corner;\n"
+                + "attribute vec4 rect;\n"
+                + "attribute vec4 color;\n"
+                + "attribute vec4 region;\n"
+                + "varying vec4 vertexColor;\n"
+                + "varying vec2 texCoord;\n"
+                + "void main() {\n"
+                + "    vertexColor = color;\n"
+                + "    texCoord = mix(region.xy, region.zw, corner);\n"
+                + "    gl_Position = gl_ModelViewProjectionMatrix * vec4(rect.xy + corner * rect.zw, 0.0, 1.0);\n"
+                + "}\n";
+
+        private static final String FRAGMENT_SHADER = "#version 120\n"
+                + "uniform sampler2D image;\n"
+                + "uniform float textured;\n"
+                + "varying vec4 vertexColor;\n"
+                + "varying vec2 texCoord;\n"
+                + "void main() {\n"
+                + "    gl_FragColor = vertexColor * mix(vec4(1.0), texture2D(image, texCoord), textured);\n"
+                + "}\n";
+
+        // Se crean en el primer render(), cuando seguro hay un contexto GL
+        private int program, quad, buffer;
+        private int textured;
+
+        @Override
+        public void render(Texture texture, FloatBuffer instances, int count) {
+            if (program == 0) create();
+
+            glUseProgram(program);
+            glUniform1f(textured, texture != null ? 1 : 0);
+            if (texture != null) {
+                glActiveTexture(GL_TEXTURE0);
+                texture.bind();
+            }
+
+            glBindBuffer(GL_ARRAY_BUFFER, quad);
+            glVertexAttribPointer(CORNER, 2, GL_FLOAT, false, 0, 0L);
+            glEnableVertexAttribArray(CORNER);
+
+            // Reserva un almacenamiento nuevo en cada llamada para no esperar a que la GPU termine con el anterior
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glBufferData(GL_ARRAY_BUFFER, instances, GL_STREAM_DRAW);
+            attribute(RECT, 4, 0);
+            attribute(COLOR, 4, 4);
+            attribute(REGION, 4, 8);
+
+            glDrawArraysInstanced(GL_TRIANGLE_FAN, 0, 4, count);
+
+            for (int attribute = CORNER; attribute <= REGION; attribute++) {
+                glVertexAttribDivisor(attribute, 0);
+                glDisableVertexAttribArray(attribute);
+            }
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            glUseProgram(0);
+        }
+
+        private static void attribute(int index, int size, int offset) {
+            glVertexAttribPointer(index, size, GL_FLOAT, false, STRIDE, (long) offset * Float.BYTES);
+            glVertexAttribDivisor(index, 1);
+            glEnableVertexAttribArray(index);
+        }
+
+        private void create() {
+            program = glCreateProgram();
+            int vertex = compile(GL_VERTEX_SHADER, VERTEX_SHADER), fragment = compile(GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+            glAttachShader(program, vertex);
+            glAttachShader(program, fragment);
+            glBindAttribLocation(program, CORNER, "corner");
+            glBindAttribLocation(program, RECT, "rect");
+            glBindAttribLocation(program, COLOR, "color");
+            glBindAttribLocation(program, REGION, "region");
+            glLinkProgram(program);
+            if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE)
+                throw new IllegalStateException("No se pudo enlazar el shader: " + glGetProgramInfoLog(program, 1024));
+            // Una vez enlazado el programa los shaders ya no se necesitan
+            glDeleteShader(vertex);
+            glDeleteShader(fragment);
+
+            glUseProgram(program);
+            glUniform1i(glGetUniformLocation(program, "image"), 0);
+            textured = glGetUniformLocation(program, "textured");
+            glUseProgram(0);
+
+            // Esquinas del quad unitario en el orden de los quads del modo inmediato
+            FloatBuffer corners = BufferUtils.createFloatBuffer(4 * 2);
+            corners.put(new float[]{0, 0, 1, 0, 1, 1, 0, 1}).flip();
+            quad = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, quad);
+            glBufferData(GL_ARRAY_BUFFER, corners, GL_STATIC_DRAW);
+            buffer = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        private static int compile(int type, String source) {
+            int shader = glCreateShader(type);
+            glShaderSource(shader, source);
+            glCompileShader(shader);
+            if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE)
+                throw new IllegalStateException("No se pudo compilar el shader: " + glGetShaderInfoLog(shader, 1024));
+            return shader;
+        }
+
+        @Override
+        public void dispose() {
+            if (program == 0) return;
+            glDeleteProgram(program);
+            glDeleteBuffers(quad);
+            glDeleteBuffers(buffer);
+            program = 0;
+        }
+
+    }
+
+    /**
+     * Expande cada instancia a los cuatro vertices de un sprite en un {@link SpriteBatch}, para contextos sin instanciado. Sigue
+     * siendo una llamada de dibujo por textura, pero envia cuatro vertices por instancia en lugar de uno.
+     */
+    public static class BatchRenderer implements Renderer {
+
+        private final SpriteBatch batch;
+
+        public BatchRenderer(int size) {
+            this(new SpriteBatch(size));
+        }
+
+        public BatchRenderer(SpriteBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void render(Texture texture, FloatBuffer instances, int count) {
+            batch.begin();
+            for (int i = 0; i < count; i++) {
+                int index = i * INSTANCE_SIZE;
+                batch.setColor(instances.get(index + 4), instances.get(index + 5), instances.get(index + 6), instances.get(index + 7));
+                batch.draw(texture, instances.get(index), instances.get(index + 1), instances.get(index + 2), instances.get(index + 3),
+                        instances.get(index + 8), instances.get(index + 9), instances.get(index + 10), instances.get(index + 11));
+            }
+            batch.end();
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+    }
+
+}
\ No newline at end of file
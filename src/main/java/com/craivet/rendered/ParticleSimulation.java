@@ -0,0 +1,138 @@
+package com.craivet.rendered;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import com.craivet.BlockTask;
+
+/**
+ * Genera y mueve las particulas de un {@link ParticleStore} en paralelo con fork/join.
+ * <p>
+ * Las particulas se reparten en bloques de {@link #BLOCK_SIZE} que se procesan en cualquier hilo del pool. Cada bloque genera sus
+ * particulas con su propio {@link SplittableRandom}, obtenido de la semilla antes de repartir el trabajo, asi que para la misma
+ * semilla el resultado es identico con uno o con muchos hilos. Las posiciones se escriben directamente en el buffer del almacen,
+ * que es el mismo que se sube a OpenGL.
+ * <p>
+ * Las velocidades se guardan en tres arreglos separados (x, y, z) porque solo las usa la CPU. Si se establece una caja con
+ * {@link #setBounds}, las particulas que salen por un lado vuelven a entrar por el opuesto.
+ */
+
+public class ParticleSimulation {
+
+    /** Cantidad de particulas por bloque de trabajo. Es fija para que el reparto no dependa de la cantidad de hilos. */
+    public static final int BLOCK_SIZE = 16 * 1024;
+
+    private final ParticleStore store;
+    // Accesibles para PointClusters, que las reordena junto con las posiciones
+    final float[] vx, vy, vz;
+    private final ForkJoinPool pool;
+    private final int blocks;
+
+    // Caja en la que dan la vuelta las particulas, sin caja mientras el ancho sea 0
+    private float minX, minY, minZ;
+    private float width, height, depth;
+
+    public ParticleSimulation(ParticleStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool en el que se ejecutan los bloques.
+     */
+    public ParticleSimulation(ParticleStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+        vx = new float[store.size()];
+        vy = new float[store.size()];
+        vz = new float[store.size()];
+        blocks = (store.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Establece la caja en la que dan la vuelta las particulas.
+     */
+    public void setBounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        width = maxX - minX;
+        height = maxY - minY;
+        depth = maxZ - minZ;
+    }
+
+    /**
+     * Genera la posicion y la velocidad de todas las particulas.
+     *
+     * @param seed      semilla, el mismo valor genera siempre las mismas particulas.
+     * @param generator completa los valores de cada particula.
+     */
+    public void generate(long seed, Generator generator) {
+        // Los generadores de cada bloque se derivan en orden en este hilo, antes de repartir el trabajo
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++)
+            randoms[b] = root.split();
+
+        run(block -> {
+            SplittableRandom random = randoms[block];
+            float[] particle = new float[6];
+            for (int i = block * BLOCK_SIZE, end = Math.min(i + BLOCK_SIZE, store.size()); i < end; i++) {
+                generator.generate(random, particle);
+                store.set(i, particle[0], particle[1], particle[2]);
+                vx[i] = particle[3];
+                vy[i] = particle[4];
+                vz[i] = particle[5];
+            }
+        });
+    }
+
+    /**
+     * Mueve las particulas segun su velocidad.
+     *
+     * @param delta tiempo transcurrido en las mismas unidades que las velocidades.
+     */
+    public void update(float delta) {
+        run(block -> {
+            for (int i = block * BLOCK_SIZE, end = Math.min(i + BLOCK_SIZE, store.size()); i < end; i++) {
+                float x = store.getX(i) + vx[i] * delta;
+                float y = store.getY(i) + vy[i] * delta;
+                float z = store.getZ(i) + vz[i] * delta;
+                if (width > 0) {
+                    x = wrap(x, minX, width);
+                    y = wrap(y, minY, height);
+                    z = wrap(z, minZ, depth);
+                }
+                store.set(i, x, y, z);
+            }
+        });
+    }
+
+    private static float wrap(float value, float min, float size) {
+        if (value < min) return value + size;
+        if (value >= min + size) return value - size;
+        return value;
+    }
+
+    private void run(IntConsumer block) {
+        pool.invoke(new BlockTask(block, 0, blocks));
+    }
+
+    public ParticleStore getStore() {
+        return store;
+    }
+
+    /**
+     * Completa los valores iniciales de una particula.
+     */
+    public interface Generator {
+
+        /**
+         * @param random   generador del bloque de la particula, es el unico origen de aleatoriedad permitido.
+         * @param particle recibe la posicion (x, y, z) y la velocidad (vx, vy, vz).
+         */
+        void generate(SplittableRandom random, float[] particle);
+
+    }
+
+}
\ No newline at end of file
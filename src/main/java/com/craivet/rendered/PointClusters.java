@@ -0,0 +1,198 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.craivet.Frustum;
+
+/**
+ * Agrupa una nube de puntos en bloques contiguos con su caja envolvente, para descartar con {@link Frustum} los bloques que
+ * quedan fuera de la vista en lugar de enviar todos los puntos en cada cuadro.
+ * <p>
+ * Los puntos se ordenan por z en capas de 16 bloques, y cada capa se divide en 4 columnas por x y cada columna en 4 filas por
+ * y. Asi cada bloque ocupa una region compacta del espacio y sus puntos quedan consecutivos en el buffer: los bloques visibles se
+ * dibujan como rangos de un mismo buffer ({@code glDrawArrays(GL_POINTS, first, count)}) y los rangos vecinos se unen en uno.
+ */
+
+public class PointClusters {
+
+    // Divisiones por eje de cada capa
+    private static final int SPLITS = 4;
+
+    private final FloatBuffer points;
+    // Valores por punto que se reordenan junto con las posiciones
+    private final float[][] attributes;
+    private final int count;
+    private final int clusterSize;
+    private final int clusters;
+    // Caja envolvente de cada bloque: minX, minY, minZ, maxX, maxY, maxZ
+    private final float[] bounds;
+    // Primer punto de cada bloque, con un elemento extra al final igual a count
+    private final int[] offsets;
+
+    private int visiblePoints;
+
+    public PointClusters(ParticleStore store, int clusterSize) {
+        this(store.getPositions(), clusterSize);
+    }
+
+    /**
+     * Agrupa las particulas de una simulacion, reordenando tambien sus velocidades.
+     */
+    public PointClusters(ParticleSimulation simulation, int clusterSize) {
+        this(simulation.getStore().getPositions(), clusterSize, simulation.vx, simulation.vy, simulation.vz);
+    }
+
+    /**
+     * @param xyz         coordenadas de los puntos (x, y, z) intercaladas desde la posicion 0 hasta el limite. El buffer se
+     *                    reordena en el lugar.
+     * @param clusterSize cantidad aproximada de puntos por bloque.
+     * @param attributes  arreglos con un valor por punto que se reordenan igual que las posiciones.
+     */
+    public PointClusters(FloatBuffer xyz, int clusterSize, float[]... attributes) {
+        if (xyz.limit() % 3 != 0) throw new IllegalArgumentException("La cantidad de coordenadas no es multiplo de 3");
+        if (clusterSize <= 0) throw new IllegalArgumentException("El tamanio del bloque debe ser mayor a 0: " + clusterSize);
+        for (float[] attribute : attributes)
+            if (attribute.length != xyz.limit() / 3)
+                throw new IllegalArgumentException("Los atributos deben tener un valor por punto");
+        this.points = xyz;
+        this.attributes = attributes;
+        this.count = xyz.limit() / 3;
+        this.clusterSize = clusterSize;
+
+        int layerSize = clusterSize * SPLITS * SPLITS;
+        int layers = Math.max(1, (count + layerSize - 1) / layerSize);
+        clusters = layers * SPLITS * SPLITS;
+        offsets = new int[clusters + 1];
+        bounds = new float[clusters * 6];
+
+        sort(0, count, 2);
+        int cluster = 0;
+        for (int layer = 0; layer < layers; layer++) {
+            int from = Math.min(count, layer * layerSize), to = Math.min(count, from + layerSize);
+            sort(from, to, 0);
+            for (int column = 0; column < SPLITS; column++) {
+                int columnFrom = split(from, to, column), columnTo = split(from, to, column + 1);
+                sort(columnFrom, columnTo, 1);
+                for (int row = 0; row < SPLITS; row++)
+                    offsets[cluster++] = split(columnFrom, columnTo, row);
+            }
+        }
+        offsets[clusters] = count;
+        updateBounds();
+    }
+
+    /**
+     * Recalcula la caja envolvente de cada bloque a partir de la posicion actual de sus puntos. Los bloques se recorren en
+     * paralelo; se llama despues de mover los puntos (por ejemplo con {@link ParticleSimulation#update(float)}).
+     */
+    public void updateBounds() {
+        IntStream.range(0, clusters).parallel().forEach(this::updateBounds);
+    }
+
+    private void updateBounds(int c) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = offsets[c] * 3; i < offsets[c + 1] * 3; i += 3) {
+            float x = points.get(i), y = points.get(i + 1), z = points.get(i + 2);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        int b = c * 6;
+        bounds[b] = minX;
+        bounds[b + 1] = minY;
+        bounds[b + 2] = minZ;
+        bounds[b + 3] = maxX;
+        bounds[b + 4] = maxY;
+        bounds[b + 5] = maxZ;
+    }
+
+    /**
+     * Calcula los rangos de puntos de los bloques que se superponen con el frustum.
+     *
+     * @param first recibe el primer punto de cada rango, debe tener lugar para {@link #getClusterCount()} elementos.
+     * @param count recibe la cantidad de puntos de cada rango.
+     * @return cantidad de rangos.
+     */
+    public int cull(Frustum frustum, int[] first, int[] count) {
+        int ranges = 0;
+        visiblePoints = 0;
+        for (int c = 0; c < clusters; c++) {
+            int size = offsets[c + 1] - offsets[c];
+            if (size == 0) continue;
+            int b = c * 6;
+            if (!frustum.intersects(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5]))
+                continue;
+            // Si el bloque empieza donde termina el rango anterior se extiende ese rango
+            if (ranges > 0 && first[ranges - 1] + count[ranges - 1] == offsets[c]) count[ranges - 1] += size;
+            else {
+                first[ranges] = offsets[c];
+                count[ranges] = size;
+                ranges++;
+            }
+            visiblePoints += size;
+        }
+        return ranges;
+    }
+
+    /**
+     * Ordena los puntos entre from (inclusive) y to (exclusive) por la coordenada axis (0 = x, 1 = y, 2 = z).
+     */
+    private void sort(int from, int to, int axis) {
+        int n = to - from;
+        if (n < 2) return;
+        // Cada clave lleva la coordenada convertida a un int que se ordena igual que el float y el indice del punto
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToIntBits(points.get((from + i) * 3 + axis));
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            keys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys);
+        float[] sorted = new float[n * 3];
+        for (int i = 0; i < n; i++) {
+            int src = (from + (int) keys[i]) * 3;
+            sorted[i * 3] = points.get(src);
+            sorted[i * 3 + 1] = points.get(src + 1);
+            sorted[i * 3 + 2] = points.get(src + 2);
+        }
+        FloatBuffer target = points.duplicate();
+        target.position(from * 3);
+        target.put(sorted);
+        for (float[] attribute : attributes) {
+            float[] values = new float[n];
+            for (int i = 0; i < n; i++)
+                values[i] = attribute[from + (int) keys[i]];
+            System.arraycopy(values, 0, attribute, from, n);
+        }
+    }
+
+    private static int split(int from, int to, int part) {
+        return from + (int) ((long) (to - from) * part / SPLITS);
+    }
+
+    public int getPointCount() {
+        return count;
+    }
+
+    public int getClusterCount() {
+        return clusters;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Devuelve la cantidad de puntos en los rangos del ultimo {@link #cull(Frustum, int[], int[])}.
+     */
+    public int getVisiblePoints() {
+        return visiblePoints;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,379 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GLContext;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Dibuja los rangos visibles de un {@link ParticleStore} con cualquiera de los {@link RenderMode}.
+ * <p>
+ * Los recursos de cada modo (lista de visualizacion, VBO, VAO) se crean al construir el renderizador y el buffer de streaming al
+ * dibujar por primera vez con un modo de streaming. Las llamadas a OpenGL se delegan en un {@link Backend}, de esta forma los
+ * modos se pueden ejecutar y contar con {@link RecordingBackend} sin contexto GL.
+ */
+
+public class PointRenderer {
+
+    private final ParticleStore points;
+    private final FloatBuffer positions;
+    private final Backend gl;
+
+    private final int displayList;
+    private final int vertexBufferObject;
+    // 0 si no hay OpenGL 3.0
+    private final int vertexArrayObject;
+    // Buffer del ultimo modo de streaming usado
+    private StreamingBuffer stream;
+    // Indica si los puntos cambiaron desde la ultima vez que se subieron al VBO
+    private boolean dirty;
+
+    public PointRenderer(ParticleStore points) {
+        this(points, new GLBackend());
+    }
+
+    public PointRenderer(ParticleStore points, Backend gl) {
+        this.points = points;
+        this.gl = gl;
+        positions = points.getPositions();
+
+        /* Display lists */
+        displayList = gl.genList();
+        /* Todas las llamadas entre newList y endList se almacenan en la lista de visualizacion, que queda con las posiciones
+         * actuales de los puntos. */
+        gl.newList(displayList);
+        gl.begin();
+        for (int i = 0; i < points.size(); i++)
+            gl.vertex(points.getX(i), points.getY(i), points.getZ(i));
+        gl.end();
+        gl.endList();
+
+        /* Vertex Buffer Object (dinamico, porque los puntos se mueven) */
+        vertexBufferObject = gl.genBuffer();
+        gl.bindBuffer(vertexBufferObject);
+        gl.bufferData(positions);
+        gl.bindBuffer(0);
+
+        /* Vertex Array Object */
+        if (gl.getVersion() >= 30) {
+            // El VAO guarda el VBO del puntero de vertices y la matriz habilitada
+            vertexArrayObject = gl.genVertexArray();
+            gl.bindVertexArray(vertexArrayObject);
+            gl.bindBuffer(vertexBufferObject);
+            gl.vertexPointer(0L);
+            gl.enableVertexArray();
+            gl.bindVertexArray(0);
+            gl.bindBuffer(0);
+        } else vertexArrayObject = 0;
+    }
+
+    /**
+     * Devuelve true si el contexto tiene la version de OpenGL que necesita el modo.
+     */
+    public boolean isSupported(RenderMode mode) {
+        // glMapBufferRange es de OpenGL 3.0 y los fences de OpenGL 3.2
+        if (mode == RenderMode.VERTEX_ARRAY_OBJECT) return vertexArrayObject != 0;
+        if (mode.streaming != null && mode.streaming != StreamingBuffer.Mode.ORPHAN) return gl.getVersion() >= 32;
+        return true;
+    }
+
+    /**
+     * Indica que los puntos se movieron, el VBO se vuelve a subir la proxima vez que se dibuje con el.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Dibuja los rangos de puntos con el modo indicado.
+     *
+     * @param first  primer punto de cada rango.
+     * @param count  cantidad de puntos de cada rango.
+     * @param ranges cantidad de rangos.
+     */
+    public void draw(RenderMode mode, int[] first, int[] count, int ranges) {
+        if (!isSupported(mode)) throw new IllegalArgumentException("El modo " + mode.name() + " no es compatible con el contexto");
+        switch (mode) {
+            case DISPLAY_LISTS:
+                /* Dibuja la lista de visualizacion (compilada con todos los puntos en su posicion inicial, no se puede descartar una
+                 * parte ni mover los puntos) */
+                gl.callList(displayList);
+                break;
+            case VERTEX_BUFFER_OBJECT:
+                gl.enableVertexArray();
+                gl.bindBuffer(vertexBufferObject);
+                if (dirty) {
+                    gl.bufferSubData(positions);
+                    dirty = false;
+                }
+                // Le dice a OpenGL que busque los datos en el VBO vinculado con 3 componentes (xyz)
+                gl.vertexPointer(0L);
+                drawRanges(first, count, ranges);
+                gl.bindBuffer(0);
+                gl.disableVertexArray();
+                break;
+            case VERTEX_ARRAY_OBJECT:
+                if (dirty) {
+                    gl.bindBuffer(vertexBufferObject);
+                    gl.bufferSubData(positions);
+                    gl.bindBuffer(0);
+                    dirty = false;
+                }
+                // El VAO ya tiene el VBO, el puntero y la matriz habilitada
+                gl.bindVertexArray(vertexArrayObject);
+                drawRanges(first, count, ranges);
+                gl.bindVertexArray(0);
+                break;
+            case CLIENT_ARRAYS:
+                gl.enableVertexArray();
+                // Los datos estan en la memoria del sistema y se vuelven a transferir en cada llamada de dibujo
+                gl.vertexPointer(positions);
+                drawRanges(first, count, ranges);
+                gl.disableVertexArray();
+                break;
+            case STREAM_ORPHAN:
+            case STREAM_MAP_UNSYNCHRONIZED:
+            case STREAM_RING:
+                // Sube todos los puntos en cada cuadro, aunque no se hayan movido, para medir el costo del streaming
+                long offset = stream(mode.streaming).upload(positions);
+                gl.enableVertexArray();
+                gl.bindBuffer(stream.getBuffer());
+                // Los datos del cuadro empiezan en el desplazamiento devuelto por upload
+                gl.vertexPointer(offset);
+                drawRanges(first, count, ranges);
+                gl.bindBuffer(0);
+                gl.disableVertexArray();
+                stream.endFrame();
+                break;
+            case IMMEDIATE:
+                gl.begin();
+                for (int r = 0; r < ranges; r++)
+                    for (int i = first[r]; i < first[r] + count[r]; i++)
+                        gl.vertex(points.getX(i), points.getY(i), points.getZ(i));
+                gl.end();
+                break;
+        }
+    }
+
+    private void drawRanges(int[] first, int[] count, int ranges) {
+        for (int r = 0; r < ranges; r++)
+            gl.drawArrays(first[r], count[r]);
+    }
+
+    /**
+     * Devuelve el buffer de streaming del modo, reemplazando el del modo anterior.
+     */
+    private StreamingBuffer stream(StreamingBuffer.Mode mode) {
+        if (stream != null && stream.getMode() == mode) return stream;
+        if (stream != null) stream.dispose();
+        long size = (long) positions.remaining() * Float.BYTES;
+        // Sin sincronizar, el buffer tiene lugar para tres cuadros antes de dar la vuelta
+        long capacity = mode == StreamingBuffer.Mode.MAP_UNSYNCHRONIZED ? size * 3 : size;
+        stream = new StreamingBuffer(mode, capacity, StreamingBuffer.RING_SIZE, gl.getStreamingBackend());
+        return stream;
+    }
+
+    public void dispose() {
+        gl.deleteList(displayList);
+        if (vertexArrayObject != 0) gl.deleteVertexArray(vertexArrayObject);
+        gl.deleteBuffer(vertexBufferObject);
+        if (stream != null) stream.dispose();
+        stream = null;
+    }
+
+    /**
+     * Llamadas a OpenGL de los modos de renderizado. Los puntos siempre se dibujan como GL_POINTS con 3 componentes float y el
+     * buffer siempre es GL_ARRAY_BUFFER.
+     */
+    public interface Backend {
+
+        /**
+         * Devuelve la version de OpenGL del contexto como mayor * 10 + menor (por ejemplo 32 para OpenGL 3.2).
+         */
+        int getVersion();
+
+        int genList();
+
+        void newList(int list);
+
+        void endList();
+
+        void callList(int list);
+
+        void deleteList(int list);
+
+        void begin();
+
+        void vertex(float x, float y, float z);
+
+        void end();
+
+        void enableVertexArray();
+
+        void disableVertexArray();
+
+        /**
+         * Puntero a posiciones en la memoria del sistema.
+         */
+        void vertexPointer(FloatBuffer positions);
+
+        /**
+         * Puntero a posiciones en el buffer vinculado, a partir del desplazamiento en bytes.
+         */
+        void vertexPointer(long offset);
+
+        int genBuffer();
+
+        void bindBuffer(int buffer);
+
+        void bufferData(FloatBuffer data);
+
+        void bufferSubData(FloatBuffer data);
+
+        void deleteBuffer(int buffer);
+
+        int genVertexArray();
+
+        void bindVertexArray(int array);
+
+        void deleteVertexArray(int array);
+
+        void drawArrays(int first, int count);
+
+        /**
+         * Devuelve el backend de los buffers de streaming, que usa el mismo contexto.
+         */
+        StreamingBuffer.Backend getStreamingBackend();
+
+    }
+
+    /**
+     * Implementa las llamadas con el contexto GL actual.
+     */
+    public static class GLBackend implements Backend {
+
+        private final StreamingBuffer.Backend streaming = new StreamingBuffer.GLBackend();
+
+        @Override
+        public int getVersion() {
+            if (GLContext.getCapabilities().OpenGL32) return 32;
+            if (GLContext.getCapabilities().OpenGL30) return 30;
+            return 15;
+        }
+
+        @Override
+        public int genList() {
+            return glGenLists(1);
+        }
+
+        @Override
+        public void newList(int list) {
+            glNewList(list, GL_COMPILE);
+        }
+
+        @Override
+        public void endList() {
+            glEndList();
+        }
+
+        @Override
+        public void callList(int list) {
+            glCallList(list);
+        }
+
+        @Override
+        public void deleteList(int list) {
+            glDeleteLists(list, 1);
+        }
+
+        @Override
+        public void begin() {
+            glBegin(GL_POINTS);
+        }
+
+        @Override
+        public void vertex(float x, float y, float z) {
+            glVertex3f(x, y, z);
+        }
+
+        @Override
+        public void end() {
+            glEnd();
+        }
+
+        @Override
+        public void enableVertexArray() {
+            glEnableClientState(GL_VERTEX_ARRAY);
+        }
+
+        @Override
+        public void disableVertexArray() {
+            glDisableClientState(GL_VERTEX_ARRAY);
+        }
+
+        @Override
+        public void vertexPointer(FloatBuffer positions) {
+            glVertexPointer(3, 0, positions);
+        }
+
+        @Override
+        public void vertexPointer(long offset) {
+            glVertexPointer(3, GL_FLOAT, 0, offset);
+        }
+
+        @Override
+        public int genBuffer() {
+            return glGenBuffers();
+        }
+
+        @Override
+        public void bindBuffer(int buffer) {
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+        }
+
+        @Override
+        public void bufferData(FloatBuffer data) {
+            glBufferData(GL_ARRAY_BUFFER, data, GL_DYNAMIC_DRAW);
+        }
+
+        @Override
+        public void bufferSubData(FloatBuffer data) {
+            glBufferSubData(GL_ARRAY_BUFFER, 0, data);
+        }
+
+        @Override
+        public void deleteBuffer(int buffer) {
+            glDeleteBuffers(buffer);
+        }
+
+        @Override
+        public int genVertexArray() {
+            return glGenVertexArrays();
+        }
+
+        @Override
+        public void bindVertexArray(int array) {
+            glBindVertexArray(array);
+        }
+
+        @Override
+        public void deleteVertexArray(int array) {
+            glDeleteVertexArrays(array);
+        }
+
+        @Override
+        public void drawArrays(int first, int count) {
+            glDrawArrays(GL_POINTS, first, count);
+        }
+
+        @Override
+        public StreamingBuffer.Backend getStreamingBackend() {
+            return streaming;
+        }
+
+    }
+
+}
\ No newline at end of file
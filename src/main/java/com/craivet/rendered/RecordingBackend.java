@@ -0,0 +1,284 @@
+package com.craivet.rendered;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Backend que cuenta las llamadas a OpenGL de {@link PointRenderer} y de {@link StreamingBuffer}, y los bytes que se envian a la
+ * GPU.
+ * <p>
+ * Sin un backend real no hace nada mas que contar (devuelve identificadores consecutivos y mapea un buffer del heap), lo que
+ * permite ejecutar todos los modos sin pantalla ni contexto GL. Con un backend real reenvia cada llamada y cuenta las mismas.
+ */
+
+public class RecordingBackend implements PointRenderer.Backend, StreamingBuffer.Backend {
+
+    private final PointRenderer.Backend gl;
+    private final StreamingBuffer.Backend streaming;
+    private final int version;
+
+    private int ids;
+    // Buffer que se entrega al mapear sin backend real, se reutiliza
+    private ByteBuffer mapped = ByteBuffer.allocate(0);
+    // Indica si el puntero de vertices apunta a la memoria del sistema (se transfiere en cada dibujo)
+    private boolean clientPointer;
+
+    private long calls, drawCalls, bytes;
+
+    /**
+     * Crea un backend sin contexto GL que se presenta como OpenGL 3.2, asi todos los modos estan disponibles.
+     */
+    public RecordingBackend() {
+        this.gl = null;
+        this.streaming = null;
+        this.version = 32;
+    }
+
+    /**
+     * @param gl backend real al que se reenvian las llamadas.
+     */
+    public RecordingBackend(PointRenderer.Backend gl) {
+        this.gl = gl;
+        this.streaming = gl.getStreamingBackend();
+        this.version = gl.getVersion();
+    }
+
+    /**
+     * Pone los contadores en 0.
+     */
+    public void reset() {
+        calls = drawCalls = bytes = 0;
+    }
+
+    /**
+     * Devuelve la cantidad de llamadas a OpenGL desde el ultimo {@link #reset()}.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Devuelve la cantidad de llamadas de dibujo (glDrawArrays, glCallList) desde el ultimo {@link #reset()}.
+     */
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Devuelve los bytes de vertices enviados a la GPU desde el ultimo {@link #reset()}: subidas a buffers, vertices del modo
+     * inmediato y matrices del lado del cliente leidas al dibujar.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public int genList() {
+        calls++;
+        return gl != null ? gl.genList() : ++ids;
+    }
+
+    @Override
+    public void newList(int list) {
+        calls++;
+        if (gl != null) gl.newList(list);
+    }
+
+    @Override
+    public void endList() {
+        calls++;
+        if (gl != null) gl.endList();
+    }
+
+    @Override
+    public void callList(int list) {
+        calls++;
+        drawCalls++;
+        if (gl != null) gl.callList(list);
+    }
+
+    @Override
+    public void deleteList(int list) {
+        calls++;
+        if (gl != null) gl.deleteList(list);
+    }
+
+    @Override
+    public void begin() {
+        calls++;
+        if (gl != null) gl.begin();
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        calls++;
+        bytes += 3 * Float.BYTES;
+        if (gl != null) gl.vertex(x, y, z);
+    }
+
+    @Override
+    public void end() {
+        calls++;
+        drawCalls++;
+        if (gl != null) gl.end();
+    }
+
+    @Override
+    public void enableVertexArray() {
+        calls++;
+        if (gl != null) gl.enableVertexArray();
+    }
+
+    @Override
+    public void disableVertexArray() {
+        calls++;
+        if (gl != null) gl.disableVertexArray();
+    }
+
+    @Override
+    public void vertexPointer(FloatBuffer positions) {
+        calls++;
+        clientPointer = true;
+        if (gl != null) gl.vertexPointer(positions);
+    }
+
+    @Override
+    public void vertexPointer(long offset) {
+        calls++;
+        clientPointer = false;
+        if (gl != null) gl.vertexPointer(offset);
+    }
+
+    @Override
+    public int genBuffer() {
+        calls++;
+        return gl != null ? gl.genBuffer() : ++ids;
+    }
+
+    @Override
+    public void bindBuffer(int buffer) {
+        calls++;
+        if (gl != null) gl.bindBuffer(buffer);
+    }
+
+    @Override
+    public void bufferData(FloatBuffer data) {
+        calls++;
+        bytes += (long) data.remaining() * Float.BYTES;
+        if (gl != null) gl.bufferData(data);
+    }
+
+    @Override
+    public void bufferSubData(FloatBuffer data) {
+        calls++;
+        bytes += (long) data.remaining() * Float.BYTES;
+        if (gl != null) gl.bufferSubData(data);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        calls++;
+        if (gl != null) gl.deleteBuffer(buffer);
+    }
+
+    @Override
+    public int genVertexArray() {
+        calls++;
+        return gl != null ? gl.genVertexArray() : ++ids;
+    }
+
+    @Override
+    public void bindVertexArray(int array) {
+        calls++;
+        // El VAO tiene su propio puntero, que en PointRenderer siempre apunta a un VBO
+        if (array != 0) clientPointer = false;
+        if (gl != null) gl.bindVertexArray(array);
+    }
+
+    @Override
+    public void deleteVertexArray(int array) {
+        calls++;
+        if (gl != null) gl.deleteVertexArray(array);
+    }
+
+    @Override
+    public void drawArrays(int first, int count) {
+        calls++;
+        drawCalls++;
+        if (clientPointer) bytes += (long) count * 3 * Float.BYTES;
+        if (gl != null) gl.drawArrays(first, count);
+    }
+
+    @Override
+    public StreamingBuffer.Backend getStreamingBackend() {
+        return this;
+    }
+
+    // Llamadas de StreamingBuffer
+
+    @Override
+    public int create() {
+        calls++;
+        return streaming != null ? streaming.create() : ++ids;
+    }
+
+    @Override
+    public void allocate(int buffer, long size) {
+        calls++;
+        if (streaming != null) streaming.allocate(buffer, size);
+    }
+
+    @Override
+    public void write(int buffer, long offset, FloatBuffer data) {
+        calls++;
+        bytes += (long) data.remaining() * Float.BYTES;
+        if (streaming != null) streaming.write(buffer, offset, data);
+    }
+
+    @Override
+    public ByteBuffer map(int buffer, long offset, long length, boolean invalidateBuffer) {
+        calls++;
+        bytes += length;
+        if (streaming != null) return streaming.map(buffer, offset, length, invalidateBuffer);
+        if (mapped.capacity() < length) mapped = ByteBuffer.allocate((int) length);
+        mapped.clear().limit((int) length);
+        return mapped;
+    }
+
+    @Override
+    public void unmap(int buffer) {
+        calls++;
+        if (streaming != null) streaming.unmap(buffer);
+    }
+
+    @Override
+    public int fence() {
+        calls++;
+        return streaming != null ? streaming.fence() : ++ids;
+    }
+
+    @Override
+    public boolean await(int fence) {
+        calls++;
+        // Sin GPU los fences se cumplen enseguida
+        return streaming != null && streaming.await(fence);
+    }
+
+    @Override
+    public void deleteFence(int fence) {
+        calls++;
+        if (streaming != null) streaming.deleteFence(fence);
+    }
+
+    @Override
+    public void delete(int buffer) {
+        calls++;
+        if (streaming != null) streaming.delete(buffer);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.craivet.rendered;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.lwjgl.LWJGLException;
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.DisplayMode;
+
+import com.craivet.FrameProfiler;
+import com.craivet.Frustum;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.util.glu.GLU.gluPerspective;
+
+import static com.craivet.Global.*;
+
+/**
+ * Ejecuta cada {@link RenderMode} de {@link AdvancedRendering} durante una cantidad fija de cuadros y escribe un reporte.
+ * <p>
+ * Los cuadros no se sincronizan ({@code Display.sync} ni vsync), asi el tiempo de cuadro no queda limitado a 60 fps. Por cada modo
+ * se mide el tiempo de CPU de {@link PointRenderer#draw} (envio), el tiempo de cuadro completo con sus percentiles y las llamadas
+ * a OpenGL y los bytes por cuadro que cuenta un {@link RecordingBackend}.
+ * <p>
+ * Con {@code --headless} no se abre una ventana y el {@link RecordingBackend} no reenvia las llamadas a ningun contexto: se mide
+ * solo el costo de CPU de armar cada modo y las cantidades de llamadas y bytes, lo que funciona en maquinas sin GPU. Para medir
+ * con OpenGL en una maquina sin GPU se puede ejecutar sin {@code --headless} con Mesa por software
+ * ({@code LIBGL_ALWAYS_SOFTWARE=1}) en un servidor X virtual.
+ * <p>
+ * Opciones:
+ * <ul>
+ * <li>{@code --headless}: sin ventana ni contexto GL.</li>
+ * <li>{@code --frames N}: cuadros medidos por modo (300).</li>
+ * <li>{@code --warmup N}: cuadros previos sin medir por modo (30).</li>
+ * <li>{@code --points N}: cantidad de puntos (3000000).</li>
+ * <li>{@code --modes A,B}: modos a ejecutar (todos).</li>
+ * <li>{@code --moving}: mueve los puntos en cada cuadro, asi los modos con VBO vuelven a subirlos.</li>
+ * <li>{@code --out archivo}: reporte en csv, o en json si el nombre termina en .json (build/render-benchmark.csv).</li>
+ * </ul>
+ * Ejecutar con {@code gradle renderBenchmark --args="--headless"}.
+ */
+
+public class RenderBenchmark {
+
+    private int frames = 300;
+    private int warmup = 30;
+    private int size = 3_000_000;
+    private boolean headless, moving;
+    private Set<RenderMode> modes = EnumSet.allOf(RenderMode.class);
+    private File out = new File("build", "render-benchmark.csv");
+
+    private ParticleStore points;
+    private ParticleSimulation simulation;
+    private PointClusters clusters;
+    private int[] first, count;
+    private final Frustum frustum = new Frustum();
+
+    /**
+     * Resultado de un modo.
+     */
+    static class Result {
+
+        final RenderMode mode;
+        // Tiempos de cada cuadro medido en nanosegundos, ordenados
+        final long[] submit, frame;
+        final long calls, drawCalls, bytes;
+
+        Result(RenderMode mode, long[] submit, long[] frame, long calls, long drawCalls, long bytes) {
+            this.mode = mode;
+            this.submit = submit;
+            this.frame = frame;
+            this.calls = calls;
+            this.drawCalls = drawCalls;
+            this.bytes = bytes;
+            Arrays.sort(submit);
+            Arrays.sort(frame);
+        }
+
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless":
+                    headless = true;
+                    break;
+                case "--moving":
+                    moving = true;
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--points":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--modes":
+                    modes = EnumSet.noneOf(RenderMode.class);
+                    for (String mode : args[++i].split(","))
+                        modes.add(RenderMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+                    break;
+                case "--out":
+                    out = new File(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opcion desconocida: " + args[i]);
+            }
+        }
+        if (frames <= 0) throw new IllegalArgumentException("La cantidad de cuadros debe ser mayor a 0: " + frames);
+    }
+
+    private void start() throws IOException {
+        if (!headless) setUpDisplay();
+
+        points = new ParticleStore(size);
+        simulation = AdvancedRendering.createSimulation(points);
+        clusters = new PointClusters(simulation, 4096);
+        first = new int[clusters.getClusterCount()];
+        count = new int[clusters.getClusterCount()];
+        // Misma proyeccion que AdvancedRendering, con la camara quieta en el origen
+        frustum.setPerspective(30, (float) WIDTH / HEIGHT, 0.001f, 10000);
+
+        RecordingBackend recorder = headless ? new RecordingBackend() : new RecordingBackend(new PointRenderer.GLBackend());
+        PointRenderer renderer = new PointRenderer(points, recorder);
+
+        List<Result> results = new ArrayList<>();
+        for (RenderMode mode : modes) {
+            if (!renderer.isSupported(mode)) {
+                System.out.println(mode.name() + ": no es compatible con OpenGL " + recorder.getVersion() / 10 + "." + recorder.getVersion() % 10 + ", se omite");
+                continue;
+            }
+            results.add(run(mode, renderer, recorder));
+            print(results.get(results.size() - 1));
+        }
+
+        renderer.dispose();
+        if (!headless) Display.destroy();
+
+        write(results);
+        System.out.println("Reporte guardado en " + out.getAbsolutePath());
+    }
+
+    private Result run(RenderMode mode, PointRenderer renderer, RecordingBackend recorder) {
+        long[] submit = new long[frames], frame = new long[frames];
+        long calls = 0, drawCalls = 0, bytes = 0;
+        for (int i = -warmup; i < frames; i++) {
+            long start = System.nanoTime();
+
+            if (moving) {
+                simulation.update(1);
+                clusters.updateBounds();
+                renderer.invalidate();
+            }
+            int ranges = clusters.cull(frustum, first, count);
+            if (!headless) glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+            recorder.reset();
+            long submitStart = System.nanoTime();
+            renderer.draw(mode, first, count, ranges);
+            long submitEnd = System.nanoTime();
+
+            // Sin sincronizar, el intercambio de buffers solo espera si la GPU quedo varios cuadros atras
+            if (!headless) Display.update();
+
+            if (i >= 0) {
+                submit[i] = submitEnd - submitStart;
+                frame[i] = System.nanoTime() - start;
+                calls += recorder.getCalls();
+                drawCalls += recorder.getDrawCalls();
+                bytes += recorder.getBytes();
+            }
+        }
+        return new Result(mode, submit, frame, calls / frames, drawCalls / frames, bytes / frames);
+    }
+
+    private void print(Result r) {
+        System.out.println(String.format(Locale.ROOT, "%-26s envio %8.3f ms  cuadro p50 %8.3f ms  p95 %8.3f ms  p99 %8.3f ms  %,d llamadas  %,d bytes",
+                r.mode.name(), millis(mean(r.submit)), millis(percentile(r.frame, 50)), millis(percentile(r.frame, 95)),
+                millis(percentile(r.frame, 99)), r.calls, r.bytes));
+    }
+
+    private void write(List<Result> results) throws IOException {
+        boolean json = out.getName().endsWith(".json");
+        File parent = out.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) throw new IOException("No se pudo crear la carpeta " + parent);
+        try (PrintWriter writer = new PrintWriter(out, "UTF-8")) {
+            if (json) writer.println("[");
+            else writer.println("mode,frames,points,headless,moving,submit_mean_ms,submit_p50_ms,submit_p95_ms,frame_mean_ms,frame_p50_ms,frame_p95_ms,frame_p99_ms,frame_max_ms,gl_calls_per_frame,draw_calls_per_frame,bytes_per_frame");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                Object[] values = {r.mode.name(), frames, size, headless, moving,
+                        millis(mean(r.submit)), millis(percentile(r.submit, 50)), millis(percentile(r.submit, 95)),
+                        millis(mean(r.frame)), millis(percentile(r.frame, 50)), millis(percentile(r.frame, 95)),
+                        millis(percentile(r.frame, 99)), millis(r.frame[r.frame.length - 1]),
+                        r.calls, r.drawCalls, r.bytes};
+                if (json) {
+                    writer.print(String.format(Locale.ROOT, "  {\"mode\": \"%s\", \"frames\": %d, \"points\": %d, \"headless\": %b, \"moving\": %b, "
+                            + "\"submit_mean_ms\": %.4f, \"submit_p50_ms\": %.4f, \"submit_p95_ms\": %.4f, "
+                            + "\"frame_mean_ms\": %.4f, \"frame_p50_ms\": %.4f, \"frame_p95_ms\": %.4f, \"frame_p99_ms\": %.4f, \"frame_max_ms\": %.4f, "
+                            + "\"gl_calls_per_frame\": %d, \"draw_calls_per_frame\": %d, \"bytes_per_frame\": %d}", values));
+                    writer.println(i < results.size() - 1 ? "," : "");
+                } else writer.println(String.format(Locale.ROOT, "%s,%d,%d,%b,%b,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%d,%d,%d", values));
+            }
+            if (json) writer.println("]");
+        }
+    }
+
+    private void setUpDisplay() {
+        try {
+            Display.setDisplayMode(new DisplayMode(WIDTH, HEIGHT));
+            Display.setTitle("Benchmark de renderizado");
+            // Sin vsync para medir cuanto tarda cada cuadro en lugar del intervalo de refresco
+            Display.setVSyncEnabled(false);
+            Display.create();
+        } catch (LWJGLException e) {
+            System.err.println("No se pudo crear la pantalla: " + e.getMessage() + ". Usar --headless para medir sin contexto GL.");
+            System.exit(1);
+        }
+        glMatrixMode(GL_PROJECTION);
+        glLoadIdentity();
+        gluPerspective((float) 30, (float) WIDTH / HEIGHT, 0.001f, 10000);
+        glMatrixMode(GL_MODELVIEW);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return FrameProfiler.percentile(sorted, sorted.length, p);
+    }
+
+    private static double mean(long[] values) {
+        double sum = 0;
+        for (long value : values)
+            sum += value;
+        return sum / values.length;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1e6;
+    }
+
+    public static void main(String[] args) throws IOException {
+        RenderBenchmark benchmark = new RenderBenchmark();
+        benchmark.parse(args);
+        benchmark.start();
+        System.exit(0);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.craivet.rendered;
+
+/**
+ * Formas de enviar los puntos de {@link AdvancedRendering} a la GPU, dibujadas por {@link PointRenderer}.
+ */
+
+public enum RenderMode {
+
+    /** Un glVertex3f por punto entre glBegin y glEnd. */
+    IMMEDIATE,
+    /** Lista de visualizacion compilada con las posiciones iniciales. */
+    DISPLAY_LISTS,
+    /** Matrices de vertices del lado del cliente, se transfieren desde la memoria del sistema en cada dibujo. */
+    CLIENT_ARRAYS,
+    /** VAO con el VBO y el puntero de vertices configurados una sola vez (OpenGL 3.0). */
+    VERTEX_ARRAY_OBJECT,
+    /** VBO que se vincula y configura en cada cuadro. */
+    VERTEX_BUFFER_OBJECT,
+    // Suben los puntos en cada cuadro con un StreamingBuffer
+    STREAM_ORPHAN(StreamingBuffer.Mode.ORPHAN),
+    STREAM_MAP_UNSYNCHRONIZED(StreamingBuffer.Mode.MAP_UNSYNCHRONIZED),
+    STREAM_RING(StreamingBuffer.Mode.RING);
+
+    /** Modo del StreamingBuffer, null si el modo no sube los puntos en cada cuadro. */
+    public final StreamingBuffer.Mode streaming;
+
+    RenderMode() {
+        this(null);
+    }
+
+    RenderMode(StreamingBuffer.Mode streaming) {
+        this.streaming = streaming;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,282 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+import com.craivet.Texture;
+import com.craivet.TextureRegion;
+import com.craivet.geom.MatrixStack;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Agrupa muchos sprites en la misma llamada de dibujo.
+ * <p>
+ * Cada sprite se guarda como cuatro vertices intercalados (x, y, s, t, r, g, b, a) en un FloatBuffer de capacidad fija. Los
+ * vertices no se envian a la GPU hasta que se llama a {@link #end()} o {@link #flush()}, se dibuja un sprite con una textura
+ * diferente a la anterior o se llena la capacidad del lote.
+ * <p>
+ * Las esquinas de cada sprite se transforman al agregarlo con la matriz del tope de {@link #getTransform()}, una pila del lado de
+ * la CPU que reemplaza a glPushMatrix/glTranslatef/glPopMatrix por sprite: los sprites con distintas transformaciones siguen
+ * entrando en la misma llamada de dibujo. Solo se usan la parte 2D y la traslacion de la matriz (z = 0, sin proyeccion).
+ * <p>
+ * El envio a la GPU se delega en un {@link Renderer}, de esta forma el llenado de vertices se puede usar sin contexto GL
+ * inspeccionando {@link #getVertices()} y {@link #getRenderCalls()}.
+ *
+ * @see com.craivet.SpriteBatching
+ */
+
+public class SpriteBatch {
+
+    /** Cantidad de componentes por vertice: posicion (2), coordenadas de textura (2) y color (4). */
+    public static final int VERTEX_SIZE = 2 + 2 + 4;
+    /** Cantidad de vertices por sprite (un quad). */
+    public static final int VERTICES_PER_SPRITE = 4;
+    /** Cantidad de componentes por sprite. */
+    public static final int SPRITE_SIZE = VERTEX_SIZE * VERTICES_PER_SPRITE;
+
+    private final FloatBuffer vertices;
+    private final int size;
+    private final Renderer renderer;
+    private final MatrixStack transform = new MatrixStack();
+
+    private Texture texture;
+    private int count;
+    private boolean drawing;
+
+    // Color del vertice, multiplica el color de la textura
+    private float r = 1, g = 1, b = 1, a = 1;
+
+    // Llamadas de dibujo desde el ultimo begin() y en total
+    private int renderCalls;
+    private int totalRenderCalls;
+
+    public SpriteBatch() {
+        this(1000);
+    }
+
+    public SpriteBatch(int size) {
+        this(size, new GLRenderer());
+    }
+
+    /**
+     * @param size     cantidad maxima de sprites por llamada de dibujo.
+     * @param renderer encargado de enviar los vertices a la GPU.
+     */
+    public SpriteBatch(int size, Renderer renderer) {
+        if (size <= 0) throw new IllegalArgumentException("El tamanio del lote debe ser mayor a 0: " + size);
+        this.size = size;
+        this.renderer = renderer;
+        vertices = BufferUtils.createFloatBuffer(size * SPRITE_SIZE);
+    }
+
+    /**
+     * Prepara el lote para dibujar.
+     */
+    public void begin() {
+        if (drawing) throw new IllegalStateException("Se debe llamar a end() antes de begin()");
+        renderCalls = 0;
+        drawing = true;
+    }
+
+    /**
+     * Vacia los sprites pendientes y finaliza el lote.
+     */
+    public void end() {
+        if (!drawing) throw new IllegalStateException("Se debe llamar a begin() antes de end()");
+        flush();
+        drawing = false;
+        texture = null;
+    }
+
+    /**
+     * Establece el color del vertice para los siguientes sprites.
+     */
+    public void setColor(float r, float g, float b, float a) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.a = a;
+    }
+
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.width, texture.height);
+    }
+
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0, 0, 1, 1);
+    }
+
+    public void draw(TextureRegion region, float x, float y) {
+        draw(region, x, y, region.width, region.height);
+    }
+
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        draw(region.texture, x, y, width, height, region.u, region.v, region.u2, region.v2);
+    }
+
+    /**
+     * Agrega un sprite al lote.
+     *
+     * @param texture textura del sprite, null para dibujar solo con el color.
+     * @param x       posicion x de la esquina superior izquierda.
+     * @param y       posicion y de la esquina superior izquierda.
+     * @param width   ancho del sprite.
+     * @param height  alto del sprite.
+     * @param u       coordenada s de la esquina superior izquierda.
+     * @param v       coordenada t de la esquina superior izquierda.
+     * @param u2      coordenada s de la esquina inferior derecha.
+     * @param v2      coordenada t de la esquina inferior derecha.
+     */
+    public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+        if (!drawing) throw new IllegalStateException("Se debe llamar a begin() antes de draw()");
+
+        // El lote se vacia si cambia la textura o si se alcanzo la capacidad
+        if (texture != this.texture) {
+            flush();
+            this.texture = texture;
+        } else if (count == size) flush();
+
+        float x2 = x + width;
+        float y2 = y + height;
+
+        // Mismo orden que los quads del modo inmediato: sup. izq., sup. der., inf. der., inf. izq.
+        float[] m = transform.peek().m;
+        vertex(m, x, y, u, v);
+        vertex(m, x2, y, u2, v);
+        vertex(m, x2, y2, u2, v2);
+        vertex(m, x, y2, u, v2);
+
+        count++;
+    }
+
+    private void vertex(float[] m, float x, float y, float u, float v) {
+        // Con la identidad la posicion queda igual
+        vertices.put(x * m[0] + y * m[4] + m[12]).put(x * m[1] + y * m[5] + m[13]);
+        vertices.put(u).put(v).put(r).put(g).put(b).put(a);
+    }
+
+    /**
+     * Envia los sprites pendientes a la GPU con una sola llamada de dibujo.
+     */
+    public void flush() {
+        if (count == 0) return;
+        vertices.flip();
+        renderer.render(texture, vertices, count * VERTICES_PER_SPRITE);
+        vertices.clear();
+        count = 0;
+        renderCalls++;
+        totalRenderCalls++;
+    }
+
+    /**
+     * Devuelve la pila de matrices que se aplica a los siguientes sprites. Cambiarla no vacia el lote.
+     */
+    public MatrixStack getTransform() {
+        return transform;
+    }
+
+    /**
+     * Notifica al lote que cambio el tamanio de la pantalla.
+     */
+    public void resize(int width, int height) {
+        renderer.resize(width, height);
+    }
+
+    /**
+     * Devuelve una vista de solo lectura de los vertices pendientes, desde la posicion 0 hasta el ultimo vertice agregado.
+     */
+    public FloatBuffer getVertices() {
+        FloatBuffer view = vertices.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    /**
+     * Devuelve la cantidad de sprites pendientes de enviar.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getRenderCalls() {
+        return renderCalls;
+    }
+
+    public int getTotalRenderCalls() {
+        return totalRenderCalls;
+    }
+
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    /**
+     * Envia los vertices de un lote a la GPU.
+     */
+    public interface Renderer {
+
+        void resize(int width, int height);
+
+        /**
+         * @param texture     textura de todos los sprites del lote.
+         * @param vertices    vertices intercalados desde la posicion 0 hasta el limite.
+         * @param vertexCount cantidad de vertices a dibujar.
+         */
+        void render(Texture texture, FloatBuffer vertices, int vertexCount);
+
+    }
+
+    /**
+     * Dibuja el lote con matrices de vertices del lado del cliente y una proyeccion ortografica con origen en la esquina
+     * superior izquierda.
+     */
+    public static class GLRenderer implements Renderer {
+
+        // Distancia en bytes entre el inicio de un vertice y el siguiente
+        private static final int STRIDE = VERTEX_SIZE * Float.BYTES;
+
+        @Override
+        public void resize(int width, int height) {
+            glViewport(0, 0, width, height);
+            glMatrixMode(GL_PROJECTION);
+            glLoadIdentity();
+            glOrtho(0, width, height, 0, 1, -1);
+            glMatrixMode(GL_MODELVIEW);
+        }
+
+        @Override
+        public void render(Texture texture, FloatBuffer vertices, int vertexCount) {
+            if (texture != null) {
+                glEnable(GL_TEXTURE_2D);
+                texture.bind();
+            } else glDisable(GL_TEXTURE_2D);
+
+            glEnableClientState(GL_VERTEX_ARRAY);
+            glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+            glEnableClientState(GL_COLOR_ARRAY);
+
+            // Cada puntero empieza en el desplazamiento de su atributo dentro del vertice
+            vertices.position(0);
+            glVertexPointer(2, STRIDE, vertices);
+            vertices.position(2);
+            glTexCoordPointer(2, STRIDE, vertices);
+            vertices.position(4);
+            glColorPointer(4, STRIDE, vertices);
+            vertices.position(0);
+
+            glDrawArrays(GL_QUADS, 0, vertexCount);
+
+            glDisableClientState(GL_COLOR_ARRAY);
+            glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+            glDisableClientState(GL_VERTEX_ARRAY);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,298 @@
+package com.craivet.rendered;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lwjgl.opengl.GLSync;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Buffer de vertices para datos que cambian en cada cuadro (particulas, sprites).
+ * <p>
+ * Subir datos a un VBO que la GPU todavia esta leyendo obliga al driver a esperar a que termine el cuadro anterior. Cada
+ * {@link Mode} evita esa espera de una forma distinta:
+ * <ul>
+ * <li>{@link Mode#ORPHAN}: antes de escribir se vuelve a reservar el buffer con {@code glBufferData(null)}, el driver le da un
+ * almacenamiento nuevo y libera el anterior cuando la GPU termina de usarlo.</li>
+ * <li>{@link Mode#MAP_UNSYNCHRONIZED}: cada cuadro escribe en la parte siguiente del buffer con {@code glMapBufferRange} sin
+ * sincronizar, ya que esa parte no la usa ningun cuadro en vuelo. Al llegar al final se invalida el buffer entero y se vuelve
+ * al principio.</li>
+ * <li>{@link Mode#RING}: un anillo de varios buffers, uno por cuadro. Al terminar un cuadro se inserta un fence y antes de
+ * volver a escribir en un buffer se espera su fence, que normalmente ya se cumplio.</li>
+ * </ul>
+ * Por cada cuadro se llama a {@link #upload(FloatBuffer)}, se dibuja desde {@link #getBuffer()} a partir del desplazamiento
+ * devuelto y se llama a {@link #endFrame()}. Las llamadas a OpenGL se delegan en un {@link Backend}, de esta forma el manejo del
+ * anillo y de los fences se puede usar sin contexto GL.
+ */
+
+public class StreamingBuffer {
+
+    /** Cantidad de buffers del anillo por defecto: el cuadro actual y dos en vuelo. */
+    public static final int RING_SIZE = 3;
+
+    public enum Mode {ORPHAN, MAP_UNSYNCHRONIZED, RING}
+
+    private final Mode mode;
+    private final long capacity;
+    private final Backend backend;
+
+    private final int[] buffers;
+    // Fence de cada buffer del anillo, 0 si no tiene
+    private final int[] fences;
+    private int current;
+    // Proxima posicion libre en bytes del modo MAP_UNSYNCHRONIZED
+    private long offset;
+    private boolean uploaded;
+
+    // Veces que se reservo de nuevo el buffer y veces que un fence no se habia cumplido
+    private int orphans, stalls;
+
+    public StreamingBuffer(Mode mode, long capacity) {
+        this(mode, capacity, RING_SIZE, new GLBackend());
+    }
+
+    /**
+     * @param mode     forma de subir los datos.
+     * @param capacity tamanio en bytes de cada buffer, debe alcanzar para los datos de un cuadro.
+     * @param ringSize cantidad de buffers del modo {@link Mode#RING}, los otros modos usan uno solo.
+     * @param backend  encargado de las llamadas a OpenGL.
+     */
+    public StreamingBuffer(Mode mode, long capacity, int ringSize, Backend backend) {
+        if (capacity <= 0) throw new IllegalArgumentException("La capacidad debe ser mayor a 0: " + capacity);
+        if (ringSize <= 0) throw new IllegalArgumentException("El anillo debe tener al menos un buffer: " + ringSize);
+        this.mode = mode;
+        this.capacity = capacity;
+        this.backend = backend;
+        buffers = new int[mode == Mode.RING ? ringSize : 1];
+        fences = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = backend.create();
+            backend.allocate(buffers[i], capacity);
+        }
+    }
+
+    /**
+     * Sube los datos del cuadro actual.
+     *
+     * @param data datos desde la posicion hasta el limite, la posicion no se modifica.
+     * @return desplazamiento en bytes de los datos dentro de {@link #getBuffer()}.
+     */
+    public long upload(FloatBuffer data) {
+        long size = (long) data.remaining() * Float.BYTES;
+        if (size > capacity) throw new IllegalArgumentException("Los datos (" + size + " bytes) superan la capacidad del buffer (" + capacity + " bytes)");
+        if (uploaded) throw new IllegalStateException("Se debe llamar a endFrame() antes de volver a subir datos");
+        uploaded = true;
+        switch (mode) {
+            case ORPHAN:
+                backend.allocate(buffers[0], capacity);
+                orphans++;
+                backend.write(buffers[0], 0, data);
+                return 0;
+            case MAP_UNSYNCHRONIZED:
+                boolean wrap = offset + size > capacity;
+                if (wrap) {
+                    offset = 0;
+                    orphans++;
+                }
+                long start = offset;
+                put(backend.map(buffers[0], start, size, wrap), data);
+                backend.unmap(buffers[0]);
+                offset += size;
+                return start;
+            case RING:
+                // El buffer se uso hace ringSize cuadros, su fence casi siempre ya se cumplio
+                if (fences[current] != 0) {
+                    if (backend.await(fences[current])) stalls++;
+                    backend.deleteFence(fences[current]);
+                    fences[current] = 0;
+                }
+                put(backend.map(buffers[current], 0, size, true), data);
+                backend.unmap(buffers[current]);
+                return 0;
+        }
+        throw new IllegalStateException("Modo desconocido: " + mode);
+    }
+
+    private static void put(ByteBuffer target, FloatBuffer data) {
+        target.order(ByteOrder.nativeOrder()).asFloatBuffer().put(data.duplicate());
+    }
+
+    /**
+     * Marca el final de los dibujos que usan los datos del cuadro actual.
+     */
+    public void endFrame() {
+        if (!uploaded) return;
+        uploaded = false;
+        if (mode == Mode.RING) {
+            fences[current] = backend.fence();
+            current = (current + 1) % buffers.length;
+        }
+    }
+
+    /**
+     * Devuelve el buffer del cuadro actual, en el que escribe {@link #upload(FloatBuffer)}.
+     */
+    public int getBuffer() {
+        return buffers[current];
+    }
+
+    public void dispose() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (fences[i] != 0) backend.deleteFence(fences[i]);
+            fences[i] = 0;
+            backend.delete(buffers[i]);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Devuelve las veces que se le pidio al driver un almacenamiento nuevo (en cada cuadro con {@link Mode#ORPHAN}, al dar la
+     * vuelta con {@link Mode#MAP_UNSYNCHRONIZED}).
+     */
+    public int getOrphans() {
+        return orphans;
+    }
+
+    /**
+     * Devuelve las veces que el modo {@link Mode#RING} tuvo que esperar a la GPU.
+     */
+    public int getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Llamadas a OpenGL de un buffer de vertices que se actualiza en cada cuadro.
+     */
+    public interface Backend {
+
+        /**
+         * Crea un buffer y devuelve su identificador.
+         */
+        int create();
+
+        /**
+         * Reserva un almacenamiento nuevo sin datos para el buffer, el anterior se libera cuando la GPU deja de usarlo.
+         */
+        void allocate(int buffer, long size);
+
+        /**
+         * @param data datos desde la posicion hasta el limite.
+         */
+        void write(int buffer, long offset, FloatBuffer data);
+
+        /**
+         * Mapea una parte del buffer para escritura sin esperar a la GPU.
+         *
+         * @param invalidateBuffer true para descartar todo el contenido del buffer, false para descartar solo la parte mapeada.
+         */
+        ByteBuffer map(int buffer, long offset, long length, boolean invalidateBuffer);
+
+        void unmap(int buffer);
+
+        /**
+         * Inserta un fence despues de los comandos enviados y devuelve su identificador (distinto de 0).
+         */
+        int fence();
+
+        /**
+         * Espera a que se cumpla el fence.
+         *
+         * @return true si la GPU todavia no lo habia alcanzado y hubo que esperar.
+         */
+        boolean await(int fence);
+
+        void deleteFence(int fence);
+
+        void delete(int buffer);
+
+    }
+
+    /**
+     * Implementa las llamadas con GL15, {@code glMapBufferRange} de GL30 y los fences de GL32.
+     */
+    public static class GLBackend implements Backend {
+
+        private final Map<Integer, GLSync> syncs = new HashMap<>();
+        private int nextFence = 1;
+        // Buffer devuelto por el ultimo mapeo, LWJGL lo reutiliza si la direccion no cambio
+        private ByteBuffer mapped;
+
+        @Override
+        public int create() {
+            return glGenBuffers();
+        }
+
+        @Override
+        public void allocate(int buffer, long size) {
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glBufferData(GL_ARRAY_BUFFER, size, GL_STREAM_DRAW);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        @Override
+        public void write(int buffer, long offset, FloatBuffer data) {
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glBufferSubData(GL_ARRAY_BUFFER, offset, data);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        @Override
+        public ByteBuffer map(int buffer, long offset, long length, boolean invalidateBuffer) {
+            int access = GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | (invalidateBuffer ? GL_MAP_INVALIDATE_BUFFER_BIT : GL_MAP_INVALIDATE_RANGE_BIT);
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            mapped = glMapBufferRange(GL_ARRAY_BUFFER, offset, length, access, mapped);
+            return mapped;
+        }
+
+        @Override
+        public void unmap(int buffer) {
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        @Override
+        public int fence() {
+            int fence = nextFence++;
+            syncs.put(fence, glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0));
+            return fence;
+        }
+
+        @Override
+        public boolean await(int fence) {
+            GLSync sync = syncs.get(fence);
+            // La primera espera envia los comandos pendientes para que el fence se pueda cumplir
+            int result = glClientWaitSync(sync, GL_SYNC_FLUSH_COMMANDS_BIT, 0);
+            if (result == GL_ALREADY_SIGNALED) return false;
+            while (result == GL_TIMEOUT_EXPIRED)
+                result = glClientWaitSync(sync, 0, 1_000_000);
+            return true;
+        }
+
+        @Override
+        public void deleteFence(int fence) {
+            GLSync sync = syncs.remove(fence);
+            if (sync != null) glDeleteSync(sync);
+        }
+
+        @Override
+        public void delete(int buffer) {
+            glDeleteBuffers(buffer);
+        }
+
+    }
+
+}
\ No newline at end of file
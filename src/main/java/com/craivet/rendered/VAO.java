@@ -9,10 +9,17 @@ import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
 import static com.craivet.Global.*;
 
 /**
  * Renderiza un triangulo de color usando un objeto de matriz de vertice (vertex array object).
+ * <p>
+ * Los vertices y los colores se guardan en dos VBO y el VAO recuerda los punteros y las matrices habilitadas. La configuracion
+ * se hace una sola vez al crear el VAO; para dibujar solo se vincula el VAO.
+ *
+ * @see VertexArrays
  */
 
 public class VAO {
@@ -21,22 +28,44 @@ public class VAO {
     private final int vertexSize = 2; // Tamanio del vertice
     private final int colorSize = 3; // Tamanio del color
 
-    private FloatBuffer vertexData; // Datos del vertice
-    private FloatBuffer colorData; // Datos del color
+    private int vao;
+    private int vboVertexHandle;
+    private int vboColorHandle;
 
     private void start() {
 
         setUpDisplay();
         setUpOpenGL();
 
-        vertexData = BufferUtils.createFloatBuffer(amountOfVertices * vertexSize);// Crea un bufer de 6 posiciones
-        vertexData.put(new float[]{-0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f}); // Crea un array con los vertices
-        vertexData.flip(); // Voltea el bufer a 0
+        FloatBuffer vertexData = BufferUtils.createFloatBuffer(amountOfVertices * vertexSize);
+        vertexData.put(new float[]{-0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f});
+        vertexData.flip();
 
-        colorData = BufferUtils.createFloatBuffer(amountOfVertices * colorSize);
+        FloatBuffer colorData = BufferUtils.createFloatBuffer(amountOfVertices * colorSize);
         colorData.put(new float[]{1, 0, 0, 0, 1, 0, 0, 0, 1});
         colorData.flip();
 
+        // Crea el VAO y lo vincula, todo el estado de matrices de vertices que sigue queda guardado en el
+        vao = glGenVertexArrays();
+        glBindVertexArray(vao);
+
+        vboVertexHandle = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboVertexHandle);
+        glBufferData(GL_ARRAY_BUFFER, vertexData, GL_STATIC_DRAW);
+        glVertexPointer(vertexSize, GL_FLOAT, 0, 0L);
+
+        vboColorHandle = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboColorHandle);
+        glBufferData(GL_ARRAY_BUFFER, colorData, GL_STATIC_DRAW);
+        glColorPointer(colorSize, GL_FLOAT, 0, 0L);
+
+        glEnableClientState(GL_VERTEX_ARRAY);
+        glEnableClientState(GL_COLOR_ARRAY);
+
+        // Desvincula el VAO antes que el VBO para que el VAO conserve sus punteros
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
         while (!Display.isCloseRequested()) {
 
             render();
@@ -46,13 +75,17 @@ public class VAO {
 
         }
 
+        glDeleteVertexArrays(vao);
+        glDeleteBuffers(vboVertexHandle);
+        glDeleteBuffers(vboColorHandle);
+
         Display.destroy();
 
     }
 
     private void setUpDisplay() {
         try {
-            Display.setTitle("Vertex Arrays Demo");
+            Display.setTitle("Vertex Array Object Demo");
             Display.setDisplayMode(new DisplayMode(WIDTH, HEIGHT));
             Display.create();
         } catch (LWJGLException e) {
@@ -74,16 +107,9 @@ public class VAO {
 
         glClear(GL_COLOR_BUFFER_BIT);
 
-        glEnableClientState(GL_VERTEX_ARRAY);
-        glEnableClientState(GL_COLOR_ARRAY);
-
-        glVertexPointer(vertexSize, 0, vertexData);
-        glColorPointer(colorSize, 0, colorData);
-
+        glBindVertexArray(vao);
         glDrawArrays(GL_TRIANGLES, 0, amountOfVertices);
-
-        glDisableClientState(GL_COLOR_ARRAY);
-        glDisableClientState(GL_VERTEX_ARRAY);
+        glBindVertexArray(0);
 
     }
 
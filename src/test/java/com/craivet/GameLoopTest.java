@@ -0,0 +1,148 @@
+package com.craivet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba los pasos fijos, el alpha de interpolacion y el maximo de pasos por cuadro de {@link GameLoop} con un reloj controlado a
+ * mano.
+ */
+
+public class GameLoopTest {
+
+    // 100 pasos por segundo: un paso de 10 ms
+    private static final long STEP = 10_000_000L;
+
+    private ManualClock clock;
+    private CountingGame game;
+    private GameLoop loop;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock();
+        game = new CountingGame();
+        loop = new GameLoop(game, 100, 3, clock);
+    }
+
+    @Test
+    public void firstFrameOnlyRenders() {
+        clock.now = 123_456_789L;
+        loop.frame();
+        assertEquals(1, game.inputs);
+        assertEquals(0, game.updates);
+        assertEquals(1, game.renders);
+        assertEquals(0, game.alpha, 0);
+        assertEquals(1, loop.getFrames());
+        assertEquals(0, loop.getUpdates());
+    }
+
+    @Test
+    public void runsFixedStepsAndCarriesTheRemainder() {
+        loop.frame();
+        clock.now += 25_000_000L;
+        loop.frame();
+        assertEquals(2, game.updates);
+        assertEquals(10.0, game.delta, 0);
+        assertEquals(0.5f, game.alpha, 1e-6f);
+        // Los 5 ms que sobraron completan un paso con otros 5 ms
+        clock.now += 5_000_000L;
+        loop.frame();
+        assertEquals(3, game.updates);
+        assertEquals(0, game.alpha, 1e-6f);
+        // Menos de un paso: no se simula, solo aumenta alpha
+        clock.now += 3_000_000L;
+        loop.frame();
+        assertEquals(3, game.updates);
+        assertEquals(0.3f, game.alpha, 1e-6f);
+        assertEquals(4, game.inputs);
+        assertEquals(4, game.renders);
+        assertEquals(3, loop.getUpdates());
+        assertEquals(0, loop.getSkippedUpdates());
+    }
+
+    @Test
+    public void capsUpdatesPerFrameAndCountsSkipped() {
+        loop.frame();
+        // 5,7 pasos en un solo cuadro con un maximo de 3
+        clock.now += 5 * STEP + 7_000_000L;
+        loop.frame();
+        assertEquals(3, game.updates);
+        assertEquals(2, loop.getSkippedUpdates());
+        // Se conserva la fraccion de paso, no los pasos descartados
+        assertEquals(0.7f, game.alpha, 1e-6f);
+        clock.now += 3_000_000L;
+        loop.frame();
+        assertEquals(4, game.updates);
+        assertEquals(0, game.alpha, 1e-6f);
+        assertEquals(2, loop.getSkippedUpdates());
+    }
+
+    @Test
+    public void runStopsWhenTheGameStops() {
+        game.framesLeft = 4;
+        loop.run();
+        assertEquals(4, loop.getFrames());
+        assertEquals(4, game.renders);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroUpdatesPerSecond() {
+        new GameLoop(game, 0, 3, clock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroMaxUpdates() {
+        new GameLoop(game, 100, 0, clock);
+    }
+
+    /**
+     * Reloj que solo avanza cuando la prueba lo indica.
+     */
+    private static class ManualClock implements GameLoop.Clock {
+
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+    }
+
+    /**
+     * Cuenta las llamadas del bucle y guarda el ultimo delta y alpha recibidos.
+     */
+    private static class CountingGame implements GameLoop.Game {
+
+        int inputs, updates, renders;
+        double delta;
+        float alpha = -1;
+        int framesLeft;
+
+        @Override
+        public boolean isRunning() {
+            return framesLeft-- > 0;
+        }
+
+        @Override
+        public void input() {
+            inputs++;
+        }
+
+        @Override
+        public void update(double delta) {
+            this.delta = delta;
+            updates++;
+        }
+
+        @Override
+        public void render(float alpha) {
+            this.alpha = alpha;
+            renders++;
+        }
+
+    }
+
+}
\ No newline at end of file
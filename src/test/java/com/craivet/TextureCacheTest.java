@@ -0,0 +1,140 @@
+package com.craivet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba los aciertos, las referencias y el desalojo LRU de {@link TextureCache} con un {@link TextureCache.Uploader} que no
+ * usa OpenGL.
+ */
+
+public class TextureCacheTest {
+
+    // Cada textura de prueba es de 16x16 RGBA
+    private static final long TEXTURE_BYTES = 16 * 16 * 4;
+
+    private FakeUploader uploader;
+
+    @Before
+    public void setUp() {
+        uploader = new FakeUploader();
+    }
+
+    @Test
+    public void uploadsOnMissAndSharesOnHit() throws Exception {
+        TextureCache cache = new TextureCache(uploader, 10 * TEXTURE_BYTES);
+        Texture grass = cache.acquire("grass");
+        assertSame(grass, cache.acquire("grass"));
+        cache.acquire("dirt");
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(Arrays.asList("grass", "dirt"), uploader.uploaded);
+        assertEquals(2, cache.size());
+        assertEquals(2 * TEXTURE_BYTES, cache.getBytes());
+    }
+
+    @Test
+    public void referencedTextureIsNeverEvicted() throws Exception {
+        TextureCache cache = new TextureCache(uploader, TEXTURE_BYTES);
+        Texture grass = cache.acquire("grass");
+        cache.acquire("dirt");
+        // Se supera el limite, pero las dos texturas tienen referencias
+        assertEquals(2 * TEXTURE_BYTES, cache.getBytes());
+        assertEquals(0, cache.getEvictions());
+        assertTrue(uploader.deleted.isEmpty());
+        // Una segunda referencia mantiene viva la textura despues de la primera liberacion
+        assertSame(grass, cache.acquire("grass"));
+        cache.release("grass");
+        assertTrue(cache.contains("grass"));
+        assertEquals(0, cache.getEvictions());
+        cache.release("grass");
+        assertFalse(cache.contains("grass"));
+        assertEquals(Arrays.asList(grass), uploader.deleted);
+        assertEquals(1, cache.getEvictions());
+        // Dentro del limite, una textura sin referencias queda en la cache
+        cache.release("dirt");
+        assertTrue(cache.contains("dirt"));
+        assertEquals(TEXTURE_BYTES, cache.getBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFirst() throws Exception {
+        TextureCache cache = new TextureCache(uploader, 3 * TEXTURE_BYTES);
+        cache.acquire("grass");
+        cache.release("grass");
+        Texture dirt = cache.acquire("dirt");
+        cache.release("dirt");
+        cache.acquire("stone");
+        cache.release("stone");
+        // Volver a pedir grass la convierte en la mas usada recientemente
+        cache.acquire("grass");
+        cache.release("grass");
+        cache.acquire("brick");
+        assertEquals(Arrays.asList(dirt), uploader.deleted);
+        assertFalse(cache.contains("dirt"));
+        assertTrue(cache.contains("grass"));
+        assertTrue(cache.contains("stone"));
+        assertEquals(1, cache.getEvictions());
+        cache.acquire("air");
+        assertFalse(cache.contains("stone"));
+        assertTrue(cache.contains("grass"));
+        assertEquals(2, cache.getEvictions());
+        assertEquals(3 * TEXTURE_BYTES, cache.getBytes());
+        // Un desalojado se vuelve a subir como fallo
+        int misses = cache.getMisses();
+        cache.acquire("dirt");
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void trimAndDisposeAreNotCountedAsEvictions() throws Exception {
+        TextureCache cache = new TextureCache(uploader, 10 * TEXTURE_BYTES);
+        cache.acquire("grass");
+        cache.release("grass");
+        cache.acquire("dirt");
+        cache.trim();
+        assertFalse(cache.contains("grass"));
+        assertTrue(cache.contains("dirt"));
+        cache.dispose();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        assertEquals(2, uploader.deleted.size());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseWithoutReferenceFails() throws Exception {
+        TextureCache cache = new TextureCache(uploader, 10 * TEXTURE_BYTES);
+        cache.acquire("grass");
+        cache.release("grass");
+        cache.release("grass");
+    }
+
+    /**
+     * Crea texturas de 16x16 sin subirlas a la GPU y registra las subidas y eliminaciones.
+     */
+    private static class FakeUploader implements TextureCache.Uploader {
+
+        final List<String> uploaded = new ArrayList<>();
+        final List<Texture> deleted = new ArrayList<>();
+
+        @Override
+        public Texture upload(String path) {
+            uploaded.add(path);
+            return new Texture(uploaded.size(), 16, 16);
+        }
+
+        @Override
+        public void delete(Texture texture) {
+            deleted.add(texture);
+        }
+
+    }
+
+}
\ No newline at end of file
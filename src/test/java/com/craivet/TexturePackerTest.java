@@ -0,0 +1,156 @@
+package com.craivet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba el empaquetado en la CPU: ubicacion, relleno extendido, tamanio de la pagina y coordenadas de textura de las regiones.
+ * Las texturas de las regiones se crean con un id cualquiera, sin contexto GL.
+ */
+
+public class TexturePackerTest {
+
+    private static final int PADDING = 2;
+
+    @Test
+    public void imagesDoNotOverlapIncludingPadding() {
+        TexturePacker.Page page = packRandom(new Random(42), 40);
+        List<TexturePacker.Rect> rects = new ArrayList<>(page.rects.values());
+        assertEquals(40, rects.size());
+        for (int i = 0; i < rects.size(); i++) {
+            TexturePacker.Rect a = rects.get(i);
+            // La celda con el relleno entra en la pagina
+            assertTrue(a.x - PADDING >= 0 && a.y - PADDING >= 0);
+            assertTrue(a.x + a.width + PADDING <= page.width && a.y + a.height + PADDING <= page.height);
+            for (int j = i + 1; j < rects.size(); j++) {
+                TexturePacker.Rect b = rects.get(j);
+                boolean overlap = a.x - PADDING < b.x + b.width + PADDING && b.x - PADDING < a.x + a.width + PADDING
+                        && a.y - PADDING < b.y + b.height + PADDING && b.y - PADDING < a.y + a.height + PADDING;
+                assertFalse(a + " se superpone con " + b, overlap);
+            }
+        }
+    }
+
+    @Test
+    public void pageSizeIsPowerOfTwo() {
+        Random random = new Random(7);
+        for (int n = 1; n <= 60; n += 7) {
+            TexturePacker.Page page = packRandom(random, n);
+            assertEquals(page.width + "x" + page.height, 0, page.width & page.width - 1);
+            assertEquals(page.width + "x" + page.height, 0, page.height & page.height - 1);
+            assertEquals(page.width * page.height * 4, page.pixels.capacity());
+        }
+    }
+
+    @Test
+    public void pageGrowsWhenImagesDoNotFit() {
+        /* Dos celdas de 74x74 suman un area que entra en 128x128, pero una sola por estante no entra en alto: la pagina duplica el
+         * ancho y quedan las dos en el mismo estante. */
+        TexturePacker packer = new TexturePacker(PADDING, 1024);
+        packer.add("a", 70, 70, image(1, 70, 70));
+        packer.add("b", 70, 70, image(2, 70, 70));
+        TexturePacker.Page page = packer.pack();
+        assertEquals(256, page.width);
+        assertEquals(128, page.height);
+    }
+
+    @Test
+    public void copiesPixelsAndExtrudesBorderIntoPadding() {
+        TexturePacker packer = new TexturePacker(PADDING, 256);
+        packer.add("a", 5, 3, image(1, 5, 3));
+        packer.add("b", 4, 6, image(2, 4, 6));
+        TexturePacker.Page page = packer.pack();
+        check(page, "a", 1, 5, 3);
+        check(page, "b", 2, 4, 6);
+    }
+
+    @Test
+    public void atlasRegionsHaveNormalizedCoordinates() {
+        TexturePacker.Page page = packRandom(new Random(3), 20);
+        Texture texture = new Texture(1, page.width, page.height);
+        TextureAtlas atlas = new TextureAtlas(texture, page);
+        assertEquals(page.rects.size(), atlas.getRegions().size());
+        page.rects.forEach((name, rect) -> {
+            TextureRegion region = atlas.findRegion(name);
+            assertSame(texture, region.texture);
+            assertEquals(rect.width, region.width);
+            assertEquals(rect.height, region.height);
+            assertEquals((float) rect.x / page.width, region.u, 0);
+            assertEquals((float) rect.y / page.height, region.v, 0);
+            assertEquals((float) (rect.x + rect.width) / page.width, region.u2, 0);
+            assertEquals((float) (rect.y + rect.height) / page.height, region.v2, 0);
+            assertTrue(region.u >= 0 && region.u2 <= 1 && region.v >= 0 && region.v2 <= 1);
+        });
+        assertNull(atlas.findRegion("no existe"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsWhenImagesDoNotFitInMaxSize() {
+        new TexturePacker(PADDING, 64).add("big", 100, 10, image(1, 100, 10)).pack();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBufferSmallerThanImage() {
+        new TexturePacker().add("small", 4, 4, ByteBuffer.allocate(4 * 4 * 4 - 1));
+    }
+
+    @Test
+    public void rejectsDuplicateName() {
+        TexturePacker packer = new TexturePacker(PADDING, 1024).add("grass", 4, 4, image(1, 4, 4));
+        try {
+            packer.add("grass", 8, 8, image(2, 8, 8));
+            fail("Se agrego dos veces la imagen grass");
+        } catch (IllegalArgumentException e) {
+            // La primera imagen no se reemplaza
+        }
+        TexturePacker.Page page = packer.pack();
+        assertEquals(1, page.rects.size());
+        check(page, "grass", 1, 4, 4);
+    }
+
+    private static TexturePacker.Page packRandom(Random random, int count) {
+        TexturePacker packer = new TexturePacker(PADDING, 4096);
+        for (int i = 0; i < count; i++) {
+            int width = 1 + random.nextInt(48), height = 1 + random.nextInt(48);
+            packer.add("image" + i, width, height, image(i, width, height));
+        }
+        return packer.pack();
+    }
+
+    /**
+     * Imagen en la que cada pixel guarda su id y su posicion (id, x, y, 255), asi se puede saber de donde salio.
+     */
+    private static ByteBuffer image(int id, int width, int height) {
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                pixels.put((byte) id).put((byte) x).put((byte) y).put((byte) 255);
+        pixels.flip();
+        return pixels;
+    }
+
+    /**
+     * Cada pixel de la celda (imagen y relleno) debe ser el pixel de la imagen mas cercano.
+     */
+    private static void check(TexturePacker.Page page, String name, int id, int width, int height) {
+        TexturePacker.Rect rect = page.rects.get(name);
+        for (int py = -PADDING; py < height + PADDING; py++) {
+            for (int px = -PADDING; px < width + PADDING; px++) {
+                int i = ((rect.y + py) * page.width + rect.x + px) * 4;
+                int sx = Math.min(Math.max(px, 0), width - 1), sy = Math.min(Math.max(py, 0), height - 1);
+                String at = name + " (" + px + ", " + py + ")";
+                assertEquals(at, id, page.pixels.get(i));
+                assertEquals(at, sx, page.pixels.get(i + 1));
+                assertEquals(at, sy, page.pixels.get(i + 2));
+                assertEquals(at, (byte) 255, page.pixels.get(i + 3));
+            }
+        }
+    }
+
+}
\ No newline at end of file
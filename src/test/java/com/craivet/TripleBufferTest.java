@@ -0,0 +1,70 @@
+package com.craivet;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba el intercambio de las tres instancias de {@link TripleBuffer} desde un solo hilo y con un productor y un consumidor.
+ */
+
+public class TripleBufferTest {
+
+    @Test
+    public void swapReturnsLatestPublished() {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(() -> new int[1]);
+        assertFalse(buffer.swap());
+        buffer.getWriteBuffer()[0] = 1;
+        buffer.publish();
+        buffer.getWriteBuffer()[0] = 2;
+        buffer.publish();
+        // Se descarta la publicacion que el consumidor no llego a ver
+        assertTrue(buffer.swap());
+        assertEquals(2, buffer.getReadBuffer()[0]);
+        // Sin publicaciones nuevas se sigue leyendo la misma instancia
+        assertFalse(buffer.swap());
+        assertEquals(2, buffer.getReadBuffer()[0]);
+    }
+
+    @Test
+    public void producerAndConsumerNeverShareAnInstance() {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(() -> new int[1]);
+        for (int i = 0; i < 10; i++) {
+            buffer.publish();
+            if (i % 3 == 0) buffer.swap();
+            assertNotSame(buffer.getWriteBuffer(), buffer.getReadBuffer());
+        }
+    }
+
+    @Test
+    public void consumerSeesCompleteStates() throws InterruptedException {
+        // El productor escribe el mismo numero en las dos posiciones: una instancia compartida se veria a medio escribir
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[2]);
+        int count = 200_000;
+        Thread producer = new Thread(() -> {
+            for (long i = 1; i <= count; i++) {
+                long[] state = buffer.getWriteBuffer();
+                state[0] = i;
+                state[1] = i;
+                buffer.publish();
+            }
+        });
+        producer.start();
+        long last = 0;
+        Set<long[]> seen = new HashSet<>();
+        while (last < count) {
+            if (!buffer.swap()) continue;
+            long[] state = buffer.getReadBuffer();
+            seen.add(state);
+            assertEquals(state[0], state[1]);
+            assertTrue("El estado retrocedio", state[0] > last);
+            last = state[0];
+        }
+        producer.join();
+        assertTrue(seen.size() <= 3);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.craivet.game.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que {@link BroadPhase.Mode#SPATIAL_HASH} y {@link BroadPhase.Mode#SWEEP_AND_PRUNE} encuentran los mismos pares que
+ * {@link BroadPhase#bruteForce}, sin repetirlos, en escenas aleatorias con coordenadas negativas, cajas que ocupan varias celdas,
+ * cajas sin ancho o sin alto y cajas que solo se tocan en un borde.
+ */
+
+public class BroadPhaseTest {
+
+    private static final double CELL_SIZE = 16;
+
+    @Test
+    public void modesFindSamePairsAsBruteForce() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<Box> boxes = randomScene(new Random(seed), 200);
+            Set<Long> expected = pairs(boxes, null);
+            assertFalse("Escena sin pares con semilla " + seed, expected.isEmpty());
+            for (BroadPhase.Mode mode : BroadPhase.Mode.values())
+                assertEquals(mode + " con semilla " + seed, expected, pairs(boxes, mode));
+        }
+    }
+
+    @Test
+    public void reusedBroadPhaseGivesSameResultWithFewerEntities() {
+        BroadPhase broadPhase = new BroadPhase(BroadPhase.Mode.SPATIAL_HASH, CELL_SIZE);
+        Random random = new Random(99);
+        for (int n : new int[]{300, 50, 300, 10}) {
+            List<Box> boxes = randomScene(random, n);
+            Set<Long> expected = pairs(boxes, null);
+            for (BroadPhase.Mode mode : BroadPhase.Mode.values()) {
+                broadPhase.setMode(mode);
+                assertEquals(mode + " con " + n + " cajas", expected, collect(boxes, broadPhase, false));
+            }
+        }
+    }
+
+    @Test
+    public void edgeTouchingBoxesDoNotOverlap() {
+        List<Box> boxes = Arrays.asList(
+                new Box(0, 0, 16, 16),
+                new Box(16, 0, 16, 16), // Toca el borde derecho de la primera
+                new Box(0, 16, 16, 16), // Toca el borde inferior de la primera
+                new Box(-16, -16, 16, 16), // Toca solo la esquina de la primera
+                new Box(8, 8, 0, 4), // Sin ancho, dentro de la primera
+                new Box(16, 4, 0, 4), // Sin ancho, en el borde entre la primera y la segunda: no se superpone con ninguna
+                new Box(-40, -40, 100, 100) // Ocupa varias celdas y contiene a todas
+        );
+        Set<Long> expected = new HashSet<>(Arrays.asList(
+                key(0, 4), key(0, 6), key(1, 6), key(2, 6), key(3, 6), key(4, 6), key(5, 6)));
+        assertEquals(expected, pairs(boxes, null));
+        for (BroadPhase.Mode mode : BroadPhase.Mode.values())
+            assertEquals(mode.toString(), expected, pairs(boxes, mode));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCellSize() {
+        new BroadPhase(BroadPhase.Mode.SPATIAL_HASH, 0);
+    }
+
+    /**
+     * Crea cajas alrededor del origen con posiciones y tamanios multiplos de 4, para que muchas se toquen justo en un borde o en
+     * el borde de una celda. Algunas no tienen ancho o alto y otras ocupan varias celdas.
+     */
+    private static List<Box> randomScene(Random random, int n) {
+        List<Box> boxes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = (random.nextInt(100) - 50) * 4, y = (random.nextInt(100) - 50) * 4;
+            double width = random.nextInt(10) == 0 ? 0 : random.nextInt(12) * 4;
+            double height = random.nextInt(10) == 0 ? 0 : random.nextInt(12) * 4;
+            boxes.add(new Box(x, y, width, height));
+        }
+        return boxes;
+    }
+
+    /**
+     * Devuelve los pares que encuentra el modo, o la fuerza bruta si mode es null.
+     */
+    private static Set<Long> pairs(List<Box> boxes, BroadPhase.Mode mode) {
+        BroadPhase broadPhase = new BroadPhase(mode == null ? BroadPhase.Mode.SPATIAL_HASH : mode, CELL_SIZE);
+        return collect(boxes, broadPhase, mode == null);
+    }
+
+    private static Set<Long> collect(List<Box> boxes, BroadPhase broadPhase, boolean bruteForce) {
+        Map<Entity, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < boxes.size(); i++)
+            index.put(boxes.get(i), i);
+        Set<Long> pairs = new HashSet<>();
+        BroadPhase.PairHandler handler = (a, b) -> {
+            assertNotSame(a, b);
+            assertTrue("Par repetido", pairs.add(key(index.get(a), index.get(b))));
+        };
+        int count = bruteForce ? broadPhase.bruteForce(boxes, handler) : broadPhase.findPairs(boxes, handler);
+        assertEquals(pairs.size(), count);
+        return pairs;
+    }
+
+    private static long key(int i, int j) {
+        return (long) Math.min(i, j) << 32 | Math.max(i, j);
+    }
+
+    private static class Box extends AbstractMovableEntity {
+
+        Box(double x, double y, double width, double height) {
+            super(x, y, width, height);
+        }
+
+        @Override
+        public void draw() {
+        }
+
+    }
+
+}
\ No newline at end of file
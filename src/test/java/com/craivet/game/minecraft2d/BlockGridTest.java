@@ -0,0 +1,182 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba la creacion perezosa de chunks, el desalojo y que guardar el mundo incluya los chunks desalojados por el pager sin
+ * volver a cargarlos.
+ */
+
+public class BlockGridTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private BlockGrid grid;
+    private MemoryPager pager;
+
+    @Before
+    public void setUp() {
+        grid = new BlockGrid();
+        pager = new MemoryPager();
+        grid.setPager(pager);
+        // Un bloque en el chunk (0, 0) y otro en el chunk (10, 0)
+        grid.setAt(BlockType.GRASS, 1, 1);
+        grid.setAt(BlockType.STONE, 10 * Chunk.SIZE + 2, 3);
+        assertEquals(1, grid.evict(0, 0, 2));
+        assertNull(grid.getLoadedChunk(10, 0));
+    }
+
+    @Test
+    public void createsChunkOnlyOnNonAirWrite() {
+        BlockGrid grid = new BlockGrid();
+        assertEquals(BlockType.AIR, grid.getTypeAt(5, 5));
+        assertEquals(0, grid.getChunkCount());
+        grid.setAt(BlockType.AIR, 5, 5);
+        assertEquals(0, grid.getChunkCount());
+        grid.setAt(BlockType.DIRT, 5, 5);
+        assertEquals(1, grid.getChunkCount());
+        assertNotNull(grid.getLoadedChunk(0, 0));
+        assertEquals(BlockType.DIRT, grid.getTypeAt(5, 5));
+        // Escribir aire en un chunk que ya existe no crea otro ni lo quita
+        grid.setAt(BlockType.AIR, 5, 5);
+        assertEquals(1, grid.getChunkCount());
+        assertEquals(BlockType.AIR, grid.getTypeAt(5, 5));
+    }
+
+    @Test
+    public void negativeCoordinatesMapToTheirOwnChunks() {
+        BlockGrid grid = new BlockGrid();
+        grid.setAt(BlockType.STONE, -1, -1);
+        grid.setAt(BlockType.GRASS, -Chunk.SIZE, 0);
+        grid.setAt(BlockType.BRICK, 0, 0);
+        assertEquals(3, grid.getChunkCount());
+        Chunk chunk = grid.getLoadedChunk(-1, -1);
+        assertNotNull(chunk);
+        assertEquals(BlockType.STONE, chunk.get(Chunk.SIZE - 1, Chunk.SIZE - 1));
+        assertEquals(BlockType.GRASS, grid.getLoadedChunk(-1, 0).get(0, 0));
+        assertEquals(BlockType.STONE, grid.getTypeAt(-1, -1));
+        assertEquals(BlockType.GRASS, grid.getTypeAt(-Chunk.SIZE, 0));
+        assertEquals(BlockType.BRICK, grid.getTypeAt(0, 0));
+        assertEquals(BlockType.AIR, grid.getTypeAt(-1, 0));
+    }
+
+    @Test
+    public void evictWithoutPagerKeepsChunksWithBlocks() {
+        BlockGrid grid = new BlockGrid();
+        grid.setAt(BlockType.GRASS, 1, 1);
+        grid.setAt(BlockType.STONE, 10 * Chunk.SIZE + 2, 3);
+        grid.setAt(BlockType.STONE, 20 * Chunk.SIZE, 0);
+        grid.setAt(BlockType.AIR, 20 * Chunk.SIZE, 0);
+        assertEquals(3, grid.getChunkCount());
+        // Solo se descarta el chunk vacio, los que tienen bloques no se pueden volver a cargar
+        assertEquals(1, grid.evict(0, 0, 2));
+        assertEquals(2, grid.getChunkCount());
+        assertNull(grid.getLoadedChunk(20, 0));
+        assertEquals(BlockType.STONE, grid.getTypeAt(10 * Chunk.SIZE + 2, 3));
+    }
+
+    @Test
+    public void saveIncludesPagedOutChunksWithoutPagingThemIn() throws IOException {
+        File file = folder.newFile("world.dat");
+        grid.save(file);
+        List<Chunk> chunks = WorldFile.read(file);
+        assertEquals(2, chunks.size());
+        Map<Long, Chunk> byKey = new HashMap<>();
+        for (Chunk chunk : chunks)
+            byKey.put(Chunk.key(chunk.cx, chunk.cy), chunk);
+        assertEquals(BlockType.GRASS, byKey.get(Chunk.key(0, 0)).get(1, 1));
+        assertEquals(BlockType.STONE, byKey.get(Chunk.key(10, 0)).get(2, 3));
+        // El desalojo sigue vigente
+        assertEquals(1, grid.getChunkCount());
+        assertEquals(0, pager.pageIns);
+    }
+
+    @Test
+    public void forEachChunkPrefersLoadedVersion() {
+        // Se vuelve a cargar y se modifica: el pager conserva la version vieja
+        grid.setAt(BlockType.BRICK, 10 * Chunk.SIZE + 2, 3);
+        Map<Long, Chunk> seen = new HashMap<>();
+        grid.forEachChunk(chunk -> assertNull("Chunk entregado dos veces", seen.put(Chunk.key(chunk.cx, chunk.cy), chunk)));
+        assertEquals(2, seen.size());
+        assertEquals(BlockType.BRICK, seen.get(Chunk.key(10, 0)).get(2, 3));
+    }
+
+    @Test
+    public void worldSaverKeepsPagedOutChunks() throws IOException {
+        File dir = folder.newFolder("world");
+        WorldSaver saver = new WorldSaver(dir);
+        assertEquals(2, saver.save(grid));
+        saver.await();
+        assertTrue(new File(dir, "c.10.0.dat").isFile());
+        // Guardar de nuevo no vuelve a escribir ni borra el chunk desalojado
+        assertEquals(0, saver.save(grid));
+        saver.await();
+        assertTrue(new File(dir, "c.10.0.dat").isFile());
+        assertEquals(1, grid.getChunkCount());
+        assertEquals(0, pager.pageIns);
+        saver.close();
+        assertEquals(2, dir.list().length);
+    }
+
+    @Test
+    public void evictDiscardsStalePagedCopyOfEmptiedChunk() throws IOException {
+        // Se vuelve a cargar, se vacia y se desaloja: el pager no debe conservar la version con el bloque
+        grid.setAt(BlockType.AIR, 10 * Chunk.SIZE + 2, 3);
+        assertTrue(grid.getLoadedChunk(10, 0).isEmpty());
+        assertEquals(1, grid.evict(0, 0, 2));
+        assertFalse(pager.paged.containsKey(Chunk.key(10, 0)));
+        assertNull(grid.getChunk(10, 0, false));
+        assertEquals(BlockType.AIR, grid.getTypeAt(10 * Chunk.SIZE + 2, 3));
+        File file = folder.newFile("world.dat");
+        grid.save(file);
+        List<Chunk> chunks = WorldFile.read(file);
+        assertEquals(1, chunks.size());
+        assertEquals(Chunk.key(0, 0), Chunk.key(chunks.get(0).cx, chunks.get(0).cy));
+    }
+
+    /**
+     * Guarda los chunks desalojados en memoria.
+     */
+    private static class MemoryPager implements ChunkPager {
+
+        final Map<Long, Chunk> paged = new HashMap<>();
+        int pageIns;
+
+        @Override
+        public void pageOut(Chunk chunk) {
+            paged.put(Chunk.key(chunk.cx, chunk.cy), chunk);
+        }
+
+        @Override
+        public Chunk pageIn(int cx, int cy) {
+            Chunk chunk = paged.get(Chunk.key(cx, cy));
+            if (chunk != null) pageIns++;
+            return chunk == null ? null : chunk.copy();
+        }
+
+        @Override
+        public void discard(int cx, int cy) {
+            paged.remove(Chunk.key(cx, cy));
+        }
+
+        @Override
+        public void forEachPaged(Consumer<Chunk> action) {
+            paged.values().forEach(action);
+        }
+
+    }
+
+}
\ No newline at end of file
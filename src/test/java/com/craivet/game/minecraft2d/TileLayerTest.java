@@ -0,0 +1,170 @@
+package com.craivet.game.minecraft2d;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.craivet.Camera2D;
+import com.craivet.Texture;
+import com.craivet.TextureAtlas;
+import com.craivet.TexturePacker;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba cuando {@link TileLayer} vuelve a armar los vertices de un chunk, la liberacion de los que ya no estan en la grilla y los
+ * vertices compartidos de aire, con un {@link TileLayer.Renderer} que solo cuenta las llamadas.
+ */
+
+public class TileLayerTest {
+
+    // Tamanio del chunk en pixeles
+    private static final int CHUNK_PIXELS = Chunk.SIZE * World.BLOCK_SIZE;
+
+    private CountingRenderer renderer;
+    private TileLayer layer;
+    private BlockGrid grid;
+    // Ve los chunks (0, 0) y (1, 0)
+    private Camera2D camera;
+
+    @Before
+    public void setUp() {
+        TexturePacker packer = new TexturePacker();
+        for (BlockType type : BlockType.values())
+            packer.add(type.location, 1, 1, ByteBuffer.allocateDirect(4));
+        TexturePacker.Page page = packer.pack();
+        renderer = new CountingRenderer();
+        layer = new TileLayer(new TextureAtlas(new Texture(1, page.width, page.height), page), renderer);
+        grid = new BlockGrid();
+        camera = new Camera2D(2 * CHUNK_PIXELS, CHUNK_PIXELS);
+    }
+
+    @Test
+    public void rebuildsOnlyWhenRevisionOrInstanceChanges() {
+        grid.setAt(BlockType.GRASS, 1, 1);
+        layer.draw(grid, camera);
+        // El chunk (0, 0) y los vertices de aire para (1, 0)
+        assertEquals(2, layer.getRebuilds());
+        assertEquals(2, layer.getRenderCalls());
+        assertEquals(1, layer.getTileCount());
+
+        layer.draw(grid, camera);
+        assertEquals(0, layer.getRebuilds());
+        assertEquals(2, renderer.uploads);
+
+        // Escribir el mismo tipo no cambia la revision
+        grid.setAt(BlockType.GRASS, 1, 1);
+        layer.draw(grid, camera);
+        assertEquals(0, layer.getRebuilds());
+
+        grid.setAt(BlockType.STONE, 2, 2);
+        layer.draw(grid, camera);
+        assertEquals(1, layer.getRebuilds());
+
+        // Un chunk nuevo con la misma revision (por ejemplo al cargar un archivo) tambien se vuelve a armar
+        grid.putChunk(grid.getLoadedChunk(0, 0).copy());
+        layer.draw(grid, camera);
+        assertEquals(1, layer.getRebuilds());
+        assertEquals(4, layer.getTotalRebuilds());
+    }
+
+    @Test
+    public void chunksOutsideTheViewAreNotBuilt() {
+        grid.setAt(BlockType.GRASS, 5 * CHUNK_PIXELS / World.BLOCK_SIZE, 0);
+        layer.draw(grid, camera);
+        assertEquals(0, layer.getTileCount());
+        assertEquals(1, layer.getRebuilds());
+    }
+
+    @Test
+    public void pruneReleasesBuffersOfRemovedChunks() {
+        grid.setAt(BlockType.GRASS, 1, 1);
+        grid.setAt(BlockType.DIRT, Chunk.SIZE + 1, 1);
+        layer.draw(grid, camera);
+        assertEquals(2, layer.getTileCount());
+        assertTrue(renderer.deleted.isEmpty());
+
+        grid.removeChunks(chunk -> chunk.cx == 1);
+        layer.draw(grid, camera);
+        assertEquals(1, layer.getTileCount());
+        assertEquals(1, renderer.deleted.size());
+
+        // Reemplazar el chunk libera el buffer anterior y crea otro
+        grid.clear();
+        grid.setAt(BlockType.GRASS, 1, 1);
+        layer.draw(grid, camera);
+        assertEquals(1, layer.getTileCount());
+        assertEquals(2, renderer.deleted.size());
+        // Quedan el chunk nuevo y los vertices de aire
+        assertEquals(2, renderer.live().size());
+    }
+
+    @Test
+    public void emptyPositionsShareOneTile() {
+        camera.setViewport(3 * CHUNK_PIXELS, 2 * CHUNK_PIXELS);
+        camera.setPosition(-CHUNK_PIXELS, -CHUNK_PIXELS);
+        layer.draw(grid, camera);
+        assertEquals(6, layer.getRenderCalls());
+        assertEquals(1, layer.getRebuilds());
+        assertEquals(0, layer.getTileCount());
+        assertEquals(1, renderer.created);
+        assertEquals(1, new HashSet<>(renderer.rendered).size());
+
+        layer.draw(grid, camera);
+        assertEquals(0, layer.getRebuilds());
+        assertEquals(1, renderer.created);
+
+        layer.dispose();
+        assertEquals(1, renderer.deleted.size());
+    }
+
+    /**
+     * Cuenta las llamadas al renderer y reparte identificadores de buffer consecutivos.
+     */
+    private static class CountingRenderer implements TileLayer.Renderer {
+
+        int created, uploads;
+        final List<Integer> rendered = new ArrayList<>();
+        final List<Integer> deleted = new ArrayList<>();
+
+        @Override
+        public int create() {
+            return ++created;
+        }
+
+        @Override
+        public void upload(int buffer, FloatBuffer vertices) {
+            assertEquals(TileLayer.VERTEX_COUNT * TileLayer.VERTEX_SIZE, vertices.remaining());
+            uploads++;
+        }
+
+        @Override
+        public void render(int buffer, Texture texture, float x, float y, int vertexCount) {
+            rendered.add(buffer);
+        }
+
+        @Override
+        public void delete(int buffer) {
+            deleted.add(buffer);
+        }
+
+        /**
+         * Devuelve los buffers creados que todavia no se eliminaron.
+         */
+        Set<Integer> live() {
+            Set<Integer> live = new HashSet<>();
+            for (int buffer = 1; buffer <= created; buffer++)
+                live.add(buffer);
+            live.removeAll(deleted);
+            return live;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que un chunk que salio de la grilla se sigue intentando borrar hasta lograrlo, que los errores del hilo de escritura
+ * se informan con {@link WorldSaver#pollError()} y que la carga del directorio pasa por {@link WorldLoader}.
+ */
+
+public class WorldSaverTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private WorldSaver saver;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.newFolder("world");
+        saver = new WorldSaver(dir);
+    }
+
+    @After
+    public void tearDown() {
+        saver.close();
+    }
+
+    @Test
+    public void failedDeleteIsRetriedUntilItSucceeds() throws IOException {
+        BlockGrid grid = new BlockGrid();
+        grid.setAt(BlockType.GRASS, 1, 1);
+        saver.save(grid);
+        saver.await();
+        File file = new File(dir, "c.0.0.dat");
+        assertTrue(file.isFile());
+        assertNull(saver.pollError());
+
+        // Un directorio con contenido en lugar del archivo hace fallar el borrado
+        assertTrue(file.delete());
+        assertTrue(new File(file, "lock").mkdirs());
+        grid.clear();
+        assertEquals(1, saver.save(grid));
+        saver.await();
+        assertNotNull(saver.pollError());
+        // El error se informa una sola vez
+        assertNull(saver.pollError());
+
+        // Sigue fallando: se vuelve a intentar en cada guardado aunque la grilla no cambie
+        assertEquals(1, saver.save(grid));
+        saver.await();
+        assertNotNull(saver.pollError());
+
+        assertTrue(new File(file, "lock").delete());
+        assertEquals(1, saver.save(grid));
+        saver.await();
+        assertNull(saver.pollError());
+        assertFalse(file.exists());
+        // Ya no queda nada pendiente
+        assertEquals(0, saver.save(grid));
+    }
+
+    @Test
+    public void failedWriteIsRetried() throws IOException {
+        BlockGrid grid = new BlockGrid();
+        grid.setAt(BlockType.STONE, 1, 1);
+        File file = new File(dir, "c.0.0.dat");
+        assertTrue(new File(file, "lock").mkdirs());
+        saver.save(grid);
+        saver.await();
+        assertNotNull(saver.pollError());
+
+        assertTrue(new File(file, "lock").delete());
+        assertTrue(file.delete());
+        assertEquals(1, saver.save(grid));
+        saver.await();
+        assertNull(saver.pollError());
+        assertTrue(file.isFile());
+    }
+
+    @Test
+    public void loadStreamsChunkFilesThroughLoader() throws InterruptedException {
+        BlockGrid grid = new BlockGrid();
+        grid.setAt(BlockType.GRASS, 1, 1);
+        grid.setAt(BlockType.STONE, 5 * Chunk.SIZE + 2, 3);
+        saver.save(grid);
+        saver.await();
+
+        BlockGrid loaded = new BlockGrid();
+        loaded.setAt(BlockType.BRICK, 20 * Chunk.SIZE, 0);
+        WorldLoader loader = new WorldLoader();
+        saver.load(loaded, loader);
+        // La grilla se vacia al empezar y los chunks llegan con update()
+        assertEquals(0, loaded.getChunkCount());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (loader.isLoading()) {
+            loader.update(loaded, 1);
+            assertTrue("La carga no termina", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        assertNull(loader.pollError());
+        assertEquals(1, loader.getProgress(), 0);
+        assertEquals(2, loaded.getChunkCount());
+        assertEquals(BlockType.GRASS, loaded.getTypeAt(1, 1));
+        assertEquals(BlockType.STONE, loaded.getTypeAt(5 * Chunk.SIZE + 2, 3));
+
+        // Los chunks cargados ya estan en disco: no se reescriben, pero se borran si desaparecen
+        assertEquals(0, saver.save(loaded));
+        loaded.clear();
+        assertEquals(2, saver.save(loaded));
+        saver.await();
+        assertEquals(0, dir.list().length);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.craivet.game.minecraft2d;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que los cambios pedidos al mundo se aplican en el paso siguiente y que la copia publicada pasa a la grilla de la
+ * pantalla cambiando solo los chunks que cambiaron, sin pantalla ni hilos.
+ */
+
+public class WorldSimulationTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private WorldSimulation world;
+    private WorldSimulation.Frame frame;
+    // Grilla de la pantalla
+    private BlockGrid view;
+
+    @Before
+    public void setUp() throws IOException {
+        world = new WorldSimulation(folder.newFolder("world"));
+        world.setView(0, 0, 2);
+        frame = new WorldSimulation.Frame();
+        view = new BlockGrid();
+    }
+
+    @After
+    public void tearDown() {
+        world.close();
+    }
+
+    @Test
+    public void commandsApplyOnNextUpdate() {
+        world.setAt(BlockType.STONE, 3, 4);
+        assertEquals(0, world.getGrid().getChunkCount());
+        world.update(16);
+        assertEquals(BlockType.STONE, world.getGrid().getTypeAt(3, 4));
+    }
+
+    @Test
+    public void copyKeepsUnchangedChunks() {
+        world.setAt(BlockType.GRASS, 1, 1);
+        world.setAt(BlockType.DIRT, Chunk.SIZE + 1, 1);
+        step();
+        assertEquals(2, view.getChunkCount());
+        assertEquals(BlockType.GRASS, view.getTypeAt(1, 1));
+        Chunk first = view.getLoadedChunk(0, 0), second = view.getLoadedChunk(1, 0);
+        int revision = second.getRevision();
+
+        // Solo cambia el chunk (0, 0): el otro conserva la instancia y la revision y no se vuelve a armar
+        world.setAt(BlockType.BRICK, 2, 2);
+        step();
+        assertSame(first, view.getLoadedChunk(0, 0));
+        assertEquals(BlockType.BRICK, view.getTypeAt(2, 2));
+        assertSame(second, view.getLoadedChunk(1, 0));
+        assertEquals(revision, second.getRevision());
+    }
+
+    @Test
+    public void copyRemovesChunksOutsideViewAndCleared() {
+        world.setAt(BlockType.GRASS, 1, 1);
+        world.setAt(BlockType.STONE, 10 * Chunk.SIZE, 0);
+        step();
+        // El chunk (10, 0) esta fuera del radio de la vista
+        assertEquals(1, view.getChunkCount());
+        assertNull(view.getLoadedChunk(10, 0));
+
+        world.setView(9, 0, 2);
+        step();
+        assertEquals(BlockType.STONE, view.getTypeAt(10 * Chunk.SIZE, 0));
+        assertNull(view.getLoadedChunk(0, 0));
+
+        world.clear();
+        step();
+        assertEquals(0, view.getChunkCount());
+    }
+
+    /**
+     * Un paso de la simulacion seguido de una publicacion y de la copia en la grilla de la pantalla.
+     */
+    private void step() {
+        world.update(16);
+        world.write(frame);
+        frame.copyTo(view);
+    }
+
+}
\ No newline at end of file
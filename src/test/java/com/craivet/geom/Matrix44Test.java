@@ -0,0 +1,126 @@
+package com.craivet.geom;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba la inversa de {@link Matrix44} (afin y general), las proyecciones contra los valores de glOrtho y gluPerspective y la
+ * division por w al transformar puntos.
+ */
+
+public class Matrix44Test {
+
+    private static final float EPSILON = 1e-5f;
+
+    @Test
+    public void inverseOfAffineMatrixGivesIdentity() {
+        Matrix44 matrix = new Matrix44().translation(3, -2, 5).rotate(30, 1, 2, 3).scale(2, 0.5f, 4);
+        assertTrue(matrix.isAffine());
+        assertInverse(matrix);
+    }
+
+    @Test
+    public void inverseOfProjectiveMatrixGivesIdentity() {
+        Matrix44 perspective = new Matrix44().perspective(60, 1.5f, 0.5f, 100).translate(1, 2, -10).rotate(45, 0, 1, 0);
+        assertFalse(perspective.isAffine());
+        assertInverse(perspective);
+
+        Matrix44 general = new Matrix44()
+                .setRow(0, 2, 0, 1, 0.5f)
+                .setRow(1, 1, 3, 0, 0.25f)
+                .setRow(2, 0, 1, 4, 1)
+                .setRow(3, 1, 2, 3, 5);
+        assertFalse(general.isAffine());
+        assertInverse(general);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void singularAffineMatrixCannotBeInverted() {
+        new Matrix44().scaling(1, 0, 1).invert();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void singularGeneralMatrixCannotBeInverted() {
+        // La segunda fila es el doble de la primera
+        new Matrix44()
+                .setRow(0, 1, 2, 3, 4)
+                .setRow(1, 2, 4, 6, 8)
+                .setRow(2, 0, 1, 0, 1)
+                .setRow(3, 1, 0, 0, 2)
+                .invert();
+    }
+
+    @Test
+    public void orthoMatchesGlOrtho() {
+        // glOrtho(0, 640, 480, 0, 1, -1), la proyeccion 2D con origen arriba a la izquierda
+        Matrix44 matrix = new Matrix44().ortho(0, 640, 480, 0, 1, -1);
+        assertMatrix(new float[]{
+                2f / 640, 0, 0, 0,
+                0, -2f / 480, 0, 0,
+                0, 0, 1, 0,
+                -1, 1, 0, 1
+        }, matrix);
+        assertTrue(matrix.isAffine());
+        // Las esquinas de la ventana van a las esquinas del volumen de vista
+        assertPoint(-1, 1, 0, matrix.transformPoint(new Vec3f(0, 0, 0), new Vec3f()));
+        assertPoint(1, -1, 0, matrix.transformPoint(new Vec3f(640, 480, 0), new Vec3f()));
+    }
+
+    @Test
+    public void perspectiveMatchesGluPerspective() {
+        // gluPerspective(90, 2, 1, 3): f = 1 / tan(45) = 1
+        assertMatrix(new float[]{
+                0.5f, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, -2, -1,
+                0, 0, -3, 0
+        }, new Matrix44().perspective(90, 2, 1, 3));
+        // gluPerspective(60, 4/3, 0.1, 100)
+        float f = (float) (1 / Math.tan(Math.toRadians(30)));
+        Matrix44 matrix = new Matrix44().perspective(60, 4f / 3, 0.1f, 100);
+        assertEquals(f * 3 / 4, matrix.get(0, 0), EPSILON);
+        assertEquals(f, matrix.get(1, 1), EPSILON);
+        assertEquals(-100.1f / 99.9f, matrix.get(2, 2), EPSILON);
+        assertEquals(-20f / 99.9f, matrix.get(3, 2), EPSILON);
+    }
+
+    @Test
+    public void transformPointDividesByW() {
+        Matrix44 matrix = new Matrix44().perspective(90, 1, 1, 3);
+        // Los planos cercano y lejano van a z = -1 y z = 1
+        assertPoint(0, 0, -1, matrix.transformPoint(new Vec3f(0, 0, -1), new Vec3f()));
+        assertPoint(0, 0, 1, matrix.transformPoint(new Vec3f(0, 0, -3), new Vec3f()));
+        // Sin dividir por w = 2 seria (1, 1, 1)
+        assertPoint(0.5f, 0.5f, 0.5f, matrix.transformPoint(new Vec3f(1, 1, -2), new Vec3f()));
+        // Con una matriz afin w queda en 1 y no se divide
+        Matrix44 affine = new Matrix44().translation(10, 20, 30).scale(2, 2, 2);
+        assertPoint(12, 22, 32, affine.transformPoint(new Vec3f(1, 1, 1), new Vec3f()));
+        // Una direccion no se traslada
+        assertPoint(2, 2, 2, affine.transformDirection(new Vec3f(1, 1, 1), new Vec3f()));
+    }
+
+    /**
+     * Comprueba que M * inversa(M) y inversa(M) * M son la identidad.
+     */
+    private static void assertInverse(Matrix44 matrix) {
+        Matrix44 inverse = new Matrix44(matrix).invert();
+        float[] identity = new Matrix44().m;
+        assertMatrix(identity, new Matrix44(matrix).mul(inverse));
+        assertMatrix(identity, new Matrix44(inverse).mul(matrix));
+        // Invertir dos veces devuelve la original
+        assertMatrix(matrix.m, new Matrix44(inverse).invert());
+    }
+
+    private static void assertMatrix(float[] expected, Matrix44 actual) {
+        for (int i = 0; i < 16; i++)
+            assertEquals("m[" + i + "]\n" + actual, expected[i], actual.m[i], EPSILON * Math.max(1, Math.abs(expected[i])));
+    }
+
+    private static void assertPoint(float x, float y, float z, Vec3f actual) {
+        assertEquals(x, actual.x, EPSILON);
+        assertEquals(y, actual.y, EPSILON);
+        assertEquals(z, actual.z, EPSILON);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.craivet.geom;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que la pila de matrices de la CPU se comporta como la pila de modelo-vista de OpenGL: push/pop aislan los cambios y
+ * cada operacion se aplica antes que el tope, comparando contra matrices calculadas a mano (vectores fila, P' = P * M).
+ */
+
+public class MatrixStackTest {
+
+    private static final float EPSILON = 1e-6f;
+
+    @Test
+    public void startsWithIdentity() {
+        MatrixStack stack = new MatrixStack();
+        assertEquals(1, stack.size());
+        assertEquals(MatrixStack.DEFAULT_DEPTH, stack.getDepth());
+        assertMatrix(new Matrix44().m, stack.peek());
+    }
+
+    @Test
+    public void pushCopiesTopAndPopRestoresIt() {
+        MatrixStack stack = new MatrixStack();
+        stack.translate(1, 0, 0);
+        Matrix44 bottom = stack.peek();
+
+        stack.push();
+        assertEquals(2, stack.size());
+        assertNotSame(bottom, stack.peek());
+        assertMatrix(bottom.m, stack.peek());
+
+        stack.translate(0, 5, 0).scale(2, 2, 2);
+        // Los cambios del tope no tocan la matriz de abajo
+        assertMatrix(translation(1, 0, 0), bottom);
+
+        stack.pop();
+        assertEquals(1, stack.size());
+        assertSame(bottom, stack.peek());
+        assertMatrix(translation(1, 0, 0), stack.peek());
+    }
+
+    @Test
+    public void translateThenScaleScalesFirst() {
+        MatrixStack stack = new MatrixStack();
+        stack.translate(10, 20, 30).scale(2, 3, 4);
+        // S * T: la escala en la diagonal y la traslacion sin escalar en la ultima fila
+        assertMatrix(new float[]{
+                2, 0, 0, 0,
+                0, 3, 0, 0,
+                0, 0, 4, 0,
+                10, 20, 30, 1}, stack.peek());
+        assertPoint(12, 23, 34, stack.peek(), 1, 1, 1);
+    }
+
+    @Test
+    public void scaleThenTranslateScalesTheTranslation() {
+        MatrixStack stack = new MatrixStack();
+        stack.scale(2, 3, 4).translate(10, 20, 30);
+        // T * S: la traslacion pasa por la escala, igual que glScalef seguido de glTranslatef
+        assertMatrix(new float[]{
+                2, 0, 0, 0,
+                0, 3, 0, 0,
+                0, 0, 4, 0,
+                20, 60, 120, 1}, stack.peek());
+        assertPoint(22, 63, 124, stack.peek(), 1, 1, 1);
+    }
+
+    @Test
+    public void rotateAroundZ() {
+        MatrixStack stack = new MatrixStack();
+        stack.rotate(90, 0, 0, 1);
+        // Cada fila es un eje rotado: x pasa a y, y pasa a -x
+        assertMatrix(new float[]{
+                0, 1, 0, 0,
+                -1, 0, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1}, stack.peek());
+        assertPoint(0, 1, 0, stack.peek(), 1, 0, 0);
+    }
+
+    @Test
+    public void translateThenRotateRotatesAroundTheNewOrigin() {
+        MatrixStack stack = new MatrixStack();
+        stack.translate(5, 0, 0).rotate(90, 0, 0, 1);
+        assertMatrix(new float[]{
+                0, 1, 0, 0,
+                -1, 0, 0, 0,
+                0, 0, 1, 0,
+                5, 0, 0, 1}, stack.peek());
+        // (2, 0) rota a (0, 2) y se traslada a (5, 2)
+        assertPoint(5, 2, 0, stack.peek(), 2, 0, 0);
+    }
+
+    @Test
+    public void multiplyAppliesBeforeTop() {
+        MatrixStack stack = new MatrixStack();
+        stack.translate(1, 2, 3).multiply(new Matrix44().scaling(2, 2, 2));
+        assertMatrix(new float[]{
+                2, 0, 0, 0,
+                0, 2, 0, 0,
+                0, 0, 2, 0,
+                1, 2, 3, 1}, stack.peek());
+        assertPoint(3, 4, 5, stack.peek(), 1, 1, 1);
+        // Igual que la misma secuencia con translate y scale
+        assertMatrix(new MatrixStack().translate(1, 2, 3).scale(2, 2, 2).peek().m, stack.peek());
+    }
+
+    @Test
+    public void loadAndResetReplaceTop() {
+        MatrixStack stack = new MatrixStack();
+        stack.push().load(new Matrix44().translation(7, 8, 9));
+        assertMatrix(translation(7, 8, 9), stack.peek());
+        stack.loadIdentity();
+        assertMatrix(new Matrix44().m, stack.peek());
+        stack.translate(1, 1, 1).push().push();
+        stack.reset();
+        assertEquals(1, stack.size());
+        assertMatrix(new Matrix44().m, stack.peek());
+    }
+
+    @Test
+    public void storeWritesTopWithoutMovingPosition() {
+        MatrixStack stack = new MatrixStack();
+        stack.translate(4, 5, 6);
+        FloatBuffer buffer = FloatBuffer.allocate(20);
+        buffer.position(3);
+        stack.store(buffer);
+        assertEquals(3, buffer.position());
+        for (int i = 0; i < 16; i++)
+            assertEquals(stack.peek().m[i], buffer.get(3 + i), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pushPastDepthFails() {
+        MatrixStack stack = new MatrixStack(2);
+        stack.push();
+        stack.push();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popEmptyStackFails() {
+        new MatrixStack().pop();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popMoreThanPushedFails() {
+        MatrixStack stack = new MatrixStack();
+        stack.push().pop();
+        stack.pop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroDepth() {
+        new MatrixStack(0);
+    }
+
+    private static float[] translation(float x, float y, float z) {
+        return new Matrix44().translation(x, y, z).m;
+    }
+
+    private static void assertMatrix(float[] expected, Matrix44 actual) {
+        for (int i = 0; i < 16; i++)
+            assertEquals("m[" + i + "]\n" + actual, expected[i], actual.m[i], EPSILON);
+    }
+
+    private static void assertPoint(float x, float y, float z, Matrix44 matrix, float px, float py, float pz) {
+        Vec3f p = matrix.transformPoint(new Vec3f(px, py, pz), new Vec3f());
+        assertEquals(x, p.x, EPSILON);
+        assertEquals(y, p.y, EPSILON);
+        assertEquals(z, p.z, EPSILON);
+    }
+
+}
\ No newline at end of file
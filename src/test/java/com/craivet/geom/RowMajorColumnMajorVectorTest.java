@@ -0,0 +1,176 @@
+package com.craivet.geom;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.craivet.geom.RowMajorColumnMajorVector.Layout;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba las vistas row-major/column-major y la escritura traspuesta contra {@link Matrix44#transpose()} y contra un bucle que
+ * traspone coeficiente por coeficiente.
+ */
+
+public class RowMajorColumnMajorVectorTest {
+
+    // Valor de los floats del buffer que no se deben tocar
+    private static final float UNTOUCHED = -1;
+
+    @Test
+    public void columnMajorViewIsTheTranspose() {
+        Matrix44 matrix = known();
+        Matrix44 transposed = new Matrix44(matrix).transpose();
+        RowMajorColumnMajorVector view = RowMajorColumnMajorVector.of(matrix);
+        RowMajorColumnMajorVector column = view.as(Layout.COLUMN_MAJOR);
+        assertEquals(Layout.COLUMN_MAJOR, column.getLayout());
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                assertEquals(matrix.get(row, col), view.get(row, col), 0);
+                assertEquals(transposed.get(row, col), column.get(row, col), 0);
+                // Coeficiente (fila, columna) = 10 * fila + columna + 1
+                assertEquals(10 * col + row + 1, column.get(row, col), 0);
+            }
+        }
+        // Las vistas no copian: siempre es la misma instancia y escribir en una cambia la matriz
+        assertSame(view, view.as(Layout.ROW_MAJOR));
+        assertSame(column, view.as(Layout.COLUMN_MAJOR));
+        assertSame(view, column.as(Layout.ROW_MAJOR));
+        column.set(3, 0, 99);
+        assertEquals(99, matrix.get(0, 3), 0);
+    }
+
+    @Test
+    public void storeInOppositeLayoutTransposes() {
+        Matrix44 matrix = known();
+        Matrix44 transposed = new Matrix44(matrix).transpose();
+        RowMajorColumnMajorVector view = RowMajorColumnMajorVector.of(matrix);
+
+        FloatBuffer buffer = buffer(20, 2);
+        view.store(buffer, Layout.COLUMN_MAJOR);
+        assertEquals(2, buffer.position());
+        assertStored(transposed.m, buffer, 2);
+
+        buffer = buffer(20, 2);
+        view.store(buffer, Layout.ROW_MAJOR);
+        assertEquals(2, buffer.position());
+        assertStored(matrix.m, buffer, 2);
+
+        // La vista column-major escrita en row-major es la misma traspuesta
+        buffer = buffer(20, 2);
+        view.as(Layout.COLUMN_MAJOR).store(buffer, Layout.ROW_MAJOR);
+        assertStored(transposed.m, buffer, 2);
+    }
+
+    @Test
+    public void storeTransposedMatchesTranspose() {
+        Matrix44 matrix = known();
+        FloatBuffer buffer = buffer(24, 5);
+        matrix.storeTransposed(buffer);
+        assertEquals(5, buffer.position());
+        assertStored(new Matrix44(matrix).transpose().m, buffer, 5);
+        // store sin trasponer deja el arreglo tal cual
+        buffer = buffer(24, 5);
+        matrix.store(buffer);
+        assertStored(matrix.m, buffer, 5);
+    }
+
+    @Test
+    public void randomMatricesMatchNaiveTranspose() {
+        Random random = new Random(42);
+        float[] storage = new float[48];
+        for (int n = 0; n < 100; n++) {
+            for (int i = 0; i < storage.length; i++)
+                storage[i] = random.nextFloat() * 200 - 100;
+            int offset = random.nextInt(storage.length - 16 + 1);
+            RowMajorColumnMajorVector view = new RowMajorColumnMajorVector(storage, offset, Layout.ROW_MAJOR);
+            float[] naive = naiveTranspose(storage, offset);
+
+            RowMajorColumnMajorVector column = view.as(Layout.COLUMN_MAJOR);
+            for (int row = 0; row < 4; row++)
+                for (int col = 0; col < 4; col++)
+                    assertEquals(naive[row * 4 + col], column.get(row, col), 0);
+
+            FloatBuffer buffer = buffer(32, 7);
+            view.store(buffer, Layout.COLUMN_MAJOR);
+            assertEquals(7, buffer.position());
+            assertStored(naive, buffer, 7);
+
+            Matrix44 matrix = new Matrix44();
+            System.arraycopy(storage, offset, matrix.m, 0, 16);
+            buffer = buffer(32, 7);
+            matrix.storeTransposed(buffer);
+            assertStored(naive, buffer, 7);
+        }
+    }
+
+    @Test
+    public void offsetViewsOnlyTouchTheirCoefficients() {
+        // Dos matrices una detras de otra, con un coeficiente de sobra a cada lado
+        float[] storage = new float[34];
+        for (int i = 0; i < storage.length; i++)
+            storage[i] = i;
+        RowMajorColumnMajorVector second = new RowMajorColumnMajorVector(storage, 17, Layout.ROW_MAJOR);
+        assertEquals(17 + 2 * 4 + 3, second.get(2, 3), 0);
+        assertEquals(17 + 3 * 4 + 2, second.as(Layout.COLUMN_MAJOR).get(2, 3), 0);
+
+        FloatBuffer buffer = buffer(20, 1);
+        second.store(buffer, Layout.COLUMN_MAJOR);
+        assertStored(naiveTranspose(storage, 17), buffer, 1);
+
+        // Leer en el otro orden deshace la trasposicion y no toca los coeficientes vecinos
+        float[] copy = new float[34];
+        new RowMajorColumnMajorVector(copy, 17, Layout.ROW_MAJOR).load(buffer, Layout.COLUMN_MAJOR);
+        assertEquals(1, buffer.position());
+        for (int i = 0; i < copy.length; i++)
+            assertEquals(i < 17 || i >= 33 ? 0 : storage[i], copy[i], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOffsetPastTheEnd() {
+        new RowMajorColumnMajorVector(new float[20], 5, Layout.ROW_MAJOR);
+    }
+
+    /**
+     * Matriz con el coeficiente (fila, columna) = 10 * fila + columna + 1, distinto en cada posicion.
+     */
+    private static Matrix44 known() {
+        Matrix44 matrix = new Matrix44();
+        for (int row = 0; row < 4; row++)
+            for (int col = 0; col < 4; col++)
+                matrix.set(row, col, 10 * row + col + 1);
+        return matrix;
+    }
+
+    private static float[] naiveTranspose(float[] storage, int offset) {
+        float[] transposed = new float[16];
+        for (int row = 0; row < 4; row++)
+            for (int col = 0; col < 4; col++)
+                transposed[col * 4 + row] = storage[offset + row * 4 + col];
+        return transposed;
+    }
+
+    /**
+     * Buffer lleno de {@link #UNTOUCHED} con la posicion indicada.
+     */
+    private static FloatBuffer buffer(int capacity, int position) {
+        FloatBuffer buffer = FloatBuffer.allocate(capacity);
+        for (int i = 0; i < capacity; i++)
+            buffer.put(i, UNTOUCHED);
+        buffer.position(position);
+        return buffer;
+    }
+
+    /**
+     * Comprueba que los 16 floats desde la posicion son los esperados y que el resto del buffer no se toco.
+     */
+    private static void assertStored(float[] expected, FloatBuffer buffer, int position) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            float value = i >= position && i < position + 16 ? expected[i - position] : UNTOUCHED;
+            assertEquals("indice " + i, value, buffer.get(i), 0);
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.craivet.geom;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que las variantes con arreglos, con buffers, en el lugar y paralelas de {@link TransformingPointsVectors} dan los mismos
+ * resultados que {@link Matrix44#transformPoint} y {@link Matrix44#transformDirection}, con una matriz afin y una proyeccion.
+ */
+
+public class TransformingPointsVectorsTest {
+
+    // Mas de un bloque y el ultimo incompleto
+    private static final int COUNT = 2 * TransformingPointsVectors.BLOCK_SIZE + 77;
+    // Los resultados se escriben a partir de otro indice que el origen
+    private static final int SRC_OFFSET = 3, DST_OFFSET = 6;
+
+    private static final Matrix44 AFFINE = new Matrix44().translation(3, -2, 5).rotate(30, 1, 2, 3).scale(2, 0.5f, 4);
+    private static final Matrix44 PROJECTION = new Matrix44().perspective(60, 1.5f, 0.5f, 100).translate(1, 2, -10);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final TransformingPointsVectors transformer = new TransformingPointsVectors(pool);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void pointsMatchMatrix44() {
+        float[] src = random(new Random(1));
+        for (Matrix44 matrix : new Matrix44[]{AFFINE, PROJECTION}) {
+            float[] expected = expected(matrix, src, true);
+            float[] dst = new float[DST_OFFSET + COUNT * 3];
+
+            TransformingPointsVectors.transformPoints(matrix, src, SRC_OFFSET, dst, DST_OFFSET, COUNT);
+            assertTransformed(expected, dst);
+
+            FloatBuffer srcBuffer = buffer(src), dstBuffer = BufferUtils.createFloatBuffer(dst.length);
+            TransformingPointsVectors.transformPoints(matrix, srcBuffer, SRC_OFFSET, dstBuffer, DST_OFFSET, COUNT);
+            assertTransformed(expected, dstBuffer);
+
+            dst = new float[dst.length];
+            transformer.transformPointsParallel(matrix, src, SRC_OFFSET, dst, DST_OFFSET, COUNT);
+            assertTransformed(expected, dst);
+
+            dstBuffer = BufferUtils.createFloatBuffer(dst.length);
+            transformer.transformPointsParallel(matrix, srcBuffer, SRC_OFFSET, dstBuffer, DST_OFFSET, COUNT);
+            assertTransformed(expected, dstBuffer);
+            // Las posiciones de los buffers no se mueven
+            assertEquals(0, srcBuffer.position());
+            assertEquals(0, dstBuffer.position());
+
+            // En el lugar, secuencial y en paralelo
+            float[] inPlace = shift(src);
+            TransformingPointsVectors.transformPoints(matrix, inPlace, DST_OFFSET, inPlace, DST_OFFSET, COUNT);
+            assertTransformed(expected, inPlace);
+            inPlace = shift(src);
+            transformer.transformPointsParallel(matrix, inPlace, DST_OFFSET, inPlace, DST_OFFSET, COUNT);
+            assertTransformed(expected, inPlace);
+            FloatBuffer inPlaceBuffer = buffer(shift(src));
+            transformer.transformPointsParallel(matrix, inPlaceBuffer, DST_OFFSET, inPlaceBuffer, DST_OFFSET, COUNT);
+            assertTransformed(expected, inPlaceBuffer);
+        }
+    }
+
+    @Test
+    public void directionsMatchMatrix44() {
+        float[] src = random(new Random(2));
+        for (Matrix44 matrix : new Matrix44[]{AFFINE, PROJECTION}) {
+            float[] expected = expected(matrix, src, false);
+            float[] dst = new float[DST_OFFSET + COUNT * 3];
+
+            TransformingPointsVectors.transformDirections(matrix, src, SRC_OFFSET, dst, DST_OFFSET, COUNT);
+            assertTransformed(expected, dst);
+
+            FloatBuffer srcBuffer = buffer(src), dstBuffer = BufferUtils.createFloatBuffer(dst.length);
+            TransformingPointsVectors.transformDirections(matrix, srcBuffer, SRC_OFFSET, dstBuffer, DST_OFFSET, COUNT);
+            assertTransformed(expected, dstBuffer);
+
+            dst = new float[dst.length];
+            transformer.transformDirectionsParallel(matrix, src, SRC_OFFSET, dst, DST_OFFSET, COUNT);
+            assertTransformed(expected, dst);
+
+            dstBuffer = BufferUtils.createFloatBuffer(dst.length);
+            transformer.transformDirectionsParallel(matrix, srcBuffer, SRC_OFFSET, dstBuffer, DST_OFFSET, COUNT);
+            assertTransformed(expected, dstBuffer);
+
+            float[] inPlace = shift(src);
+            transformer.transformDirectionsParallel(matrix, inPlace, DST_OFFSET, inPlace, DST_OFFSET, COUNT);
+            assertTransformed(expected, inPlace);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDestinationTooSmall() {
+        float[] dst = new float[COUNT * 3];
+        TransformingPointsVectors.transformPoints(AFFINE, new float[COUNT * 3], 0, dst, 3, COUNT);
+    }
+
+    /**
+     * Devuelve count puntos aleatorios a partir de SRC_OFFSET.
+     */
+    private static float[] random(Random random) {
+        float[] values = new float[SRC_OFFSET + COUNT * 3];
+        for (int i = SRC_OFFSET; i < values.length; i++)
+            values[i] = random.nextFloat() * 200 - 100;
+        return values;
+    }
+
+    /**
+     * Transforma cada punto con Matrix44, el resultado empieza en el indice 0.
+     */
+    private static float[] expected(Matrix44 matrix, float[] src, boolean points) {
+        float[] expected = new float[COUNT * 3];
+        Vec3f p = new Vec3f(), dest = new Vec3f();
+        for (int i = 0; i < COUNT; i++) {
+            int s = SRC_OFFSET + i * 3;
+            p.set(src[s], src[s + 1], src[s + 2]);
+            if (points) matrix.transformPoint(p, dest);
+            else matrix.transformDirection(p, dest);
+            expected[i * 3] = dest.x;
+            expected[i * 3 + 1] = dest.y;
+            expected[i * 3 + 2] = dest.z;
+        }
+        return expected;
+    }
+
+    /**
+     * Copia los puntos de src para que empiecen en DST_OFFSET.
+     */
+    private static float[] shift(float[] src) {
+        float[] values = new float[DST_OFFSET + COUNT * 3];
+        System.arraycopy(src, SRC_OFFSET, values, DST_OFFSET, COUNT * 3);
+        return values;
+    }
+
+    private static FloatBuffer buffer(float[] values) {
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(values.length);
+        buffer.put(values).flip();
+        return buffer;
+    }
+
+    private static void assertTransformed(float[] expected, float[] actual) {
+        // Los bucles hacen las mismas operaciones en el mismo orden que Matrix44, el resultado es identico
+        for (int i = 0; i < expected.length; i++)
+            assertEquals("float " + i, expected[i], actual[DST_OFFSET + i], 0);
+        // Lo que esta antes del destino no se toca
+        for (int i = 0; i < DST_OFFSET; i++)
+            assertEquals(0, actual[i], 0);
+    }
+
+    private static void assertTransformed(float[] expected, FloatBuffer actual) {
+        float[] values = new float[actual.limit()];
+        actual.duplicate().get(values);
+        assertTransformed(expected, values);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba que {@link ParticleSimulation} genera y mueve las mismas particulas con uno o con muchos hilos, y que
+ * {@link PointClusters} reordena las velocidades junto con las posiciones.
+ */
+
+public class ParticleSimulationTest {
+
+    // Mas de un bloque y el ultimo incompleto
+    private static final int SIZE = 3 * ParticleSimulation.BLOCK_SIZE + 123;
+    private static final long SEED = 42;
+
+    // La velocidad depende de la posicion para poder comprobar que siguen alineadas despues de reordenar
+    private static final ParticleSimulation.Generator GENERATOR = (random, particle) -> {
+        particle[0] = (float) random.nextDouble(-100, 100);
+        particle[1] = (float) random.nextDouble(-100, 100);
+        particle[2] = (float) random.nextDouble(-100, 100);
+        particle[3] = particle[0] * 2;
+        particle[4] = particle[1] * 3;
+        particle[5] = particle[2] + 1;
+    };
+
+    private final ForkJoinPool single = new ForkJoinPool(1);
+    private final ForkJoinPool parallel = new ForkJoinPool(8);
+
+    @After
+    public void tearDown() {
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    @Test
+    public void sameSeedGivesSameParticlesOnAnyPool() {
+        ParticleSimulation a = new ParticleSimulation(new ParticleStore(SIZE), single);
+        ParticleSimulation b = new ParticleSimulation(new ParticleStore(SIZE), parallel);
+        a.generate(SEED, GENERATOR);
+        b.generate(SEED, GENERATOR);
+        assertSameParticles(a, b);
+        // La ultima particula del bloque incompleto tambien se genera
+        assertNotEquals(0, a.getStore().getX(SIZE - 1), 0);
+
+        a.setBounds(-50, -50, -50, 50, 50, 50);
+        b.setBounds(-50, -50, -50, 50, 50, 50);
+        for (int i = 0; i < 3; i++) {
+            a.update(0.01f);
+            b.update(0.01f);
+        }
+        assertSameParticles(a, b);
+    }
+
+    @Test
+    public void differentSeedsGiveDifferentParticles() {
+        ParticleSimulation a = new ParticleSimulation(new ParticleStore(SIZE), parallel);
+        ParticleSimulation b = new ParticleSimulation(new ParticleStore(SIZE), parallel);
+        a.generate(SEED, GENERATOR);
+        b.generate(SEED + 1, GENERATOR);
+        assertNotEquals(a.getStore().getX(0), b.getStore().getX(0), 0);
+    }
+
+    @Test
+    public void clusteringKeepsVelocitiesAligned() {
+        ParticleSimulation simulation = new ParticleSimulation(new ParticleStore(SIZE), parallel);
+        simulation.generate(SEED, GENERATOR);
+        ParticleStore store = simulation.getStore();
+        float[] before = new float[SIZE * ParticleStore.COMPONENTS];
+        store.getPositions().get(before);
+        PointClusters clusters = new PointClusters(simulation, 1024);
+        assertEquals(SIZE, clusters.getPointCount());
+        float[] after = new float[before.length];
+        store.getPositions().get(after);
+        // Los puntos se reordenaron
+        assertFalse(Arrays.equals(before, after));
+        for (int i = 0; i < SIZE; i++) {
+            float x = store.getX(i), y = store.getY(i), z = store.getZ(i);
+            assertEquals("vx " + i, x * 2, simulation.vx[i], 0);
+            assertEquals("vy " + i, y * 3, simulation.vy[i], 0);
+            assertEquals("vz " + i, z + 1, simulation.vz[i], 0);
+        }
+    }
+
+    private static void assertSameParticles(ParticleSimulation a, ParticleSimulation b) {
+        FloatBuffer pa = a.getStore().getPositions(), pb = b.getStore().getPositions();
+        assertEquals(SIZE * ParticleStore.COMPONENTS, pa.limit());
+        assertEquals(pa, pb);
+        assertArrayEquals(a.vx, b.vx, 0);
+        assertArrayEquals(a.vy, b.vy, 0);
+        assertArrayEquals(a.vz, b.vz, 0);
+    }
+
+}
\ No newline at end of file
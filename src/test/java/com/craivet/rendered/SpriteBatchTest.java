@@ -0,0 +1,199 @@
+package com.craivet.rendered;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.craivet.Texture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba cuando se vacia el lote (cambio de textura, capacidad llena y end()), los contadores de llamadas de dibujo y que los
+ * vertices se transforman con la matriz del tope de {@link SpriteBatch#getTransform()} sin agregar llamadas, con un renderer falso
+ * que copia los vertices.
+ */
+
+public class SpriteBatchTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    private static final Texture GRASS = new Texture(1, 16, 16);
+    private static final Texture STONE = new Texture(2, 16, 16);
+
+    @Test
+    public void flushesWhenTextureChanges() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(8, renderer);
+        batch.begin();
+        batch.draw(GRASS, 0, 0);
+        batch.draw(GRASS, 16, 0);
+        assertTrue(renderer.batches.isEmpty());
+        batch.draw(STONE, 32, 0);
+        assertEquals(1, renderer.batches.size());
+        assertEquals(1, batch.getCount());
+        batch.draw(GRASS, 48, 0);
+        batch.end();
+
+        assertEquals(3, renderer.batches.size());
+        assertArrayEquals(new Texture[]{GRASS, STONE, GRASS}, renderer.textures.toArray());
+        assertEquals(2 * SpriteBatch.SPRITE_SIZE, renderer.batches.get(0).length);
+        assertEquals(SpriteBatch.SPRITE_SIZE, renderer.batches.get(1).length);
+        assertEquals(SpriteBatch.SPRITE_SIZE, renderer.batches.get(2).length);
+        assertEquals(3, batch.getRenderCalls());
+    }
+
+    @Test
+    public void flushesWhenCapacityIsReached() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(4, renderer);
+        batch.begin();
+        for (int i = 0; i < 9; i++)
+            batch.draw(GRASS, i * 16, 0);
+        // El lote se vacia al agregar el sprite que no entra, no al llenarse
+        assertEquals(2, renderer.batches.size());
+        assertEquals(1, batch.getCount());
+        batch.end();
+
+        assertEquals(3, renderer.batches.size());
+        assertEquals(4 * SpriteBatch.SPRITE_SIZE, renderer.batches.get(0).length);
+        assertEquals(4 * SpriteBatch.SPRITE_SIZE, renderer.batches.get(1).length);
+        assertEquals(SpriteBatch.SPRITE_SIZE, renderer.batches.get(2).length);
+        // El primer sprite del segundo lote empieza en la posicion 0 del buffer
+        assertEquals(4 * 16, renderer.batches.get(1)[0], 0);
+    }
+
+    @Test
+    public void endFlushesPendingSprites() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(8, renderer);
+        batch.begin();
+        assertTrue(batch.isDrawing());
+        batch.draw(GRASS, 0, 0);
+        assertEquals(SpriteBatch.SPRITE_SIZE, batch.getVertices().remaining());
+        batch.end();
+        assertFalse(batch.isDrawing());
+        assertEquals(1, renderer.batches.size());
+        assertEquals(0, batch.getCount());
+        assertEquals(0, batch.getVertices().remaining());
+
+        // Un lote sin sprites no hace llamadas de dibujo
+        batch.begin();
+        batch.end();
+        assertEquals(1, renderer.batches.size());
+        assertEquals(0, batch.getRenderCalls());
+    }
+
+    @Test
+    public void renderCallsResetOnBeginAndTotalAccumulates() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(8, renderer);
+        for (int frame = 1; frame <= 3; frame++) {
+            batch.begin();
+            batch.draw(GRASS, 0, 0);
+            batch.draw(STONE, 0, 0);
+            batch.end();
+            assertEquals(2, batch.getRenderCalls());
+            assertEquals(2 * frame, batch.getTotalRenderCalls());
+        }
+        // Una llamada explicita a flush() tambien cuenta
+        batch.begin();
+        batch.draw(GRASS, 0, 0);
+        batch.flush();
+        assertEquals(1, batch.getRenderCalls());
+        assertEquals(7, batch.getTotalRenderCalls());
+        batch.end();
+        assertEquals(1, batch.getRenderCalls());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void drawWithoutBeginFails() {
+        new SpriteBatch(8, new FakeRenderer()).draw(GRASS, 0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endWithoutBeginFails() {
+        new SpriteBatch(8, new FakeRenderer()).end();
+    }
+
+    @Test
+    public void verticesUseTopOfTransformStack() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(8, renderer);
+        batch.begin();
+        batch.getTransform().push().translate(100, 50, 0).rotate(90, 0, 0, 1);
+        batch.draw(null, 0, 0, 10, 20, 0, 0, 1, 1);
+        batch.getTransform().pop();
+        batch.draw(null, 1, 1, 2, 2, 0, 0, 1, 1);
+        batch.end();
+
+        assertEquals(1, renderer.batches.size());
+        float[] vertices = renderer.batches.get(0);
+        assertEquals(2 * SpriteBatch.SPRITE_SIZE, vertices.length);
+        // Rotado 90 grados alrededor del origen y trasladado: (x, y) pasa a (100 - y, 50 + x)
+        assertVertex(vertices, 0, 100, 50, 0, 0);
+        assertVertex(vertices, 1, 100, 60, 1, 0);
+        assertVertex(vertices, 2, 80, 60, 1, 1);
+        assertVertex(vertices, 3, 80, 50, 0, 1);
+        // Despues del pop vuelve la identidad
+        assertVertex(vertices, 4, 1, 1, 0, 0);
+        assertVertex(vertices, 5, 3, 1, 1, 0);
+        assertVertex(vertices, 6, 3, 3, 1, 1);
+        assertVertex(vertices, 7, 1, 3, 0, 1);
+    }
+
+    @Test
+    public void scaledSpriteKeepsColorAndTextureCoordinates() {
+        FakeRenderer renderer = new FakeRenderer();
+        SpriteBatch batch = new SpriteBatch(8, renderer);
+        batch.getTransform().translate(5, 5, 0).scale(2, 3, 1);
+        batch.begin();
+        batch.setColor(0.1f, 0.2f, 0.3f, 0.4f);
+        batch.draw(null, 1, 1, 4, 4, 0.25f, 0.5f, 0.75f, 1);
+        batch.end();
+
+        float[] vertices = renderer.batches.get(0);
+        assertVertex(vertices, 0, 7, 8, 0.25f, 0.5f);
+        assertVertex(vertices, 2, 15, 20, 0.75f, 1);
+        for (int i = 0; i < SpriteBatch.VERTICES_PER_SPRITE; i++) {
+            int base = i * SpriteBatch.VERTEX_SIZE;
+            assertEquals(0.1f, vertices[base + 4], 0);
+            assertEquals(0.4f, vertices[base + 7], 0);
+        }
+    }
+
+    private static void assertVertex(float[] vertices, int vertex, float x, float y, float s, float t) {
+        int base = vertex * SpriteBatch.VERTEX_SIZE;
+        String at = "vertice " + vertex;
+        assertEquals(at, x, vertices[base], EPSILON);
+        assertEquals(at, y, vertices[base + 1], EPSILON);
+        assertEquals(at, s, vertices[base + 2], 0);
+        assertEquals(at, t, vertices[base + 3], 0);
+    }
+
+    /**
+     * Guarda una copia de los vertices y la textura de cada llamada de dibujo.
+     */
+    private static class FakeRenderer implements SpriteBatch.Renderer {
+
+        final List<float[]> batches = new ArrayList<>();
+        final List<Texture> textures = new ArrayList<>();
+
+        @Override
+        public void resize(int width, int height) {
+        }
+
+        @Override
+        public void render(Texture texture, FloatBuffer vertices, int vertexCount) {
+            assertEquals(vertexCount * SpriteBatch.VERTEX_SIZE, vertices.remaining());
+            float[] copy = new float[vertices.remaining()];
+            vertices.duplicate().get(copy);
+            batches.add(copy);
+            textures.add(texture);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+package com.craivet.rendered;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba el manejo del anillo y de los fences de {@link StreamingBuffer} con un backend falso que registra las llamadas.
+ */
+
+public class StreamingBufferTest {
+
+    private static final long CAPACITY = 64;
+
+    @Test
+    public void orphanAllocatesEveryFrameAtOffsetZero() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.ORPHAN, CAPACITY, 3, backend);
+        assertEquals(1, backend.created.size());
+        for (int frame = 0; frame < 5; frame++) {
+            assertEquals(0, buffer.upload(floats(4)));
+            buffer.endFrame();
+        }
+        // Una reserva al crear y una por cuadro
+        assertEquals(6, backend.allocations);
+        assertEquals(5, backend.writes);
+        assertEquals(5, buffer.getOrphans());
+        assertTrue(backend.fences.isEmpty());
+        assertEquals(0, backend.awaited.size());
+    }
+
+    @Test
+    public void mapUnsynchronizedAdvancesAndWrapsAround() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.MAP_UNSYNCHRONIZED, CAPACITY, 3, backend);
+        // 6 floats = 24 bytes por cuadro, entran 2 cuadros en 64 bytes
+        long[] expected = {0, 24, 0, 24, 0};
+        for (long offset : expected) {
+            assertEquals(offset, buffer.upload(floats(6)));
+            buffer.endFrame();
+        }
+        assertEquals(5, backend.maps.size());
+        // Solo al dar la vuelta se invalida el buffer entero
+        boolean[] invalidated = {false, false, true, false, true};
+        for (int i = 0; i < expected.length; i++) {
+            Mapping map = backend.maps.get(i);
+            assertEquals(expected[i], map.offset);
+            assertEquals(24, map.length);
+            assertEquals(invalidated[i], map.invalidateBuffer);
+        }
+        assertEquals(2, buffer.getOrphans());
+        assertEquals(5, backend.unmaps);
+        assertTrue(backend.fences.isEmpty());
+    }
+
+    @Test
+    public void mapUnsynchronizedFillsExactlyToCapacity() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.MAP_UNSYNCHRONIZED, CAPACITY, 3, backend);
+        assertEquals(0, buffer.upload(floats(8)));
+        buffer.endFrame();
+        assertEquals(32, buffer.upload(floats(8)));
+        buffer.endFrame();
+        assertEquals(0, buffer.upload(floats(8)));
+        assertEquals(1, buffer.getOrphans());
+    }
+
+    @Test
+    public void ringCreatesOneFencePerSlotAndAwaitsTheSameSlot() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.RING, CAPACITY, 3, backend);
+        assertEquals(3, backend.created.size());
+
+        int[] fenceOfSlot = new int[3];
+        for (int frame = 0; frame < 3; frame++) {
+            assertEquals(backend.created.get(frame).intValue(), buffer.getBuffer());
+            assertEquals(0, buffer.upload(floats(4)));
+            assertEquals(backend.created.get(frame).intValue(), backend.maps.get(frame).buffer);
+            buffer.endFrame();
+            fenceOfSlot[frame] = backend.lastFence;
+        }
+        // Un fence vivo por buffer del anillo y ninguna espera todavia
+        assertEquals(3, backend.fences.size());
+        assertTrue(backend.awaited.isEmpty());
+
+        // La vuelta siguiente espera el fence del mismo buffer y lo borra antes de crear uno nuevo
+        for (int frame = 0; frame < 3; frame++) {
+            assertEquals(backend.created.get(frame).intValue(), buffer.getBuffer());
+            buffer.upload(floats(4));
+            assertEquals(fenceOfSlot[frame], backend.awaited.get(frame).intValue());
+            assertFalse(backend.fences.contains(fenceOfSlot[frame]));
+            buffer.endFrame();
+            assertEquals(3, backend.fences.size());
+        }
+        assertEquals(0, buffer.getStalls());
+        // Los mapeos del anillo siempre invalidan el buffer entero
+        for (Mapping map : backend.maps)
+            assertTrue(map.invalidateBuffer);
+    }
+
+    @Test
+    public void ringCountsStallsWhenFenceIsPending() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.RING, CAPACITY, 2, backend);
+        buffer.upload(floats(4));
+        buffer.endFrame();
+        int first = backend.lastFence;
+        buffer.upload(floats(4));
+        buffer.endFrame();
+        // La GPU todavia no alcanzo el fence del primer buffer
+        backend.pending.add(first);
+        buffer.upload(floats(4));
+        buffer.endFrame();
+        assertEquals(1, buffer.getStalls());
+        // El segundo buffer ya se cumplio
+        buffer.upload(floats(4));
+        buffer.endFrame();
+        assertEquals(1, buffer.getStalls());
+        assertEquals(2, backend.awaited.size());
+    }
+
+    @Test
+    public void endFrameWithoutUploadDoesNotFence() {
+        FakeBackend backend = new FakeBackend();
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.RING, CAPACITY, 3, backend);
+        int first = buffer.getBuffer();
+        buffer.endFrame();
+        assertEquals(0, backend.fenceCount);
+        assertEquals(first, buffer.getBuffer());
+    }
+
+    @Test
+    public void disposeDeletesEveryFenceAndBuffer() {
+        for (StreamingBuffer.Mode mode : StreamingBuffer.Mode.values()) {
+            FakeBackend backend = new FakeBackend();
+            StreamingBuffer buffer = new StreamingBuffer(mode, CAPACITY, 3, backend);
+            // Dos cuadros: en el anillo quedan dos fences vivos y un buffer sin fence
+            for (int frame = 0; frame < 2; frame++) {
+                buffer.upload(floats(4));
+                buffer.endFrame();
+            }
+            buffer.dispose();
+            assertTrue(mode.toString(), backend.fences.isEmpty());
+            assertEquals(mode.toString(), new HashSet<>(backend.created), backend.deleted);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void uploadTwiceInAFrameFails() {
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.RING, CAPACITY, 3, new FakeBackend());
+        buffer.upload(floats(4));
+        buffer.upload(floats(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uploadLargerThanCapacityFails() {
+        StreamingBuffer buffer = new StreamingBuffer(StreamingBuffer.Mode.ORPHAN, CAPACITY, 3, new FakeBackend());
+        buffer.upload(floats(17));
+    }
+
+    private static FloatBuffer floats(int count) {
+        FloatBuffer data = FloatBuffer.allocate(count);
+        for (int i = 0; i < count; i++)
+            data.put(i, i);
+        return data;
+    }
+
+    private static class Mapping {
+        final int buffer;
+        final long offset, length;
+        final boolean invalidateBuffer;
+
+        Mapping(int buffer, long offset, long length, boolean invalidateBuffer) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            this.invalidateBuffer = invalidateBuffer;
+        }
+    }
+
+    /**
+     * Registra las llamadas en lugar de hacerlas. Los fences de {@link #pending} todavia no se cumplieron.
+     */
+    private static class FakeBackend implements StreamingBuffer.Backend {
+
+        final List<Integer> created = new ArrayList<>();
+        final Set<Integer> deleted = new HashSet<>();
+        final List<Mapping> maps = new ArrayList<>();
+        // Fences vivos (creados y no borrados)
+        final Set<Integer> fences = new HashSet<>();
+        final Set<Integer> pending = new HashSet<>();
+        final List<Integer> awaited = new ArrayList<>();
+        int allocations, writes, unmaps, fenceCount, lastFence;
+
+        @Override
+        public int create() {
+            int buffer = 100 + created.size();
+            created.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        public void allocate(int buffer, long size) {
+            assertEquals(CAPACITY, size);
+            allocations++;
+        }
+
+        @Override
+        public void write(int buffer, long offset, FloatBuffer data) {
+            writes++;
+        }
+
+        @Override
+        public ByteBuffer map(int buffer, long offset, long length, boolean invalidateBuffer) {
+            assertTrue("El mapeo se sale del buffer", offset + length <= CAPACITY);
+            maps.add(new Mapping(buffer, offset, length, invalidateBuffer));
+            return ByteBuffer.allocate((int) length);
+        }
+
+        @Override
+        public void unmap(int buffer) {
+            unmaps++;
+        }
+
+        @Override
+        public int fence() {
+            lastFence = ++fenceCount;
+            fences.add(lastFence);
+            return lastFence;
+        }
+
+        @Override
+        public boolean await(int fence) {
+            assertTrue("Espera de un fence borrado: " + fence, fences.contains(fence));
+            awaited.add(fence);
+            return pending.remove(fence);
+        }
+
+        @Override
+        public void deleteFence(int fence) {
+            assertTrue("Fence borrado dos veces: " + fence, fences.remove(fence));
+        }
+
+        @Override
+        public void delete(int buffer) {
+            assertTrue("Buffer borrado dos veces: " + buffer, deleted.add(buffer));
+        }
+
+    }
+
+}
\ No newline at end of file